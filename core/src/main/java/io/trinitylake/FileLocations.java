@@ -13,19 +13,27 @@
  */
 package io.trinitylake;
 
+import io.trinitylake.relocated.com.google.common.collect.Lists;
 import io.trinitylake.relocated.com.google.common.hash.HashCode;
 import io.trinitylake.relocated.com.google.common.hash.HashFunction;
 import io.trinitylake.relocated.com.google.common.hash.Hashing;
 import io.trinitylake.util.ValidationUtil;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.UUID;
 import java.util.regex.Pattern;
 
 public class FileLocations {
 
   public static final String LATEST_VERSION_HINT_FILE_PATH = "_latest_hint.txt";
+  public static final String MINIMUM_VERSION_FILE_PATH = "_minimum_version.txt";
+  public static final String VERSION_EXPIRATION_LOCK_FILE_PATH = "_version_expiration_lock.txt";
+  public static final String TIMESTAMP_INDEX_FILE_PATH_PREFIX = "_timestamp_index_";
+  public static final String TEXT_FILE_SUFFIX = ".txt";
   public static final String LAKEHOUSE_DEF_FILE_PATH_PREFIX = "_lakehouse_def_";
   public static final String PROTOBUF_BINARY_FILE_SUFFIX = ".binpb";
+  public static final String NODE_FILE_PATH_PREFIX = "node";
+  public static final String ARROW_IPC_FILE_SUFFIX = ".ipc";
 
   // underscore + 64 binary bits + .ipc suffix
   private static final int ROOT_NODE_FILE_PATH_LENGTH = 69;
@@ -68,6 +76,16 @@ public class FileLocations {
     return sb.reverse().toString();
   }
 
+  public static String timestampIndexFilePath(long segment) {
+    ValidationUtil.checkArgument(segment >= 0, "segment must be non-negative");
+    return TIMESTAMP_INDEX_FILE_PATH_PREFIX + segment + TEXT_FILE_SUFFIX;
+  }
+
+  public static String newNodeFilePath() {
+    return generateOptimizedFilePath(
+        ARROW_IPC_FILE_SUFFIX, NODE_FILE_PATH_PREFIX, UUID.randomUUID().toString());
+  }
+
   public static String newLakehouseDefFilePath() {
     return LAKEHOUSE_DEF_FILE_PATH_PREFIX + UUID.randomUUID() + PROTOBUF_BINARY_FILE_SUFFIX;
   }
@@ -82,6 +100,24 @@ public class FileLocations {
         PROTOBUF_BINARY_FILE_SUFFIX, namespaceName, tableName, UUID.randomUUID().toString());
   }
 
+  /**
+   * List the directories at the deepest entropy level of optimized file paths. Every file with an
+   * optimized file path is stored in one of these directories, so that all these files can be
+   * listed by listing the directories in parallel.
+   *
+   * @return directory paths ending with a slash
+   */
+  public static List<String> optimizedFileDirPaths() {
+    int numDirBits = ENTROPY_DIR_DEPTH * ENTROPY_DIR_LENGTH;
+    List<String> dirPaths = Lists.newArrayListWithCapacity(1 << numDirBits);
+    for (int i = 0; i < 1 << numDirBits; i++) {
+      // set the bit above the directory bits to preserve leading zeros
+      String bits = Integer.toBinaryString(i | 1 << numDirBits).substring(1);
+      dirPaths.add(dirsFromHash(bits) + "/");
+    }
+    return dirPaths;
+  }
+
   private static String generateOptimizedFilePath(String suffix, String... parts) {
     String originalName = String.join("-", parts) + suffix;
     return computeHash(originalName) + "-" + originalName;
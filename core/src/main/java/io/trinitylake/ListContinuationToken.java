@@ -0,0 +1,65 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake;
+
+import io.trinitylake.exception.InvalidArgumentException;
+import io.trinitylake.util.ValidationUtil;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.immutables.value.Value;
+
+/**
+ * Position of a paginated listing, encoding the root version the listing is served from and the
+ * last key returned, so that the next page continues from the same snapshot.
+ */
+@Value.Immutable
+interface ListContinuationToken {
+
+  String SEPARATOR = ":";
+
+  long rootVersion();
+
+  String lastKey();
+
+  default String encode() {
+    String token = rootVersion() + SEPARATOR + lastKey();
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(token.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static ListContinuationToken decode(String encoded) {
+    ValidationUtil.checkNotNullOrEmptyString(encoded, "Continuation token must be provided");
+    String token;
+    try {
+      token = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidArgumentException(e, "Invalid continuation token: %s", encoded);
+    }
+
+    int separatorIndex = token.indexOf(SEPARATOR);
+    ValidationUtil.checkArgument(separatorIndex > 0, "Invalid continuation token: %s", encoded);
+    long rootVersion;
+    try {
+      rootVersion = Long.parseLong(token.substring(0, separatorIndex));
+    } catch (NumberFormatException e) {
+      throw new InvalidArgumentException(e, "Invalid continuation token: %s", encoded);
+    }
+
+    return ImmutableListContinuationToken.builder()
+        .rootVersion(rootVersion)
+        .lastKey(token.substring(separatorIndex + SEPARATOR.length()))
+        .build();
+  }
+}
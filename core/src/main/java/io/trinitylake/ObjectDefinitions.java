@@ -18,10 +18,19 @@ import io.trinitylake.exception.StorageWriteFailureException;
 import io.trinitylake.models.LakehouseDef;
 import io.trinitylake.models.NamespaceDef;
 import io.trinitylake.models.TableDef;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableList;
+import io.trinitylake.relocated.com.google.common.collect.Lists;
+import io.trinitylake.relocated.com.google.common.collect.Queues;
 import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.util.FutureUtil;
+import io.trinitylake.util.Pair;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 public class ObjectDefinitions {
 
@@ -64,6 +73,32 @@ public class ObjectDefinitions {
     }
   }
 
+  /**
+   * Write namespace definitions in parallel, each to a new namespace definition file path.
+   *
+   * <p>The writes are sent through the executor of the storage, so at most {@link
+   * io.trinitylake.storage.CommonStorageOpsProperties#ioParallelism()} definitions are written at
+   * the same time.
+   *
+   * @param storage lakehouse storage
+   * @param namespaceDefs pairs of namespace name and definition
+   * @return written file paths, in the order of the input definitions
+   */
+  public static List<String> writeNamespaceDefs(
+      LakehouseStorage storage, List<Pair<String, NamespaceDef>> namespaceDefs) {
+    List<Callable<String>> writes = Lists.newArrayListWithCapacity(namespaceDefs.size());
+    for (Pair<String, NamespaceDef> namespaceDef : namespaceDefs) {
+      writes.add(
+          () -> {
+            String path = FileLocations.newNamespaceDefFilePath(namespaceDef.first());
+            writeNamespaceDef(storage, path, namespaceDef.first(), namespaceDef.second());
+            return path;
+          });
+    }
+
+    return writeInParallel(storage, writes);
+  }
+
   public static NamespaceDef readNamespaceDef(LakehouseStorage storage, String path) {
     try (InputStream stream = storage.startRead(path)) {
       return NamespaceDef.parseFrom(stream);
@@ -95,6 +130,33 @@ public class ObjectDefinitions {
     }
   }
 
+  /**
+   * Write table definitions of a namespace in parallel, each to a new table definition file path.
+   *
+   * <p>The writes are sent through the executor of the storage, so at most {@link
+   * io.trinitylake.storage.CommonStorageOpsProperties#ioParallelism()} definitions are written at
+   * the same time.
+   *
+   * @param storage lakehouse storage
+   * @param namespaceName namespace name
+   * @param tableDefs pairs of table name and definition
+   * @return written file paths, in the order of the input definitions
+   */
+  public static List<String> writeTableDefs(
+      LakehouseStorage storage, String namespaceName, List<Pair<String, TableDef>> tableDefs) {
+    List<Callable<String>> writes = Lists.newArrayListWithCapacity(tableDefs.size());
+    for (Pair<String, TableDef> tableDef : tableDefs) {
+      writes.add(
+          () -> {
+            String path = FileLocations.newTableDefFilePath(namespaceName, tableDef.first());
+            writeTableDef(storage, path, namespaceName, tableDef.first(), tableDef.second());
+            return path;
+          });
+    }
+
+    return writeInParallel(storage, writes);
+  }
+
   public static TableDef readTableDef(LakehouseStorage storage, String path) {
     try (InputStream stream = storage.startRead(path)) {
       return TableDef.parseFrom(stream);
@@ -103,4 +165,33 @@ public class ObjectDefinitions {
           e, "Failed to read table definition from storage path %s at %s", path, storage.root());
     }
   }
+
+  /**
+   * Write with at most twice {@link
+   * io.trinitylake.storage.CommonStorageOpsProperties#ioParallelism()} definitions pending, so that
+   * a large batch does not queue all its writes in the executor at once, while a slow write does
+   * not leave the other threads of the executor idle.
+   */
+  private static List<String> writeInParallel(
+      LakehouseStorage storage, List<Callable<String>> writes) {
+    int maxPendingWrites = storage.ops().commonProperties().ioParallelism() * 2;
+    List<Future<String>> futures = Lists.newArrayListWithCapacity(writes.size());
+    Deque<Future<String>> pendingWrites = Queues.newArrayDeque();
+    try {
+      for (Callable<String> write : writes) {
+        if (pendingWrites.size() >= maxPendingWrites) {
+          FutureUtil.awaitAll(ImmutableList.of(pendingWrites.poll()), "write object definition");
+        }
+
+        Future<String> future = storage.executor().submit(write);
+        futures.add(future);
+        pendingWrites.add(future);
+      }
+
+      return FutureUtil.awaitAll(futures, "write object definitions");
+    } catch (RuntimeException e) {
+      pendingWrites.forEach(write -> write.cancel(true));
+      throw e;
+    }
+  }
 }
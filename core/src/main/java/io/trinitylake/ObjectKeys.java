@@ -74,6 +74,15 @@ public class ObjectKeys {
     return sb.toString();
   }
 
+  /**
+   * Prefix shared by all namespace keys, which can be used to scan all namespaces in the tree
+   *
+   * @return namespace key prefix
+   */
+  public static String namespaceKeyPrefix() {
+    return NAMESPACE_SCHEMA_ID_PART;
+  }
+
   public static String namespaceNameFromKey(String namespaceKey, LakehouseDef lakehouseDef) {
     ValidationUtil.checkArgument(
         isNamespaceKey(namespaceKey, lakehouseDef), "Invalid namespace key: %s", namespaceKey);
@@ -118,6 +127,33 @@ public class ObjectKeys {
     return sb.toString();
   }
 
+  /**
+   * Prefix shared by all table keys in a namespace, which can be used to scan all tables of the
+   * namespace in the tree
+   *
+   * @param namespaceName namespace name
+   * @param lakehouseDef lakehouse definition
+   * @return table key prefix
+   */
+  public static String tableKeyPrefix(String namespaceName, LakehouseDef lakehouseDef) {
+    ValidationUtil.checkNotNull(lakehouseDef, "Lakehouse definition must be provided");
+    ValidationUtil.checkNotNullOrEmptyString(namespaceName, "namespace name must be provided");
+    ValidationUtil.checkArgument(
+        namespaceName.length() <= lakehouseDef.getNamespaceNameMaxSizeBytes(),
+        "namespace name %s must be less than or equal to %s in lakehouse definition",
+        namespaceName,
+        lakehouseDef.getNamespaceNameMaxSizeBytes());
+
+    StringBuilder sb = new StringBuilder();
+    sb.append(TABLE_SCHEMA_ID_PART);
+    sb.append(namespaceName);
+    for (int i = 0; i < lakehouseDef.getNamespaceNameMaxSizeBytes() - namespaceName.length(); i++) {
+      sb.append(' ');
+    }
+
+    return sb.toString();
+  }
+
   public static String tableNameFromKey(String tableKey, LakehouseDef lakehouseDef) {
     ValidationUtil.checkArgument(
         isTableKey(tableKey, lakehouseDef), "Invalid table key: %s", tableKey);
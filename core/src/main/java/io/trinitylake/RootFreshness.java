@@ -0,0 +1,26 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake;
+
+/** Freshness of the root that a transaction begins with. */
+public enum RootFreshness {
+  /**
+   * The latest root known in memory for the storage, which might miss the versions committed by
+   * other processes since the last refresh, but requires no request to the storage.
+   */
+  LATEST_KNOWN,
+
+  /** The latest root verified against the storage. */
+  VERIFIED_LATEST
+}
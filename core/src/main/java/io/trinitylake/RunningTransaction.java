@@ -28,4 +28,6 @@ public interface RunningTransaction {
   long beganAtMillis();
 
   IsolationLevel isolationLevel();
+
+  TransactionOptions options();
 }
@@ -15,6 +15,7 @@ package io.trinitylake;
 
 import io.trinitylake.relocated.com.google.common.collect.ImmutableSet;
 import io.trinitylake.util.PropertyUtil;
+import io.trinitylake.util.ValidationUtil;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -24,11 +25,33 @@ public class TransactionOptions implements StringMapBased {
   public static final String ISOLATION_LEVEL = "isolation-level";
   public static final String ISOLATION_LEVEL_DEFAULT = "snapshot";
 
+  public static final String ROOT_FRESHNESS = "root-freshness";
+  public static final String ROOT_FRESHNESS_DEFAULT = "verified-latest";
+
+  public static final String COMMIT_ATTEMPTS = "commit-attempts";
+  public static final int COMMIT_ATTEMPTS_DEFAULT = 4;
+
+  public static final String COMMIT_RETRY_MIN_WAIT_MILLIS = "commit-retry.min-wait-millis";
+  public static final long COMMIT_RETRY_MIN_WAIT_MILLIS_DEFAULT = 100;
+
+  public static final String COMMIT_RETRY_MAX_WAIT_MILLIS = "commit-retry.max-wait-millis";
+  public static final long COMMIT_RETRY_MAX_WAIT_MILLIS_DEFAULT = 10000;
+
   public static final Set<String> OPTIONS =
-      ImmutableSet.<String>builder().add(ISOLATION_LEVEL).build();
+      ImmutableSet.<String>builder()
+          .add(ISOLATION_LEVEL)
+          .add(ROOT_FRESHNESS)
+          .add(COMMIT_ATTEMPTS)
+          .add(COMMIT_RETRY_MIN_WAIT_MILLIS)
+          .add(COMMIT_RETRY_MAX_WAIT_MILLIS)
+          .build();
 
   private final Map<String, String> options;
   private final IsolationLevel isolationLevel;
+  private final RootFreshness rootFreshness;
+  private final int commitAttempts;
+  private final long commitRetryMinWaitMillis;
+  private final long commitRetryMaxWaitMillis;
 
   public TransactionOptions(Map<String, String> options) {
     this.options = PropertyUtil.filterProperties(options, OPTIONS::contains);
@@ -36,6 +59,32 @@ public class TransactionOptions implements StringMapBased {
         IsolationLevel.valueOf(
             PropertyUtil.propertyAsString(options, ISOLATION_LEVEL, ISOLATION_LEVEL_DEFAULT)
                 .toUpperCase(Locale.ENGLISH));
+    this.rootFreshness =
+        RootFreshness.valueOf(
+            PropertyUtil.propertyAsString(options, ROOT_FRESHNESS, ROOT_FRESHNESS_DEFAULT)
+                .replace('-', '_')
+                .toUpperCase(Locale.ENGLISH));
+    this.commitAttempts =
+        PropertyUtil.propertyAsInt(options, COMMIT_ATTEMPTS, COMMIT_ATTEMPTS_DEFAULT);
+    ValidationUtil.checkArgument(
+        commitAttempts > 0, "%s must be positive, but got %s", COMMIT_ATTEMPTS, commitAttempts);
+    this.commitRetryMinWaitMillis =
+        PropertyUtil.propertyAsLong(
+            options, COMMIT_RETRY_MIN_WAIT_MILLIS, COMMIT_RETRY_MIN_WAIT_MILLIS_DEFAULT);
+    ValidationUtil.checkArgument(
+        commitRetryMinWaitMillis >= 0,
+        "%s must not be negative, but got %s",
+        COMMIT_RETRY_MIN_WAIT_MILLIS,
+        commitRetryMinWaitMillis);
+    this.commitRetryMaxWaitMillis =
+        PropertyUtil.propertyAsLong(
+            options, COMMIT_RETRY_MAX_WAIT_MILLIS, COMMIT_RETRY_MAX_WAIT_MILLIS_DEFAULT);
+    ValidationUtil.checkArgument(
+        commitRetryMaxWaitMillis >= commitRetryMinWaitMillis,
+        "%s must not be less than %s, but got %s",
+        COMMIT_RETRY_MAX_WAIT_MILLIS,
+        COMMIT_RETRY_MIN_WAIT_MILLIS,
+        commitRetryMaxWaitMillis);
   }
 
   @Override
@@ -46,4 +95,36 @@ public class TransactionOptions implements StringMapBased {
   public IsolationLevel isolationLevel() {
     return isolationLevel;
   }
+
+  public RootFreshness rootFreshness() {
+    return rootFreshness;
+  }
+
+  /**
+   * Number of attempts to commit a transaction, rebasing it onto the latest root after each
+   * attempt that fails because of a concurrent commit
+   *
+   * @return number of attempts
+   */
+  public int commitAttempts() {
+    return commitAttempts;
+  }
+
+  /**
+   * Wait time before the first retry of a commit, which doubles for every following retry
+   *
+   * @return wait time in millis
+   */
+  public long commitRetryMinWaitMillis() {
+    return commitRetryMinWaitMillis;
+  }
+
+  /**
+   * Maximum wait time before a retry of a commit
+   *
+   * @return wait time in millis
+   */
+  public long commitRetryMaxWaitMillis() {
+    return commitRetryMaxWaitMillis;
+  }
 }
@@ -13,27 +13,43 @@
  */
 package io.trinitylake;
 
+import io.trinitylake.exception.CommitAttemptExhaustedException;
 import io.trinitylake.exception.CommitFailureException;
 import io.trinitylake.exception.ObjectAlreadyExistsException;
 import io.trinitylake.exception.ObjectNotFoundException;
+import io.trinitylake.exception.StorageAtomicSealFailureException;
 import io.trinitylake.models.LakehouseDef;
 import io.trinitylake.models.NamespaceDef;
 import io.trinitylake.models.TableDef;
 import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.relocated.com.google.common.collect.Iterators;
+import io.trinitylake.relocated.com.google.common.collect.Lists;
+import io.trinitylake.relocated.com.google.common.collect.Sets;
+import io.trinitylake.relocated.com.google.common.collect.Streams;
 import io.trinitylake.storage.LakehouseStorage;
 import io.trinitylake.tree.BasicTreeRoot;
+import io.trinitylake.tree.KeyDiff;
+import io.trinitylake.tree.LatestRootTracker;
 import io.trinitylake.tree.NodeKeyTableRow;
 import io.trinitylake.tree.TreeOperations;
 import io.trinitylake.tree.TreeRoot;
 import io.trinitylake.util.ValidationUtil;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class TrinityLake {
 
+  private static final Logger LOG = LoggerFactory.getLogger(TrinityLake.class);
+
   private TrinityLake() {}
 
   public static void createLakehouse(LakehouseStorage storage, LakehouseDef lakehouseDef) {
@@ -53,17 +69,38 @@ public class TrinityLake {
 
   public static RunningTransaction beginTransaction(
       LakehouseStorage storage, Map<String, String> options) {
-    TreeRoot current = TreeOperations.findLatestRoot(storage);
     TransactionOptions transactionOptions = new TransactionOptions(options);
+    LatestRootTracker latestRootTracker = LatestRootTracker.of(storage);
+    TreeRoot current =
+        transactionOptions.rootFreshness() == RootFreshness.LATEST_KNOWN
+            ? latestRootTracker.latestKnownRoot()
+            : latestRootTracker.verifiedLatestRoot();
     return ImmutableRunningTransaction.builder()
         .beganAtMillis(System.currentTimeMillis())
         .transactionId(UUID.randomUUID().toString())
         .beginningRoot(current)
         .runningRoot(current)
         .isolationLevel(transactionOptions.isolationLevel())
+        .options(transactionOptions)
         .build();
   }
 
+  /**
+   * Commit a transaction as the next version of its beginning root.
+   *
+   * <p>If another transaction commits the same version first, the transaction is rebased onto the
+   * latest root and the commit is retried, waiting with exponential backoff between attempts. A
+   * transaction can only be rebased if no key it changes is changed by the concurrent commits, or
+   * for the serializable isolation level, if the concurrent commits change nothing at all, because
+   * the keys read by the transaction are not tracked.
+   *
+   * @param storage lakehouse storage
+   * @param transaction running transaction
+   * @return committed transaction
+   * @throws CommitFailureException if the transaction conflicts with a concurrent commit
+   * @throws CommitAttemptExhaustedException if all commit attempts fail because of concurrent
+   *     commits
+   */
   public static CommittedTransaction commitTransaction(
       LakehouseStorage storage, RunningTransaction transaction) throws CommitFailureException {
     ValidationUtil.checkArgument(
@@ -72,31 +109,141 @@ public class TrinityLake {
         transaction.beginningRoot().path().isPresent(),
         "Cannot find persisted storage path for beginning root");
 
-    String beginningRootNodeFilePath = transaction.beginningRoot().path().get();
-    long beginningRootVersion = FileLocations.versionFromNodeFilePath(beginningRootNodeFilePath);
-    long nextRootVersion = beginningRootVersion + 1;
-    String nextVersionFilePath = FileLocations.rootNodeFilePath(nextRootVersion);
-    transaction.runningRoot().setPreviousRootNodeFilePath(beginningRootNodeFilePath);
+    TransactionOptions options = transaction.options();
+    RunningTransaction attemptedTransaction = transaction;
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return tryCommitTransaction(storage, attemptedTransaction);
+      } catch (StorageAtomicSealFailureException e) {
+        if (attempt >= options.commitAttempts()) {
+          throw new CommitAttemptExhaustedException(
+              e,
+              "Failed to commit transaction %s after %s attempts",
+              transaction.transactionId(),
+              attempt);
+        }
+
+        LOG.info(
+            "Transaction {} failed to commit at attempt {} due to a concurrent commit, retry",
+            transaction.transactionId(),
+            attempt);
+        waitBeforeRetry(options, attempt);
+        attemptedTransaction = rebaseTransaction(storage, attemptedTransaction);
+      }
+    }
+  }
 
-    TreeOperations.writeRootNodeFile(storage, nextVersionFilePath, transaction.runningRoot());
-    TreeOperations.tryWriteRootNodeVersionHintFile(storage, nextRootVersion);
-    transaction.runningRoot().setPath(nextVersionFilePath);
+  private static CommittedTransaction tryCommitTransaction(
+      LakehouseStorage storage, RunningTransaction transaction) {
+    TreeOperations.commitRootNodeFile(
+        storage, transaction.beginningRoot().path().get(), transaction.runningRoot());
     return ImmutableCommittedTransaction.builder()
         .committedRoot(transaction.runningRoot())
         .transactionId(transaction.transactionId())
         .build();
   }
 
+  private static void waitBeforeRetry(TransactionOptions options, int attempt) {
+    TreeOperations.waitBeforeCommitRetry(
+        options.commitRetryMinWaitMillis(), options.commitRetryMaxWaitMillis(), attempt);
+  }
+
+  /**
+   * Replay the changes of a transaction on the latest root, as a transaction beginning at the
+   * latest root. Changes of the transaction and the concurrent commits are found by diffing the
+   * trees, which only reads the nodes changed since the beginning root.
+   */
+  private static RunningTransaction rebaseTransaction(
+      LakehouseStorage storage, RunningTransaction transaction) throws CommitFailureException {
+    TreeRoot latest = LatestRootTracker.of(storage).verifiedLatestRoot();
+    Set<String> concurrentlyChangedKeys = Sets.newHashSet();
+    TreeOperations.diff(storage, transaction.beginningRoot(), latest)
+        .forEachRemaining(diff -> concurrentlyChangedKeys.add(diff.key()));
+    if (transaction.isolationLevel() == IsolationLevel.SERIALIZABLE
+        && !concurrentlyChangedKeys.isEmpty()) {
+      throw new CommitFailureException(
+          "Transaction %s conflicts with concurrent commits under serializable isolation",
+          transaction.transactionId());
+    }
+
+    List<KeyDiff> changes =
+        Lists.newArrayList(
+            TreeOperations.diff(storage, transaction.beginningRoot(), transaction.runningRoot()));
+    LakehouseDef lakehouseDef = TreeOperations.findLakehouseDef(storage, latest);
+    TreeRoot rebasedRoot = TreeOperations.cloneTreeRoot(latest);
+    for (KeyDiff change : changes) {
+      if (concurrentlyChangedKeys.contains(change.key())) {
+        throw new CommitFailureException(
+            "Transaction %s conflicts with concurrent commits changing key %s",
+            transaction.transactionId(), change.key());
+      }
+
+      if (change.afterValue().isPresent()) {
+        TreeOperations.setValue(
+            storage,
+            lakehouseDef,
+            rebasedRoot,
+            transaction.transactionId(),
+            change.key(),
+            change.afterValue().get());
+      } else {
+        TreeOperations.removeKey(
+            storage, lakehouseDef, rebasedRoot, transaction.transactionId(), change.key());
+      }
+    }
+
+    return ImmutableRunningTransaction.builder()
+        .from(transaction)
+        .beginningRoot(latest)
+        .runningRoot(rebasedRoot)
+        .build();
+  }
+
   public static List<String> showNamespaces(
       LakehouseStorage storage, RunningTransaction transaction) {
     LakehouseDef lakehouseDef = TreeOperations.findLakehouseDef(storage, transaction.runningRoot());
-    return transaction.runningRoot().nodeKeyTable().stream()
+    Iterator<NodeKeyTableRow> rows =
+        TreeOperations.scanPrefix(
+            storage, transaction.runningRoot(), ObjectKeys.namespaceKeyPrefix());
+    return Streams.stream(rows)
         .map(NodeKeyTableRow::key)
         .filter(key -> ObjectKeys.isNamespaceKey(key, lakehouseDef))
         .map(key -> ObjectKeys.namespaceNameFromKey(key, lakehouseDef))
         .collect(Collectors.toList());
   }
 
+  public static ListPage showNamespaces(
+      LakehouseStorage storage, RunningTransaction transaction, int pageSize) {
+    return showNamespaces(storage, transaction, pageSize, null);
+  }
+
+  /**
+   * List a page of namespaces. The first page is listed from the running root of the transaction,
+   * and following pages are listed from the same root version recorded in the continuation token,
+   * so that a listing stays consistent even if the lakehouse is changed between requests.
+   *
+   * @param storage lakehouse storage
+   * @param transaction running transaction
+   * @param pageSize max number of names in the page
+   * @param continuationToken token returned by the previous page, or null for the first page
+   * @return page of namespace names
+   */
+  public static ListPage showNamespaces(
+      LakehouseStorage storage,
+      RunningTransaction transaction,
+      int pageSize,
+      String continuationToken) {
+    LakehouseDef lakehouseDef = TreeOperations.findLakehouseDef(storage, transaction.runningRoot());
+    return listPage(
+        storage,
+        transaction,
+        ObjectKeys.namespaceKeyPrefix(),
+        key -> ObjectKeys.isNamespaceKey(key, lakehouseDef),
+        key -> ObjectKeys.namespaceNameFromKey(key, lakehouseDef),
+        pageSize,
+        continuationToken);
+  }
+
   public static boolean namespaceExists(
       LakehouseStorage storage, RunningTransaction transaction, String namespaceName) {
     LakehouseDef lakehouseDef = TreeOperations.findLakehouseDef(storage, transaction.runningRoot());
@@ -132,7 +279,13 @@ public class TrinityLake {
     String namespaceDefFilePath = FileLocations.newNamespaceDefFilePath(namespaceName);
     ObjectDefinitions.writeNamespaceDef(storage, namespaceDefFilePath, namespaceName, namespaceDef);
     TreeRoot newRoot = TreeOperations.cloneTreeRoot(transaction.runningRoot());
-    TreeOperations.setValue(storage, newRoot, namespaceKey, namespaceDefFilePath);
+    TreeOperations.setValue(
+        storage,
+        lakehouseDef,
+        newRoot,
+        transaction.transactionId(),
+        namespaceKey,
+        namespaceDefFilePath);
     return ImmutableRunningTransaction.builder().from(transaction).runningRoot(newRoot).build();
   }
 
@@ -151,7 +304,13 @@ public class TrinityLake {
     String namespaceDefFilePath = FileLocations.newNamespaceDefFilePath(namespaceName);
     ObjectDefinitions.writeNamespaceDef(storage, namespaceDefFilePath, namespaceName, namespaceDef);
     TreeRoot newRoot = TreeOperations.cloneTreeRoot(transaction.runningRoot());
-    TreeOperations.setValue(storage, newRoot, namespaceKey, namespaceDefFilePath);
+    TreeOperations.setValue(
+        storage,
+        lakehouseDef,
+        newRoot,
+        transaction.transactionId(),
+        namespaceKey,
+        namespaceDefFilePath);
     return ImmutableRunningTransaction.builder().from(transaction).runningRoot(newRoot).build();
   }
 
@@ -165,7 +324,8 @@ public class TrinityLake {
     }
 
     TreeRoot newRoot = TreeOperations.cloneTreeRoot(transaction.runningRoot());
-    TreeOperations.removeKey(storage, newRoot, namespaceKey);
+    TreeOperations.removeKey(
+        storage, lakehouseDef, newRoot, transaction.transactionId(), namespaceKey);
     return ImmutableRunningTransaction.builder().from(transaction).runningRoot(newRoot).build();
   }
 
@@ -173,13 +333,67 @@ public class TrinityLake {
       LakehouseStorage storage, RunningTransaction transaction, String namespaceName)
       throws ObjectNotFoundException {
     LakehouseDef lakehouseDef = TreeOperations.findLakehouseDef(storage, transaction.runningRoot());
-    return transaction.runningRoot().nodeKeyTable().stream()
+    String namespaceKey = ObjectKeys.namespaceKey(namespaceName, lakehouseDef);
+    if (!TreeOperations.searchValue(storage, transaction.runningRoot(), namespaceKey).isPresent()) {
+      throw new ObjectNotFoundException("Namespace %s does not exist", namespaceName);
+    }
+
+    Iterator<NodeKeyTableRow> rows =
+        TreeOperations.scanPrefix(
+            storage,
+            transaction.runningRoot(),
+            ObjectKeys.tableKeyPrefix(namespaceName, lakehouseDef));
+    return Streams.stream(rows)
         .map(NodeKeyTableRow::key)
         .filter(key -> ObjectKeys.isTableKey(key, lakehouseDef))
         .map(key -> ObjectKeys.tableNameFromKey(key, lakehouseDef))
         .collect(Collectors.toList());
   }
 
+  public static ListPage showTables(
+      LakehouseStorage storage, RunningTransaction transaction, String namespaceName, int pageSize)
+      throws ObjectNotFoundException {
+    return showTables(storage, transaction, namespaceName, pageSize, null);
+  }
+
+  /**
+   * List a page of tables in a namespace, see {@link #showNamespaces(LakehouseStorage,
+   * RunningTransaction, int, String)} for the pagination semantics.
+   *
+   * @param storage lakehouse storage
+   * @param transaction running transaction
+   * @param namespaceName namespace name
+   * @param pageSize max number of names in the page
+   * @param continuationToken token returned by the previous page, or null for the first page
+   * @return page of table names
+   * @throws ObjectNotFoundException if the namespace does not exist
+   */
+  public static ListPage showTables(
+      LakehouseStorage storage,
+      RunningTransaction transaction,
+      String namespaceName,
+      int pageSize,
+      String continuationToken)
+      throws ObjectNotFoundException {
+    LakehouseDef lakehouseDef = TreeOperations.findLakehouseDef(storage, transaction.runningRoot());
+    if (continuationToken == null) {
+      String namespaceKey = ObjectKeys.namespaceKey(namespaceName, lakehouseDef);
+      if (!TreeOperations.searchValue(storage, transaction.runningRoot(), namespaceKey)
+          .isPresent()) {
+        throw new ObjectNotFoundException("Namespace %s does not exist", namespaceName);
+      }
+    }
+
+    return listPage(
+        storage,
+        transaction,
+        ObjectKeys.tableKeyPrefix(namespaceName, lakehouseDef),
+        key -> ObjectKeys.isTableKey(key, lakehouseDef),
+        key -> ObjectKeys.tableNameFromKey(key, lakehouseDef),
+        pageSize,
+        continuationToken);
+  }
+
   public static boolean tableExists(
       LakehouseStorage storage,
       RunningTransaction transaction,
@@ -228,7 +442,8 @@ public class TrinityLake {
     String tableDefFilePath = FileLocations.newTableDefFilePath(namespaceName, tableName);
     ObjectDefinitions.writeTableDef(storage, tableDefFilePath, namespaceName, tableName, tableDef);
     TreeRoot newRoot = TreeOperations.cloneTreeRoot(transaction.runningRoot());
-    TreeOperations.setValue(storage, newRoot, tableKey, tableDefFilePath);
+    TreeOperations.setValue(
+        storage, lakehouseDef, newRoot, transaction.transactionId(), tableKey, tableDefFilePath);
     return ImmutableRunningTransaction.builder().from(transaction).runningRoot(newRoot).build();
   }
 
@@ -253,7 +468,8 @@ public class TrinityLake {
     String tableDefFilePath = FileLocations.newTableDefFilePath(namespaceName, tableName);
     ObjectDefinitions.writeTableDef(storage, tableDefFilePath, namespaceName, tableName, tableDef);
     TreeRoot newRoot = TreeOperations.cloneTreeRoot(transaction.runningRoot());
-    TreeOperations.setValue(storage, newRoot, tableKey, tableDefFilePath);
+    TreeOperations.setValue(
+        storage, lakehouseDef, newRoot, transaction.transactionId(), tableKey, tableDefFilePath);
     return ImmutableRunningTransaction.builder().from(transaction).runningRoot(newRoot).build();
   }
 
@@ -271,7 +487,71 @@ public class TrinityLake {
     }
 
     TreeRoot newRoot = TreeOperations.cloneTreeRoot(transaction.runningRoot());
-    TreeOperations.removeKey(storage, newRoot, tableKey);
+    TreeOperations.removeKey(storage, lakehouseDef, newRoot, transaction.transactionId(), tableKey);
     return ImmutableRunningTransaction.builder().from(transaction).runningRoot(newRoot).build();
   }
+
+  private static ListPage listPage(
+      LakehouseStorage storage,
+      RunningTransaction transaction,
+      String keyPrefix,
+      Predicate<String> isObjectKey,
+      Function<String, String> nameFromKey,
+      int pageSize,
+      String continuationToken) {
+    ValidationUtil.checkArgument(pageSize > 0, "Page size must be positive, but got %d", pageSize);
+    Iterator<NodeKeyTableRow> rows;
+    TreeRoot root;
+    if (continuationToken == null) {
+      root = transaction.runningRoot();
+      ValidationUtil.checkState(
+          root.path().isPresent(), "Cannot paginate over uncommitted changes in the transaction");
+      rows = TreeOperations.scanPrefix(storage, root, keyPrefix);
+    } else {
+      ListContinuationToken token = ListContinuationToken.decode(continuationToken);
+      ValidationUtil.checkArgument(
+          token.lastKey().startsWith(keyPrefix),
+          "Continuation token does not belong to this listing: %s",
+          continuationToken);
+      root = findRootForToken(storage, transaction, token);
+      rows = TreeOperations.scanPrefix(storage, root, keyPrefix, token.lastKey());
+    }
+
+    Iterator<String> keys =
+        Iterators.filter(Iterators.transform(rows, NodeKeyTableRow::key), isObjectKey::test);
+    List<String> names = Lists.newArrayList();
+    String lastKey = null;
+    while (names.size() < pageSize && keys.hasNext()) {
+      lastKey = keys.next();
+      names.add(nameFromKey.apply(lastKey));
+    }
+
+    ImmutableListPage.Builder page = ImmutableListPage.builder().names(names);
+    if (keys.hasNext()) {
+      page.continuationToken(
+          ImmutableListContinuationToken.builder()
+              .rootVersion(FileLocations.versionFromNodeFilePath(root.path().get()))
+              .lastKey(lastKey)
+              .build()
+              .encode());
+    }
+
+    return page.build();
+  }
+
+  private static TreeRoot findRootForToken(
+      LakehouseStorage storage, RunningTransaction transaction, ListContinuationToken token) {
+    TreeRoot runningRoot = transaction.runningRoot();
+    if (runningRoot.path().isPresent()
+        && FileLocations.versionFromNodeFilePath(runningRoot.path().get()) == token.rootVersion()) {
+      return runningRoot;
+    }
+
+    Optional<TreeRoot> root = TreeOperations.findRootForVersion(storage, token.rootVersion());
+    ValidationUtil.checkArgument(
+        root.isPresent(),
+        "Cannot find root version %d of the continuation token",
+        token.rootVersion());
+    return root.get();
+  }
 }
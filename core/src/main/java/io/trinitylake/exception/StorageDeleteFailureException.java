@@ -13,17 +13,38 @@
  */
 package io.trinitylake.exception;
 
+import java.util.Optional;
+
 public class StorageDeleteFailureException extends TrinityLakeRuntimeException {
 
+  private final Integer numFailedFiles;
+
   public StorageDeleteFailureException(Throwable cause) {
     super(cause);
+    this.numFailedFiles = null;
   }
 
   public StorageDeleteFailureException(Throwable cause, String message, Object... args) {
     super(cause, message, args);
+    this.numFailedFiles = null;
   }
 
   public StorageDeleteFailureException(String message, Object... args) {
     super(message, args);
+    this.numFailedFiles = null;
+  }
+
+  public StorageDeleteFailureException(int numFailedFiles, String message, Object... args) {
+    super(message, args);
+    this.numFailedFiles = numFailedFiles;
+  }
+
+  /**
+   * Number of files that are not deleted, if known
+   *
+   * @return number of files failed to delete
+   */
+  public Optional<Integer> numFailedFiles() {
+    return Optional.ofNullable(numFailedFiles);
   }
 }
@@ -0,0 +1,37 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.storage;
+
+import org.immutables.value.Value;
+
+/** Arrow memory accounting of the allocator of a lakehouse storage. */
+@Value.Immutable
+public interface ArrowMemoryMetrics {
+
+  /**
+   * Bytes currently allocated by node file reads and writes, including open off-heap nodes
+   *
+   * @return allocated bytes
+   */
+  long allocatedBytes();
+
+  /**
+   * Highest number of bytes allocated at the same time since the storage was created
+   *
+   * @return peak allocated bytes
+   */
+  long peakAllocatedBytes();
+
+  long limitBytes();
+}
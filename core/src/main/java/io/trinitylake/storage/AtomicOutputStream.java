@@ -29,6 +29,12 @@ public abstract class AtomicOutputStream extends OutputStream {
    */
   public abstract void atomicallySeal() throws StorageAtomicSealFailureException, IOException;
 
+  /**
+   * Abort the write after a failure, releasing the staged content without sealing the file. The
+   * stream must not be used after it is aborted.
+   */
+  public abstract void abort();
+
   public abstract FileChannel channel();
 
   @Override
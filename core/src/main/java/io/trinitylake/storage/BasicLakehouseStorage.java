@@ -13,14 +13,36 @@
  */
 package io.trinitylake.storage;
 
+import io.trinitylake.exception.TrinityLakeRuntimeException;
+import io.trinitylake.relocated.com.google.common.collect.Maps;
+import io.trinitylake.relocated.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+
 public class BasicLakehouseStorage implements LakehouseStorage {
 
+  private static final long EXECUTOR_TERMINATION_TIMEOUT_SECONDS = 30;
+
   private final LiteralURI root;
   private final StorageOps ops;
+  private final BufferAllocator allocator;
+  private final DecodedFileCache decodedFileCache;
+  private volatile ExecutorService executor;
+  private final ConcurrentMap<Class<?>, Object> attachments = Maps.newConcurrentMap();
 
   public BasicLakehouseStorage(LiteralURI root, StorageOps ops) {
     this.ops = ops;
     this.root = root;
+    this.allocator = new RootAllocator(ops.commonProperties().arrowAllocatorLimitBytes());
+    this.decodedFileCache =
+        new DecodedFileCache(ops.commonProperties().decodedFileCacheMaxSizeBytes());
   }
 
   @Override
@@ -32,4 +54,73 @@ public class BasicLakehouseStorage implements LakehouseStorage {
   public StorageOps ops() {
     return ops;
   }
+
+  @Override
+  public BufferAllocator allocator() {
+    return allocator;
+  }
+
+  @Override
+  public DecodedFileCache decodedFileCache() {
+    return decodedFileCache;
+  }
+
+  @Override
+  public ExecutorService executor() {
+    if (executor == null) {
+      synchronized (this) {
+        if (executor == null) {
+          this.executor =
+              Executors.newFixedThreadPool(
+                  ops.commonProperties().ioParallelism(),
+                  new ThreadFactoryBuilder()
+                      .setDaemon(true)
+                      .setNameFormat("trinitylake-storage-io-%d")
+                      .build());
+        }
+      }
+    }
+
+    return executor;
+  }
+
+  @Override
+  public <T> T attachment(Class<T> type, Function<LakehouseStorage, T> factory) {
+    return type.cast(attachments.computeIfAbsent(type, t -> factory.apply(this)));
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      // attachments might still send requests with the executor and ops until they are closed
+      for (Object attachment : attachments.values()) {
+        if (attachment instanceof Closeable) {
+          ((Closeable) attachment).close();
+        }
+      }
+      if (executor != null) {
+        // running tasks hold child allocators, which must be released before the allocator closes
+        executor.shutdownNow();
+        awaitExecutorTermination();
+      }
+      ops.close();
+    } finally {
+      // fails if any off-heap node opened against this storage is not closed
+      allocator.close();
+    }
+  }
+
+  private void awaitExecutorTermination() {
+    try {
+      if (!executor.awaitTermination(EXECUTOR_TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        throw new TrinityLakeRuntimeException(
+            "Tasks of storage %s did not terminate within %s seconds",
+            root,
+            EXECUTOR_TERMINATION_TIMEOUT_SECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TrinityLakeRuntimeException(e, "Interrupted when closing storage %s", root);
+    }
+  }
 }
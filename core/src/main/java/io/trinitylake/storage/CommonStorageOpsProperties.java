@@ -17,6 +17,7 @@ import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
 import io.trinitylake.relocated.com.google.common.collect.ImmutableSet;
 import io.trinitylake.util.FileUtil;
 import io.trinitylake.util.PropertyUtil;
+import io.trinitylake.util.ValidationUtil;
 import java.io.File;
 import java.util.Map;
 import java.util.Set;
@@ -43,6 +44,20 @@ public class CommonStorageOpsProperties implements StorageOpsProperties {
   public static final String WRITE_STAGING_DIRECTORY_PATH_DEFAULT =
       System.getProperty("java.io.tmpdir");
 
+  public static final String ARROW_ALLOCATOR_LIMIT_BYTES = "arrow.allocator.limit-bytes";
+  public static final long ARROW_ALLOCATOR_LIMIT_BYTES_DEFAULT = Long.MAX_VALUE;
+
+  public static final String DECODED_FILE_CACHE_MAX_SIZE_BYTES =
+      "decoded-file-cache.max-size-bytes";
+  public static final long DECODED_FILE_CACHE_MAX_SIZE_BYTES_DEFAULT = 64L * 1024 * 1024;
+
+  public static final String IO_PARALLELISM = "io.parallelism";
+  public static final int IO_PARALLELISM_DEFAULT = Runtime.getRuntime().availableProcessors();
+
+  public static final String LATEST_ROOT_REFRESH_INTERVAL_MILLIS =
+      "latest-root.refresh-interval-millis";
+  public static final long LATEST_ROOT_REFRESH_INTERVAL_MILLIS_DEFAULT = 1000;
+
   public static final Set<String> PROPERTIES =
       ImmutableSet.<String>builder()
           .add(DELETE_BATCH_SIZE)
@@ -50,6 +65,10 @@ public class CommonStorageOpsProperties implements StorageOpsProperties {
           .add(PREPARE_READ_CACHE_EXPIRATION_MILLIS)
           .add(PREPARE_READ_STAGING_DIRECTORY)
           .add(WRITE_STAGING_DIRECTORY)
+          .add(ARROW_ALLOCATOR_LIMIT_BYTES)
+          .add(DECODED_FILE_CACHE_MAX_SIZE_BYTES)
+          .add(IO_PARALLELISM)
+          .add(LATEST_ROOT_REFRESH_INTERVAL_MILLIS)
           .build();
 
   private static final CommonStorageOpsProperties INSTANCE = new CommonStorageOpsProperties();
@@ -62,6 +81,10 @@ public class CommonStorageOpsProperties implements StorageOpsProperties {
   private volatile File prepareReadStagingDirectory;
   private final String writeStagingDirectoryPath;
   private volatile File writeStagingDirectory;
+  private final long arrowAllocatorLimitBytes;
+  private final long decodedFileCacheMaxSizeBytes;
+  private final int ioParallelism;
+  private final long latestRootRefreshIntervalMillis;
 
   public CommonStorageOpsProperties() {
     this(ImmutableMap.of());
@@ -88,6 +111,25 @@ public class CommonStorageOpsProperties implements StorageOpsProperties {
     this.writeStagingDirectoryPath =
         PropertyUtil.propertyAsString(
             input, WRITE_STAGING_DIRECTORY, WRITE_STAGING_DIRECTORY_PATH_DEFAULT);
+    this.arrowAllocatorLimitBytes =
+        PropertyUtil.propertyAsLong(
+            input, ARROW_ALLOCATOR_LIMIT_BYTES, ARROW_ALLOCATOR_LIMIT_BYTES_DEFAULT);
+    this.decodedFileCacheMaxSizeBytes =
+        PropertyUtil.propertyAsLong(
+            input, DECODED_FILE_CACHE_MAX_SIZE_BYTES, DECODED_FILE_CACHE_MAX_SIZE_BYTES_DEFAULT);
+    this.ioParallelism = PropertyUtil.propertyAsInt(input, IO_PARALLELISM, IO_PARALLELISM_DEFAULT);
+    ValidationUtil.checkArgument(
+        ioParallelism > 0, "%s must be positive, but got %s", IO_PARALLELISM, ioParallelism);
+    this.latestRootRefreshIntervalMillis =
+        PropertyUtil.propertyAsLong(
+            input,
+            LATEST_ROOT_REFRESH_INTERVAL_MILLIS,
+            LATEST_ROOT_REFRESH_INTERVAL_MILLIS_DEFAULT);
+    ValidationUtil.checkArgument(
+        latestRootRefreshIntervalMillis >= 0,
+        "%s must not be negative, but got %s",
+        LATEST_ROOT_REFRESH_INTERVAL_MILLIS,
+        latestRootRefreshIntervalMillis);
   }
 
   @Override
@@ -132,4 +174,38 @@ public class CommonStorageOpsProperties implements StorageOpsProperties {
     }
     return writeStagingDirectory;
   }
+
+  public long arrowAllocatorLimitBytes() {
+    return arrowAllocatorLimitBytes;
+  }
+
+  /**
+   * Max total estimated size of the files decoded and cached by a lakehouse storage, 0 disables
+   * the cache
+   *
+   * @return max size in bytes
+   */
+  public long decodedFileCacheMaxSizeBytes() {
+    return decodedFileCacheMaxSizeBytes;
+  }
+
+  /**
+   * Max number of requests sent in parallel by a lakehouse storage, for example when writing the
+   * changed node files of a commit
+   *
+   * @return parallelism
+   */
+  public int ioParallelism() {
+    return ioParallelism;
+  }
+
+  /**
+   * Interval between background refreshes of the latest root tracked for a lakehouse storage, 0
+   * disables the background refresh
+   *
+   * @return interval in milliseconds
+   */
+  public long latestRootRefreshIntervalMillis() {
+    return latestRootRefreshIntervalMillis;
+  }
 }
@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.trinitylake.util.Pair;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * A bounded cache of files decoded into objects, keyed by file path.
+ *
+ * <p>Files in a lakehouse storage are immutable once written, so a cached entry never goes stale
+ * and is only evicted when the total weight of the cache exceeds the limit. Cached objects are
+ * shared by all readers of the storage and must not be changed.
+ */
+public class DecodedFileCache {
+
+  private final Cache<String, Pair<Object, Integer>> cache;
+
+  public DecodedFileCache(long maxSizeBytes) {
+    this.cache =
+        maxSizeBytes > 0
+            ? Caffeine.newBuilder()
+                .maximumWeight(maxSizeBytes)
+                .<String, Pair<Object, Integer>>weigher((path, entry) -> entry.second())
+                .build()
+            : null;
+  }
+
+  public boolean enabled() {
+    return cache != null;
+  }
+
+  /**
+   * Get the decoded object of a file, decoding and caching it if it is not cached.
+   *
+   * @param path file path
+   * @param decoder decoder of the file at the path
+   * @param weigher estimated size in bytes of the decoded object
+   * @return decoded object
+   * @param <T> type of the decoded object
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(String path, Function<String, T> decoder, ToLongFunction<T> weigher) {
+    if (cache == null) {
+      return decoder.apply(path);
+    }
+
+    Pair<Object, Integer> entry =
+        cache.get(
+            path,
+            key -> {
+              T decoded = decoder.apply(key);
+              long weight = Math.min(weigher.applyAsLong(decoded), Integer.MAX_VALUE);
+              return Pair.of(decoded, (int) weight);
+            });
+    return (T) entry.first();
+  }
+}
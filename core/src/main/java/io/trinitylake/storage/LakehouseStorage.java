@@ -18,7 +18,10 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import org.apache.arrow.memory.BufferAllocator;
 
 /**
  * A Lakehouse storage starts with a root URI location. Most access to the lakehouse storage should
@@ -30,6 +33,49 @@ public interface LakehouseStorage extends Closeable {
 
   StorageOps ops();
 
+  /**
+   * Root Arrow allocator shared by all node file reads and writes against this storage. Each
+   * operation allocates from its own child allocator, which is closed when the operation completes.
+   *
+   * @return root allocator
+   */
+  BufferAllocator allocator();
+
+  /**
+   * Cache of decoded files shared by all readers of this storage.
+   *
+   * @return decoded file cache
+   */
+  DecodedFileCache decodedFileCache();
+
+  /**
+   * Executor shared by the requests this storage sends in parallel, with at most {@link
+   * CommonStorageOpsProperties#ioParallelism()} threads.
+   *
+   * @return executor service
+   */
+  ExecutorService executor();
+
+  /**
+   * Get the attachment of the given type, which is created by the factory on first access and then
+   * shared by all users of this storage. An attachment lives as long as the storage, and is closed
+   * together with the storage if it is {@link Closeable}.
+   *
+   * @param type attachment type
+   * @param factory factory to create the attachment against this storage
+   * @param <T> attachment type
+   * @return attachment
+   */
+  <T> T attachment(Class<T> type, Function<LakehouseStorage, T> factory);
+
+  default ArrowMemoryMetrics arrowMemoryMetrics() {
+    return ImmutableArrowMemoryMetrics.builder()
+        .allocatedBytes(allocator().getAllocatedMemory())
+        .peakAllocatedBytes(allocator().getPeakMemoryAllocation())
+        .limitBytes(allocator().getLimit())
+        .build();
+  }
+
   default void prepareToReadLocal(String path) {
     ops().prepareToReadLocal(root().extendPath(path));
   }
@@ -62,6 +108,10 @@ public interface LakehouseStorage extends Closeable {
     return ops().list(root().extendPath(prefixPath));
   }
 
+  default List<StorageFileInfo> listFiles(String prefixPath) {
+    return ops().listFiles(root().extendPath(prefixPath));
+  }
+
   @Override
   default void close() throws IOException {
     ops().close();
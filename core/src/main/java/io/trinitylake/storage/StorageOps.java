@@ -22,7 +22,7 @@ import java.util.List;
 /** Common operations that should be supported by a TrinityLake storage */
 public interface StorageOps extends Closeable, Initializable {
 
-  StorageOpsProperties commonProperties();
+  CommonStorageOpsProperties commonProperties();
 
   StorageOpsProperties systemSpecificProperties();
 
@@ -41,4 +41,13 @@ public interface StorageOps extends Closeable, Initializable {
   void delete(List<LiteralURI> uris);
 
   List<LiteralURI> list(LiteralURI prefix);
+
+  /**
+   * List all files under the prefix together with their information, including files in nested
+   * directories. Listing a prefix that has no file returns an empty list.
+   *
+   * @param prefix prefix to list
+   * @return information of the listed files
+   */
+  List<StorageFileInfo> listFiles(LiteralURI prefix);
 }
@@ -59,6 +59,7 @@ public class LocalAtomicOutputStream extends AtomicOutputStream {
       // but there is not a better way at this moment
       // plus with the file path optimization strategy,
       // it is okay to create these folders since they would be used eventually
+      stream.close();
       Files.createDirectories(file.getParent());
       Files.move(tempFile.toPath(), file);
     } catch (FileAlreadyExistsException e) {
@@ -66,6 +67,19 @@ public class LocalAtomicOutputStream extends AtomicOutputStream {
     }
   }
 
+  @Override
+  public void abort() {
+    try {
+      stream.close();
+    } catch (IOException e) {
+      LOG.warn("Failed to close staging file: {}", tempFile, e);
+    }
+
+    if (tempFile.exists() && !tempFile.delete()) {
+      LOG.warn("Failed to delete staging file: {}", tempFile);
+    }
+  }
+
   @Override
   public void write(byte[] bytes) throws IOException {
     stream.write(bytes);
@@ -13,22 +13,30 @@
  */
 package io.trinitylake.storage.local;
 
+import io.trinitylake.exception.StorageDeleteFailureException;
+import io.trinitylake.exception.StorageListingFailureException;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableList;
 import io.trinitylake.storage.AtomicOutputStream;
 import io.trinitylake.storage.CommonStorageOpsProperties;
+import io.trinitylake.storage.ImmutableStorageFileInfo;
 import io.trinitylake.storage.LiteralURI;
 import io.trinitylake.storage.SeekableInputStream;
+import io.trinitylake.storage.StorageFileInfo;
 import io.trinitylake.storage.StorageOps;
 import io.trinitylake.storage.StorageOpsProperties;
 import io.trinitylake.util.ValidationUtil;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class LocalStorageOps implements StorageOps {
 
@@ -46,7 +54,7 @@ public class LocalStorageOps implements StorageOps {
   }
 
   @Override
-  public StorageOpsProperties commonProperties() {
+  public CommonStorageOpsProperties commonProperties() {
     return commonProperties;
   }
 
@@ -87,9 +95,17 @@ public class LocalStorageOps implements StorageOps {
 
   @Override
   public void delete(List<LiteralURI> uris) {
+    int numFailedFiles = 0;
     for (LiteralURI uri : uris) {
       File file = new File(fileSystemPath(uri));
-      file.delete();
+      if (!file.delete() && file.exists()) {
+        numFailedFiles++;
+      }
+    }
+
+    if (numFailedFiles > 0) {
+      throw new StorageDeleteFailureException(
+          numFailedFiles, "Failed to delete all files, remaining: %d", numFailedFiles);
     }
   }
 
@@ -104,6 +120,28 @@ public class LocalStorageOps implements StorageOps {
         .collect(Collectors.toList());
   }
 
+  @Override
+  public List<StorageFileInfo> listFiles(LiteralURI prefix) {
+    Path startingPath = Paths.get(fileSystemPath(prefix));
+    if (!Files.isDirectory(startingPath)) {
+      return ImmutableList.of();
+    }
+
+    try (Stream<Path> paths = Files.walk(startingPath)) {
+      return paths
+          .filter(Files::isRegularFile)
+          .map(
+              path ->
+                  ImmutableStorageFileInfo.builder()
+                      .uri(new LiteralURI("file://" + path))
+                      .lastModifiedMillis(path.toFile().lastModified())
+                      .build())
+          .collect(Collectors.toList());
+    } catch (IOException | UncheckedIOException e) {
+      throw new StorageListingFailureException(e, "Failed to list files under %s", prefix);
+    }
+  }
+
   @Override
   public void close() throws IOException {}
 
@@ -26,8 +26,10 @@ import io.trinitylake.relocated.com.google.common.util.concurrent.MoreExecutors;
 import io.trinitylake.relocated.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.trinitylake.storage.AtomicOutputStream;
 import io.trinitylake.storage.CommonStorageOpsProperties;
+import io.trinitylake.storage.ImmutableStorageFileInfo;
 import io.trinitylake.storage.LiteralURI;
 import io.trinitylake.storage.SeekableInputStream;
+import io.trinitylake.storage.StorageFileInfo;
 import io.trinitylake.storage.StorageOps;
 import io.trinitylake.storage.local.LocalInputStream;
 import io.trinitylake.util.FileUtil;
@@ -258,7 +260,7 @@ public class AmazonS3StorageOps implements StorageOps {
 
     if (totalFailedDeletions > 0) {
       throw new StorageDeleteFailureException(
-          "Failed to delete all files, remaining: %d", totalFailedDeletions);
+          totalFailedDeletions, "Failed to delete all files, remaining: %d", totalFailedDeletions);
     }
   }
 
@@ -304,6 +306,25 @@ public class AmazonS3StorageOps implements StorageOps {
     return result;
   }
 
+  @Override
+  public List<StorageFileInfo> listFiles(LiteralURI prefix) {
+    ListObjectsV2Request request =
+        ListObjectsV2Request.builder().bucket(prefix.authority()).prefix(prefix.path()).build();
+
+    List<StorageFileInfo> result = Lists.newArrayList();
+    s3.listObjectsV2Paginator(request)
+        .flatMapIterable(ListObjectsV2Response::contents)
+        .map(
+            obj ->
+                ImmutableStorageFileInfo.builder()
+                    .uri(new LiteralURI(prefix.scheme(), prefix.authority(), obj.key()))
+                    .lastModifiedMillis(obj.lastModified().toEpochMilli())
+                    .build())
+        .subscribe(result::add)
+        .join();
+    return result;
+  }
+
   private ExecutorService executorService() {
     if (executorService == null) {
       synchronized (AmazonS3StorageOps.class) {
@@ -144,6 +144,22 @@ class S3AtomicOutputStream extends AtomicOutputStream {
     }
   }
 
+  @Override
+  public void abort() {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+    try {
+      stagingFileStream.close();
+    } catch (IOException e) {
+      LOG.warn("Failed to close staging file: {}", stagingFile, e);
+    } finally {
+      cleanUpStagingFile();
+    }
+  }
+
   private void cleanUpStagingFile() {
     try {
       Failsafe.with(retryPolicy).run(stagingFile::delete);
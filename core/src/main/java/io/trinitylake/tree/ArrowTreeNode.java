@@ -0,0 +1,445 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.ObjectKeys;
+import io.trinitylake.exception.StorageReadFailureException;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableList;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.util.ValidationUtil;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+
+/**
+ * A tree node that keeps the loaded Arrow vectors of a node file off-heap and decodes rows on
+ * demand.
+ *
+ * <p>A search key is compared as UTF-8 bytes directly against the offset and data buffers of the
+ * key vector, so searching the sorted node key table does not allocate, and a {@link String} is
+ * only materialized for the rows that are actually returned. The comparison follows the UTF-16 code
+ * unit order of {@link String#compareTo} used to sort the node key table, which only differs from
+ * unsigned UTF-8 byte order between characters U+E000 to U+FFFF and supplementary characters.
+ *
+ * <p>The first change to the node key table or write buffer decodes the node into a {@link
+ * BasicTreeNode} and releases the Arrow buffers. The node must be closed to release the Arrow
+ * buffers of a node that is not changed.
+ */
+public class ArrowTreeNode implements TreeNode, AutoCloseable {
+
+  private final BufferAllocator allocator;
+  private final ArrowFileReader reader;
+  private final VarCharVector keyVector;
+  private final VarCharVector valueVector;
+  private final VarCharVector nodePointerVector;
+  private final VarCharVector transactionVector;
+  private final int leftmostRow;
+  private final int firstMessageRow;
+  private final int rowCount;
+  private final Map<String, String> systemRows;
+  private List<WriteBufferMessage> writeBuffer;
+  private BasicTreeNode decodedNode;
+  private String path;
+  private Long createdAtMillis;
+  private boolean closed;
+
+  ArrowTreeNode(
+      BufferAllocator allocator,
+      ArrowFileReader reader,
+      VarCharVector keyVector,
+      VarCharVector valueVector,
+      VarCharVector nodePointerVector,
+      VarCharVector transactionVector,
+      int rowCount) {
+    this.allocator = allocator;
+    this.reader = reader;
+    this.keyVector = keyVector;
+    this.valueVector = valueVector;
+    this.nodePointerVector = nodePointerVector;
+    this.transactionVector = transactionVector;
+    this.rowCount = rowCount;
+
+    ImmutableMap.Builder<String, String> systemRowsBuilder = ImmutableMap.builder();
+    int row = 0;
+    while (row < rowCount && !keyVector.isNull(row)) {
+      systemRowsBuilder.put(readString(keyVector, row), readString(valueVector, row));
+      row++;
+    }
+    this.systemRows = systemRowsBuilder.build();
+    this.leftmostRow = row;
+
+    int messageRow = rowCount;
+    while (messageRow > leftmostRow + 1 && !transactionVector.isNull(messageRow - 1)) {
+      messageRow--;
+    }
+    this.firstMessageRow = messageRow;
+
+    ValidationUtil.checkState(
+        leftmostRow < rowCount,
+        "Cannot find the leftmost node pointer row, the node file might be corrupted");
+    ValidationUtil.checkState(
+        Integer.toString(firstMessageRow - leftmostRow - 1)
+            .equals(systemRows.get(ObjectKeys.NUMBER_OF_KEYS)),
+        "Recorded number of keys do not match the actual node key table size, the node file might be corrupted");
+    if (systemRows.containsKey(ObjectKeys.CREATED_AT_MILLIS)) {
+      this.createdAtMillis = Long.parseLong(systemRows.get(ObjectKeys.CREATED_AT_MILLIS));
+    }
+  }
+
+  /**
+   * Value of a system internal row of the node file, which is decoded when the node is loaded
+   *
+   * @param key system internal key
+   * @return value of the row
+   */
+  protected Optional<String> systemRow(String key) {
+    return Optional.ofNullable(systemRows.get(key));
+  }
+
+  @Override
+  public Optional<String> path() {
+    return Optional.ofNullable(path);
+  }
+
+  @Override
+  public void setPath(String path) {
+    this.path = path;
+  }
+
+  @Override
+  public void clearPath() {
+    this.path = null;
+  }
+
+  @Override
+  public Optional<Long> createdAtMillis() {
+    return Optional.ofNullable(createdAtMillis);
+  }
+
+  @Override
+  public void setCreatedAtMillis(long createdAtMillis) {
+    this.createdAtMillis = createdAtMillis;
+  }
+
+  @Override
+  public void clearCreatedAtMillis() {
+    this.createdAtMillis = null;
+  }
+
+  @Override
+  public int numKeys() {
+    if (decodedNode != null) {
+      return decodedNode.numKeys();
+    }
+
+    return firstMessageRow - leftmostRow - 1;
+  }
+
+  @Override
+  public String keyAt(int index) {
+    if (decodedNode != null) {
+      return decodedNode.keyAt(index);
+    }
+
+    return readString(keyVector, keyRow(index));
+  }
+
+  @Override
+  public String valueAt(int index) {
+    if (decodedNode != null) {
+      return decodedNode.valueAt(index);
+    }
+
+    return readString(valueVector, keyRow(index));
+  }
+
+  @Override
+  public Optional<String> nodePointerAt(int index) {
+    if (decodedNode != null) {
+      return decodedNode.nodePointerAt(index);
+    }
+
+    return Optional.ofNullable(readString(nodePointerVector, keyRow(index)));
+  }
+
+  @Override
+  public NodeSearchResult search(String key) {
+    if (decodedNode != null) {
+      return decodedNode.search(key);
+    }
+
+    int row = findRow(key);
+    if (row >= 0) {
+      return ImmutableNodeSearchResult.builder().value(readString(valueVector, row)).build();
+    }
+
+    // the row before the insertion point is the last row with a lower key, or the leftmost row
+    // that holds the node pointer of the keys lower than all keys in the node key table
+    return ImmutableNodeSearchResult.builder()
+        .nodePointer(Optional.ofNullable(readString(nodePointerVector, -row - 2)))
+        .build();
+  }
+
+  @Override
+  public void set(String key, String value) {
+    decodedNode().set(key, value);
+  }
+
+  @Override
+  public void remove(String key) {
+    decodedNode().remove(key);
+  }
+
+  @Override
+  public void clearNodeKeyTable() {
+    decodedNode().clearNodeKeyTable();
+  }
+
+  @Override
+  public Optional<String> leftmostNodePointer() {
+    if (decodedNode != null) {
+      return decodedNode.leftmostNodePointer();
+    }
+
+    checkOpen();
+    return Optional.ofNullable(readString(nodePointerVector, leftmostRow));
+  }
+
+  @Override
+  public void setLeftmostNodePointer(String nodePointer) {
+    decodedNode().setLeftmostNodePointer(nodePointer);
+  }
+
+  @Override
+  public void clearLeftmostNodePointer() {
+    decodedNode().clearLeftmostNodePointer();
+  }
+
+  @Override
+  public Optional<String> nodePointer(String key) {
+    if (decodedNode != null) {
+      return decodedNode.nodePointer(key);
+    }
+
+    int row = findRow(key);
+    return row >= 0 ? Optional.ofNullable(readString(nodePointerVector, row)) : Optional.empty();
+  }
+
+  @Override
+  public void setNodePointer(String key, String nodePointer) {
+    decodedNode().setNodePointer(key, nodePointer);
+  }
+
+  @Override
+  public void clearNodePointer(String key) {
+    decodedNode().clearNodePointer(key);
+  }
+
+  @Override
+  public Optional<String> lowerKey(String key) {
+    if (decodedNode != null) {
+      return decodedNode.lowerKey(key);
+    }
+
+    int row = findRow(key);
+    int lowerRow = row >= 0 ? row - 1 : -row - 2;
+    return lowerRow > leftmostRow ? Optional.of(readString(keyVector, lowerRow)) : Optional.empty();
+  }
+
+  @Override
+  public List<NodeKeyTableRow> nodeKeyTable() {
+    if (decodedNode != null) {
+      return decodedNode.nodeKeyTable();
+    }
+
+    checkOpen();
+    ImmutableList.Builder<NodeKeyTableRow> rows = ImmutableList.builderWithExpectedSize(numKeys());
+    for (int row = leftmostRow + 1; row < firstMessageRow; row++) {
+      rows.add(
+          ImmutableNodeKeyTableRow.builder()
+              .key(readString(keyVector, row))
+              .value(readString(valueVector, row))
+              .nodePointer(Optional.ofNullable(readString(nodePointerVector, row)))
+              .build());
+    }
+    return rows.build();
+  }
+
+  @Override
+  public List<WriteBufferMessage> writeBuffer() {
+    if (decodedNode != null) {
+      return decodedNode.writeBuffer();
+    }
+
+    if (writeBuffer == null) {
+      checkOpen();
+      ImmutableList.Builder<WriteBufferMessage> messages = ImmutableList.builder();
+      for (int row = firstMessageRow; row < rowCount; row++) {
+        messages.add(
+            ImmutableWriteBufferMessage.builder()
+                .key(readString(keyVector, row))
+                .value(Optional.ofNullable(readString(valueVector, row)))
+                .transactionId(readString(transactionVector, row))
+                .build());
+      }
+      this.writeBuffer = messages.build();
+    }
+
+    return writeBuffer;
+  }
+
+  @Override
+  public int numMessages() {
+    if (decodedNode != null) {
+      return decodedNode.numMessages();
+    }
+
+    return rowCount - firstMessageRow;
+  }
+
+  @Override
+  public WriteBufferMessage messageAt(int index) {
+    if (decodedNode != null) {
+      return decodedNode.messageAt(index);
+    }
+
+    return writeBuffer().get(index);
+  }
+
+  @Override
+  public void appendMessage(WriteBufferMessage message) {
+    decodedNode().appendMessage(message);
+  }
+
+  @Override
+  public void clearWriteBuffer() {
+    decodedNode().clearWriteBuffer();
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+
+    this.closed = true;
+    try {
+      reader.close();
+    } catch (IOException e) {
+      throw new StorageReadFailureException(e);
+    } finally {
+      allocator.close();
+    }
+  }
+
+  private BasicTreeNode decodedNode() {
+    if (decodedNode == null) {
+      BasicTreeNode node = new BasicTreeNode();
+      for (NodeKeyTableRow row : nodeKeyTable()) {
+        node.set(row.key(), row.value());
+        row.nodePointer().ifPresent(nodePointer -> node.setNodePointer(row.key(), nodePointer));
+      }
+      leftmostNodePointer().ifPresent(node::setLeftmostNodePointer);
+      writeBuffer().forEach(node::appendMessage);
+      this.decodedNode = node;
+      close();
+    }
+
+    return decodedNode;
+  }
+
+  private int keyRow(int index) {
+    checkOpen();
+    ValidationUtil.checkArgument(
+        index >= 0 && index < numKeys(),
+        "Index %s is out of bound of node key table with %s keys",
+        index,
+        numKeys());
+    return leftmostRow + 1 + index;
+  }
+
+  /**
+   * Binary search the node key table rows for the given key.
+   *
+   * @param key key to search
+   * @return row of the key if found, otherwise (-(insertion row) - 1)
+   */
+  private int findRow(String key) {
+    checkOpen();
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    int low = leftmostRow + 1;
+    int high = firstMessageRow - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int compare = compareKey(mid, keyBytes);
+      if (compare < 0) {
+        low = mid + 1;
+      } else if (compare > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+
+    return -low - 1;
+  }
+
+  private int compareKey(int row, byte[] key) {
+    ArrowBuf data = keyVector.getDataBuffer();
+    long start = keyVector.getStartOffset(row);
+    int length = keyVector.getValueLength(row);
+    int commonLength = Math.min(length, key.length);
+    for (int i = 0; i < commonLength; i++) {
+      int rowByte = Byte.toUnsignedInt(data.getByte(start + i));
+      int keyByte = Byte.toUnsignedInt(key[i]);
+      if (rowByte != keyByte) {
+        return compareUtf16(rowByte, keyByte);
+      }
+    }
+
+    return length - key.length;
+  }
+
+  /**
+   * Compare the first different bytes of two UTF-8 strings in UTF-16 code unit order. The bytes
+   * before are equal, so both bytes are either continuation bytes of the same kind of character,
+   * or lead bytes. A supplementary character, with a lead byte from 0xF0, is a surrogate pair from
+   * U+D800 in UTF-16, so it sorts before a character from U+E000, with a lead byte 0xEE or 0xEF.
+   */
+  private static int compareUtf16(int rowByte, int keyByte) {
+    if (rowByte >= 0xEE && keyByte >= 0xEE && (rowByte >= 0xF0) != (keyByte >= 0xF0)) {
+      return rowByte >= 0xF0 ? -1 : 1;
+    }
+
+    return rowByte - keyByte;
+  }
+
+  private void checkOpen() {
+    ValidationUtil.checkState(!closed, "Cannot read rows of a closed node");
+  }
+
+  private static String readString(VarCharVector vector, int row) {
+    if (vector.isNull(row)) {
+      return null;
+    }
+
+    return new String(vector.get(row), StandardCharsets.UTF_8);
+  }
+}
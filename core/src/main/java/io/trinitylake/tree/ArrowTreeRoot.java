@@ -0,0 +1,111 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.ObjectKeys;
+import io.trinitylake.relocated.com.google.common.collect.Maps;
+import io.trinitylake.util.ValidationUtil;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+
+/** A tree root that keeps the loaded Arrow vectors of a root node file off-heap. */
+public class ArrowTreeRoot extends ArrowTreeNode implements TreeRoot {
+
+  private String previousRootNodeFilePath;
+  private String rollbackFromRootNodeFilePath;
+  private String lakehouseDefFilePath;
+  private final Map<String, TreeNode> dirtyNodes = Maps.newLinkedHashMap();
+
+  ArrowTreeRoot(
+      BufferAllocator allocator,
+      ArrowFileReader reader,
+      VarCharVector keyVector,
+      VarCharVector valueVector,
+      VarCharVector nodePointerVector,
+      VarCharVector transactionVector,
+      int rowCount) {
+    super(
+        allocator, reader, keyVector, valueVector, nodePointerVector, transactionVector, rowCount);
+    this.previousRootNodeFilePath = systemRow(ObjectKeys.PREVIOUS_ROOT_NODE).orElse(null);
+    this.rollbackFromRootNodeFilePath = systemRow(ObjectKeys.ROLLBACK_FROM_ROOT_NODE).orElse(null);
+    this.lakehouseDefFilePath = systemRow(ObjectKeys.LAKEHOUSE_DEFINITION).orElse(null);
+  }
+
+  @Override
+  public Optional<String> previousRootNodeFilePath() {
+    return Optional.ofNullable(previousRootNodeFilePath);
+  }
+
+  @Override
+  public void setPreviousRootNodeFilePath(String previousRootNodeFilePath) {
+    this.previousRootNodeFilePath = previousRootNodeFilePath;
+  }
+
+  @Override
+  public void clearPreviousRootNodeFilePath() {
+    this.previousRootNodeFilePath = null;
+  }
+
+  @Override
+  public Optional<String> rollbackFromRootNodeFilePath() {
+    return Optional.ofNullable(rollbackFromRootNodeFilePath);
+  }
+
+  @Override
+  public void setRollbackFromRootNodeFilePath(String rollbackFromRootNodeFilePath) {
+    this.rollbackFromRootNodeFilePath = rollbackFromRootNodeFilePath;
+  }
+
+  @Override
+  public void clearRollbackFromRootNodeFilePath() {
+    this.rollbackFromRootNodeFilePath = null;
+  }
+
+  @Override
+  public String lakehouseDefFilePath() {
+    ValidationUtil.checkState(
+        lakehouseDefFilePath != null,
+        "Lakehouse definition file path should be set for a tree root");
+    return lakehouseDefFilePath;
+  }
+
+  @Override
+  public void setLakehouseDefFilePath(String lakehouseDefFilePath) {
+    this.lakehouseDefFilePath = lakehouseDefFilePath;
+  }
+
+  @Override
+  public Map<String, TreeNode> dirtyNodes() {
+    return Collections.unmodifiableMap(dirtyNodes);
+  }
+
+  @Override
+  public void putDirtyNode(String path, TreeNode node) {
+    dirtyNodes.put(path, node);
+  }
+
+  @Override
+  public void removeDirtyNode(String path) {
+    dirtyNodes.remove(path);
+  }
+
+  @Override
+  public void clearDirtyNodes() {
+    dirtyNodes.clear();
+  }
+}
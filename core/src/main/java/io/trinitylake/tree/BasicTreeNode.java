@@ -13,20 +13,57 @@
  */
 package io.trinitylake.tree;
 
-import io.trinitylake.relocated.com.google.common.collect.Maps;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableList;
+import io.trinitylake.relocated.com.google.common.collect.Lists;
+import io.trinitylake.util.ValidationUtil;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
+/**
+ * A tree node that keeps the node key table in sorted arrays, so that a key can be searched with
+ * binary search and rows can be iterated in key order by index without allocating row objects.
+ *
+ * <p>A copy of a node shares the arrays and the write buffer with the source node, which makes
+ * copying O(1). Both nodes copy the shared state before their first change after copying.
+ */
 public class BasicTreeNode implements TreeNode {
 
-  private final Map<String, String> values;
+  private static final int INITIAL_CAPACITY = 8;
+
+  private String[] keys;
+  private String[] values;
+  private String[] nodePointers;
+  private int numKeys;
+  private List<WriteBufferMessage> writeBuffer;
+  private boolean shared;
+  private String leftmostNodePointer;
   private String path;
   private Long createdAtMillis;
 
   public BasicTreeNode() {
-    this.values = Maps.newHashMap();
+    this.keys = new String[INITIAL_CAPACITY];
+    this.values = new String[INITIAL_CAPACITY];
+    this.nodePointers = new String[INITIAL_CAPACITY];
+    this.numKeys = 0;
+    this.writeBuffer = Lists.newArrayList();
+  }
+
+  /**
+   * Create a node sharing the node key table, leftmost node pointer and write buffer of the source
+   * node, excluding persistence specific information like path and creation time.
+   *
+   * @param source source node
+   */
+  BasicTreeNode(BasicTreeNode source) {
+    source.shared = true;
+    this.keys = source.keys;
+    this.values = source.values;
+    this.nodePointers = source.nodePointers;
+    this.numKeys = source.numKeys;
+    this.writeBuffer = source.writeBuffer;
+    this.leftmostNodePointer = source.leftmostNodePointer;
+    this.shared = true;
   }
 
   @Override
@@ -61,28 +98,215 @@ public class BasicTreeNode implements TreeNode {
 
   @Override
   public int numKeys() {
-    return values.size();
+    return numKeys;
+  }
+
+  @Override
+  public String keyAt(int index) {
+    checkIndex(index);
+    return keys[index];
+  }
+
+  @Override
+  public String valueAt(int index) {
+    checkIndex(index);
+    return values[index];
+  }
+
+  @Override
+  public Optional<String> nodePointerAt(int index) {
+    checkIndex(index);
+    return Optional.ofNullable(nodePointers[index]);
   }
 
   @Override
   public NodeSearchResult search(String key) {
-    return ImmutableNodeSearchResult.builder().value(Optional.ofNullable(values.get(key))).build();
+    int index = indexOf(key);
+    if (index >= 0) {
+      return ImmutableNodeSearchResult.builder().value(values[index]).build();
+    }
+
+    int lowerIndex = -index - 2;
+    String nodePointer = lowerIndex < 0 ? leftmostNodePointer : nodePointers[lowerIndex];
+    return ImmutableNodeSearchResult.builder()
+        .nodePointer(Optional.ofNullable(nodePointer))
+        .build();
   }
 
   @Override
   public void set(String key, String value) {
-    values.put(key, value);
+    copySharedState();
+    int index = indexOf(key);
+    if (index >= 0) {
+      values[index] = value;
+      return;
+    }
+
+    int insertIndex = -index - 1;
+    ensureCapacity(numKeys + 1);
+    int numMoved = numKeys - insertIndex;
+    if (numMoved > 0) {
+      System.arraycopy(keys, insertIndex, keys, insertIndex + 1, numMoved);
+      System.arraycopy(values, insertIndex, values, insertIndex + 1, numMoved);
+      System.arraycopy(nodePointers, insertIndex, nodePointers, insertIndex + 1, numMoved);
+    }
+
+    keys[insertIndex] = key;
+    values[insertIndex] = value;
+    nodePointers[insertIndex] = null;
+    numKeys++;
   }
 
   @Override
   public void remove(String key) {
-    values.remove(key);
+    copySharedState();
+    int index = indexOf(key);
+    if (index < 0) {
+      return;
+    }
+
+    int numMoved = numKeys - index - 1;
+    if (numMoved > 0) {
+      System.arraycopy(keys, index + 1, keys, index, numMoved);
+      System.arraycopy(values, index + 1, values, index, numMoved);
+      System.arraycopy(nodePointers, index + 1, nodePointers, index, numMoved);
+    }
+
+    numKeys--;
+    keys[numKeys] = null;
+    values[numKeys] = null;
+    nodePointers[numKeys] = null;
+  }
+
+  @Override
+  public void clearNodeKeyTable() {
+    copySharedState();
+    Arrays.fill(keys, 0, numKeys, null);
+    Arrays.fill(values, 0, numKeys, null);
+    Arrays.fill(nodePointers, 0, numKeys, null);
+    this.numKeys = 0;
+  }
+
+  @Override
+  public Optional<String> leftmostNodePointer() {
+    return Optional.ofNullable(leftmostNodePointer);
+  }
+
+  @Override
+  public void setLeftmostNodePointer(String leftmostNodePointer) {
+    this.leftmostNodePointer = leftmostNodePointer;
+  }
+
+  @Override
+  public void clearLeftmostNodePointer() {
+    this.leftmostNodePointer = null;
+  }
+
+  @Override
+  public Optional<String> nodePointer(String key) {
+    int index = indexOf(key);
+    return index >= 0 ? Optional.ofNullable(nodePointers[index]) : Optional.empty();
+  }
+
+  @Override
+  public void setNodePointer(String key, String nodePointer) {
+    copySharedState();
+    int index = indexOf(key);
+    ValidationUtil.checkArgument(
+        index >= 0, "Cannot set node pointer for key %s that is not in the node key table", key);
+    nodePointers[index] = nodePointer;
+  }
+
+  @Override
+  public void clearNodePointer(String key) {
+    copySharedState();
+    int index = indexOf(key);
+    if (index >= 0) {
+      nodePointers[index] = null;
+    }
+  }
+
+  @Override
+  public Optional<String> lowerKey(String key) {
+    int index = indexOf(key);
+    int lowerIndex = index >= 0 ? index - 1 : -index - 2;
+    return lowerIndex >= 0 ? Optional.of(keys[lowerIndex]) : Optional.empty();
   }
 
   @Override
   public List<NodeKeyTableRow> nodeKeyTable() {
-    return values.entrySet().stream()
-        .map(e -> ImmutableNodeKeyTableRow.builder().key(e.getKey()).value(e.getValue()).build())
-        .collect(Collectors.toList());
+    ImmutableList.Builder<NodeKeyTableRow> rows = ImmutableList.builderWithExpectedSize(numKeys);
+    for (int i = 0; i < numKeys; i++) {
+      rows.add(
+          ImmutableNodeKeyTableRow.builder()
+              .key(keys[i])
+              .value(values[i])
+              .nodePointer(Optional.ofNullable(nodePointers[i]))
+              .build());
+    }
+    return rows.build();
+  }
+
+  @Override
+  public List<WriteBufferMessage> writeBuffer() {
+    return ImmutableList.copyOf(writeBuffer);
+  }
+
+  @Override
+  public int numMessages() {
+    return writeBuffer.size();
+  }
+
+  @Override
+  public WriteBufferMessage messageAt(int index) {
+    return writeBuffer.get(index);
+  }
+
+  @Override
+  public void appendMessage(WriteBufferMessage message) {
+    copySharedState();
+    writeBuffer.add(message);
+  }
+
+  @Override
+  public void clearWriteBuffer() {
+    copySharedState();
+    writeBuffer.clear();
+  }
+
+  private void copySharedState() {
+    if (shared) {
+      this.keys = Arrays.copyOf(keys, keys.length);
+      this.values = Arrays.copyOf(values, values.length);
+      this.nodePointers = Arrays.copyOf(nodePointers, nodePointers.length);
+      this.writeBuffer = Lists.newArrayList(writeBuffer);
+      this.shared = false;
+    }
+  }
+
+  private int indexOf(String key) {
+    // rows are mostly appended in key order when reading a node file
+    if (numKeys > 0 && key.compareTo(keys[numKeys - 1]) > 0) {
+      return -numKeys - 1;
+    }
+
+    return Arrays.binarySearch(keys, 0, numKeys, key);
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > keys.length) {
+      int newCapacity = Math.max(capacity, keys.length * 2);
+      this.keys = Arrays.copyOf(keys, newCapacity);
+      this.values = Arrays.copyOf(values, newCapacity);
+      this.nodePointers = Arrays.copyOf(nodePointers, newCapacity);
+    }
+  }
+
+  private void checkIndex(int index) {
+    ValidationUtil.checkArgument(
+        index >= 0 && index < numKeys,
+        "Index %s is out of bound of node key table with %s keys",
+        index,
+        numKeys);
   }
 }
@@ -13,7 +13,10 @@
  */
 package io.trinitylake.tree;
 
+import io.trinitylake.relocated.com.google.common.collect.Maps;
 import io.trinitylake.util.ValidationUtil;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
 
 public class BasicTreeRoot extends BasicTreeNode implements TreeRoot {
@@ -21,9 +24,20 @@ public class BasicTreeRoot extends BasicTreeNode implements TreeRoot {
   private String previousRootNodeFilePath;
   private String rollbackFromRootNodeFilePath;
   private String lakehouseDefFilePath;
+  private final Map<String, TreeNode> dirtyNodes = Maps.newLinkedHashMap();
 
   public BasicTreeRoot() {}
 
+  /**
+   * Create a root sharing the node key table, leftmost node pointer and write buffer of the source
+   * node until either of them is changed.
+   *
+   * @param source source node
+   */
+  BasicTreeRoot(BasicTreeNode source) {
+    super(source);
+  }
+
   @Override
   public Optional<String> previousRootNodeFilePath() {
     return Optional.ofNullable(previousRootNodeFilePath);
@@ -66,4 +80,24 @@ public class BasicTreeRoot extends BasicTreeNode implements TreeRoot {
   public void setLakehouseDefFilePath(String lakehouseDefFilePath) {
     this.lakehouseDefFilePath = lakehouseDefFilePath;
   }
+
+  @Override
+  public Map<String, TreeNode> dirtyNodes() {
+    return Collections.unmodifiableMap(dirtyNodes);
+  }
+
+  @Override
+  public void putDirtyNode(String path, TreeNode node) {
+    dirtyNodes.put(path, node);
+  }
+
+  @Override
+  public void removeDirtyNode(String path) {
+    dirtyNodes.remove(path);
+  }
+
+  @Override
+  public void clearDirtyNodes() {
+    dirtyNodes.clear();
+  }
 }
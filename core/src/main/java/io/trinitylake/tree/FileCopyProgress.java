@@ -0,0 +1,48 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+/** Number of files and bytes copied between storages, updated by a single thread. */
+class FileCopyProgress {
+
+  private long numCopiedFiles;
+  private long numSkippedFiles;
+  private long numCopiedBytes;
+
+  /**
+   * Record the result of {@link TreeOperations#copyFile}.
+   *
+   * @param numBytes number of copied bytes, or {@link TreeOperations#FILE_COPY_SKIPPED}
+   */
+  void record(long numBytes) {
+    if (numBytes == TreeOperations.FILE_COPY_SKIPPED) {
+      numSkippedFiles++;
+    } else {
+      numCopiedFiles++;
+      numCopiedBytes += numBytes;
+    }
+  }
+
+  long numCopiedFiles() {
+    return numCopiedFiles;
+  }
+
+  long numSkippedFiles() {
+    return numSkippedFiles;
+  }
+
+  long numCopiedBytes() {
+    return numCopiedBytes;
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.FileLocations;
+import io.trinitylake.models.LakehouseDef;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableList;
+import io.trinitylake.relocated.com.google.common.collect.Lists;
+import io.trinitylake.relocated.com.google.common.collect.Sets;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.storage.StorageFileInfo;
+import io.trinitylake.util.CloseableIterable;
+import io.trinitylake.util.FutureUtil;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.function.ToLongFunction;
+import org.apache.arrow.memory.BufferAllocator;
+
+/**
+ * Mark and sweep garbage collection of the files that are no longer reachable from the lakehouse,
+ * such as the node files and object definition files written by transactions that failed to
+ * commit, and the ones that are only reachable from expired versions.
+ *
+ * <p>The mark phase walks the trees of all the versions that are not expired and the versions of
+ * snapshots exported within the same storage, and records the paths of all reachable files. The
+ * sweep phase lists all the entropy directories of optimized file paths in parallel, and deletes
+ * the files that are not reachable and older than the grace period. Files with non-optimized paths,
+ * such as root node files and other files with names starting with an underscore, are never
+ * deleted.
+ */
+public class GarbageCollection {
+
+  private GarbageCollection() {}
+
+  public static GarbageCollectionResult collect(
+      LakehouseStorage storage, GarbageCollectionOptions options) {
+    return collect(storage, options, System.currentTimeMillis());
+  }
+
+  static GarbageCollectionResult collect(
+      LakehouseStorage storage, GarbageCollectionOptions options, long nowMillis) {
+    return collect(storage, options, nowMillis, ReachableFileSet.MURMUR3_PATH_HASH);
+  }
+
+  static GarbageCollectionResult collect(
+      LakehouseStorage storage,
+      GarbageCollectionOptions options,
+      long nowMillis,
+      ToLongFunction<String> pathHash) {
+    // files written after the start of the collection are never deleted
+    long maxLastModifiedMillis = nowMillis - options.gracePeriodMillis();
+    try (BufferAllocator allocator =
+            TreeOperations.newChildAllocator(storage, "garbage-collection");
+        ReachableFileSet reachableFiles = new ReachableFileSet(allocator, pathHash)) {
+      markReachableFiles(storage, reachableFiles);
+
+      List<StorageFileInfo> listedFiles = listOptimizedFiles(storage);
+      String rootLocation = storage.root().extendPath("").toString();
+      List<String> unreachablePaths = Lists.newArrayList();
+      for (StorageFileInfo file : listedFiles) {
+        String path = file.uri().toString().substring(rootLocation.length());
+        if (file.lastModifiedMillis() < maxLastModifiedMillis && !reachableFiles.contains(path)) {
+          unreachablePaths.add(path);
+        }
+      }
+
+      return ImmutableGarbageCollectionResult.builder()
+          .numReachableFiles(reachableFiles.size())
+          .numListedFiles(listedFiles.size())
+          .numDeletedFiles(TreeOperations.deleteFiles(storage, unreachablePaths))
+          .build();
+    }
+  }
+
+  private static void markReachableFiles(
+      LakehouseStorage storage, ReachableFileSet reachableFiles) {
+    // node paths are compared exactly, as a hash collision would skip a reachable subtree
+    Set<String> visitedNodePaths = Sets.newHashSet();
+    int readAheadVersions = storage.ops().commonProperties().ioParallelism();
+    LakehouseDef lakehouseDef = null;
+    try (CloseableIterable<TreeRoot> roots = TreeOperations.listRoots(storage, readAheadVersions)) {
+      for (TreeRoot root : roots) {
+        if (lakehouseDef == null) {
+          lakehouseDef = TreeOperations.findLakehouseDef(storage, root);
+        }
+        markTree(storage, root, reachableFiles, visitedNodePaths);
+      }
+    }
+
+    // exported snapshots in this storage might be at versions that are already expired
+    String rootLocation = storage.root().extendPath("").toString();
+    for (String exportedRootLocation : lakehouseDef.getExportedSnapshotsMap().values()) {
+      if (!exportedRootLocation.startsWith(rootLocation)) {
+        continue;
+      }
+
+      String exportedRootPath = exportedRootLocation.substring(rootLocation.length());
+      if (FileLocations.isRootNodeFilePath(exportedRootPath)
+          && !visitedNodePaths.contains(exportedRootPath)
+          && storage.exists(exportedRootPath)) {
+        markTree(
+            storage,
+            TreeOperations.readRootNodeFile(storage, exportedRootPath),
+            reachableFiles,
+            visitedNodePaths);
+      }
+    }
+  }
+
+  /**
+   * Mark all files reachable from a root level by level, reading the nodes of each level in
+   * parallel. Subtrees of nodes that are already visited are shared with another version and not
+   * walked again.
+   */
+  private static void markTree(
+      LakehouseStorage storage,
+      TreeRoot root,
+      ReachableFileSet reachableFiles,
+      Set<String> visitedNodePaths) {
+    visitedNodePaths.add(root.path().get());
+    reachableFiles.add(root.path().get());
+    reachableFiles.add(root.lakehouseDefFilePath());
+    List<TreeNode> nodes = ImmutableList.of(root);
+    while (!nodes.isEmpty()) {
+      List<String> childNodePaths = Lists.newArrayList();
+      for (TreeNode node : nodes) {
+        markNode(node, reachableFiles, visitedNodePaths, childNodePaths);
+      }
+      nodes = TreeOperations.readNodeFilesInParallel(storage, childNodePaths);
+    }
+  }
+
+  private static void markNode(
+      TreeNode node,
+      ReachableFileSet reachableFiles,
+      Set<String> visitedNodePaths,
+      List<String> childNodePaths) {
+    node.leftmostNodePointer()
+        .ifPresent(path -> markChildNode(path, reachableFiles, visitedNodePaths, childNodePaths));
+    for (NodeKeyTableRow row : node.nodeKeyTable()) {
+      reachableFiles.add(row.value());
+      row.nodePointer()
+          .ifPresent(path -> markChildNode(path, reachableFiles, visitedNodePaths, childNodePaths));
+    }
+
+    for (WriteBufferMessage message : node.writeBuffer()) {
+      message.value().ifPresent(reachableFiles::add);
+    }
+  }
+
+  private static void markChildNode(
+      String path,
+      ReachableFileSet reachableFiles,
+      Set<String> visitedNodePaths,
+      List<String> childNodePaths) {
+    reachableFiles.add(path);
+    if (visitedNodePaths.add(path)) {
+      childNodePaths.add(path);
+    }
+  }
+
+  private static List<StorageFileInfo> listOptimizedFiles(LakehouseStorage storage) {
+    List<Future<List<StorageFileInfo>>> listings = Lists.newArrayList();
+    for (String dirPath : FileLocations.optimizedFileDirPaths()) {
+      listings.add(storage.executor().submit(() -> storage.listFiles(dirPath)));
+    }
+
+    List<StorageFileInfo> files = Lists.newArrayList();
+    FutureUtil.awaitAll(listings, "list files").forEach(files::addAll);
+    return files;
+  }
+}
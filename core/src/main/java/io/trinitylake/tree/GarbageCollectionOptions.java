@@ -0,0 +1,65 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.StringMapBased;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableSet;
+import io.trinitylake.util.PropertyUtil;
+import io.trinitylake.util.ValidationUtil;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class GarbageCollectionOptions implements StringMapBased {
+
+  public static final String GRACE_PERIOD_MILLIS = "gc.grace-period-millis";
+  public static final long GRACE_PERIOD_MILLIS_DEFAULT = TimeUnit.DAYS.toMillis(1);
+
+  public static final Set<String> OPTIONS =
+      ImmutableSet.<String>builder().add(GRACE_PERIOD_MILLIS).build();
+
+  private final Map<String, String> options;
+  private final long gracePeriodMillis;
+
+  public GarbageCollectionOptions() {
+    this(ImmutableMap.of());
+  }
+
+  public GarbageCollectionOptions(Map<String, String> options) {
+    this.options = PropertyUtil.filterProperties(options, OPTIONS::contains);
+    this.gracePeriodMillis =
+        PropertyUtil.propertyAsLong(options, GRACE_PERIOD_MILLIS, GRACE_PERIOD_MILLIS_DEFAULT);
+    ValidationUtil.checkArgument(
+        gracePeriodMillis >= 0,
+        "%s must not be negative, but got %s",
+        GRACE_PERIOD_MILLIS,
+        gracePeriodMillis);
+  }
+
+  @Override
+  public Map<String, String> asStringMap() {
+    return options;
+  }
+
+  /**
+   * Minimum age of an unreachable file before it is deleted, which protects the files written by
+   * transactions that are not committed yet
+   *
+   * @return grace period in millis
+   */
+  public long gracePeriodMillis() {
+    return gracePeriodMillis;
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import org.immutables.value.Value;
+
+@Value.Immutable
+public interface GarbageCollectionResult {
+
+  /**
+   * Number of files reachable from the retained roots
+   *
+   * @return number of files
+   */
+  long numReachableFiles();
+
+  /**
+   * Number of files listed in the entropy directories of optimized file paths
+   *
+   * @return number of files
+   */
+  long numListedFiles();
+
+  /**
+   * Number of unreachable files deleted, which excludes the files that failed to be deleted
+   *
+   * @return number of files
+   */
+  int numDeletedFiles();
+}
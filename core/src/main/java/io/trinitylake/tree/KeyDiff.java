@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import java.util.Optional;
+import org.immutables.value.Value;
+
+/** A key with different values in two trees, as returned by {@link TreeOperations#diff}. */
+@Value.Immutable
+public interface KeyDiff {
+
+  String key();
+
+  /**
+   * Value of the key in the first tree
+   *
+   * @return value, or empty if the key is added
+   */
+  Optional<String> beforeValue();
+
+  /**
+   * Value of the key in the second tree
+   *
+   * @return value, or empty if the key is removed
+   */
+  Optional<String> afterValue();
+
+  default KeyDiffType type() {
+    if (!beforeValue().isPresent()) {
+      return KeyDiffType.ADDED;
+    }
+
+    return afterValue().isPresent() ? KeyDiffType.MODIFIED : KeyDiffType.REMOVED;
+  }
+}
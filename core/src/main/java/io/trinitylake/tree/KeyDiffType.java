@@ -0,0 +1,26 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+/** Type of the change of a key between two trees. */
+public enum KeyDiffType {
+  /** The key only exists in the second tree. */
+  ADDED,
+
+  /** The key only exists in the first tree. */
+  REMOVED,
+
+  /** The key exists in both trees with different values. */
+  MODIFIED
+}
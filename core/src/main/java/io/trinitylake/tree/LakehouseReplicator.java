@@ -0,0 +1,252 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.FileLocations;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableList;
+import io.trinitylake.relocated.com.google.common.collect.Lists;
+import io.trinitylake.relocated.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.util.FutureUtil;
+import java.io.Closeable;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Incremental replication of a lakehouse to a replica storage, which can use different storage ops
+ * than the source lakehouse.
+ *
+ * <p>New root versions of the source lakehouse are replicated one after another, and each of them
+ * is published in the replica with the same version number after all the files reachable from it
+ * are copied. Only the files written since the previous version are copied: the tree of a version
+ * is walked from the root, and the subtree of a node that already exists in the replica is not
+ * walked, because node files are copied after all their child nodes. Values are found by diffing
+ * the tree against the previous version, so that only the values of the changed keys are copied.
+ * This keeps the cost of replicating a version proportional to the number of changed nodes instead
+ * of the size of the lakehouse.
+ *
+ * <p>When the replica is empty, or the versions after the replicated version are expired in the
+ * source lakehouse, the latest version is replicated in full, and becomes the minimum version of
+ * the replica. The replica storage must not be written by anything else than the replicator.
+ */
+public class LakehouseReplicator implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LakehouseReplicator.class);
+
+  private final LakehouseStorage source;
+  private final LakehouseStorage replica;
+  private final ScheduledExecutorService executor;
+  private final ScheduledFuture<?> scheduledReplications;
+  private long replicatedVersion = -1;
+
+  public LakehouseReplicator(
+      LakehouseStorage source, LakehouseStorage replica, ReplicationOptions options) {
+    this.source = source;
+    this.replica = replica;
+    if (options.pollIntervalMillis() > 0) {
+      this.executor =
+          Executors.newSingleThreadScheduledExecutor(
+              new ThreadFactoryBuilder()
+                  .setDaemon(true)
+                  .setNameFormat("trinitylake-replication-%d")
+                  .build());
+      this.scheduledReplications =
+          executor.scheduleWithFixedDelay(
+              this::replicateScheduled,
+              0,
+              options.pollIntervalMillis(),
+              TimeUnit.MILLISECONDS);
+    } else {
+      this.executor = null;
+      this.scheduledReplications = null;
+    }
+  }
+
+  /**
+   * Replicate all the versions of the source lakehouse after the latest version in the replica.
+   *
+   * @return replication result
+   */
+  public synchronized ReplicationResult replicate() {
+    if (replicatedVersion < 0) {
+      this.replicatedVersion = findReplicatedVersion();
+    }
+
+    TreeRoot latest = LatestRootTracker.of(source).verifiedLatestRoot();
+    long latestVersion = TreeOperations.findVersionFromRootNode(latest);
+    FileCopyProgress progress = new FileCopyProgress();
+    long numReplicatedVersions = 0;
+    Optional<TreeRoot> previous = Optional.empty();
+    if (replicatedVersion >= 0 && replicatedVersion < latestVersion) {
+      previous = TreeOperations.findRootForVersion(source, replicatedVersion);
+    }
+
+    if (replicatedVersion < latestVersion && !previous.isPresent()) {
+      LOG.info("Replicate version {} in full to {}", latestVersion, replica.root());
+      replicateVersion(Optional.empty(), latest, progress);
+      VersionExpiration.writeMinimumVersionFile(replica, latestVersion);
+      this.replicatedVersion = latestVersion;
+      numReplicatedVersions++;
+    }
+
+    while (replicatedVersion < latestVersion) {
+      TreeRoot root =
+          TreeOperations.readRootNodeFile(
+              source, FileLocations.rootNodeFilePath(replicatedVersion + 1));
+      replicateVersion(previous, root, progress);
+      previous = Optional.of(root);
+      this.replicatedVersion++;
+      numReplicatedVersions++;
+    }
+
+    return ImmutableReplicationResult.builder()
+        .replicatedVersion(replicatedVersion)
+        .numReplicatedVersions(numReplicatedVersions)
+        .numCopiedFiles(progress.numCopiedFiles())
+        .numCopiedBytes(progress.numCopiedBytes())
+        .build();
+  }
+
+  /**
+   * Latest version published in the replica by this replicator, or -1 if no version is published
+   * yet.
+   *
+   * @return replicated version
+   */
+  public synchronized long replicatedVersion() {
+    return replicatedVersion;
+  }
+
+  /**
+   * Find the latest version in the replica. A replica written by a replication that did not
+   * complete the first version has no root node at its minimum version, and is considered empty.
+   */
+  private long findReplicatedVersion() {
+    long minimumVersion = TreeOperations.findMinimumVersion(replica);
+    if (!replica.exists(FileLocations.rootNodeFilePath(minimumVersion))) {
+      return -1;
+    }
+
+    return TreeOperations.findLatestVersion(replica, minimumVersion);
+  }
+
+  /**
+   * Copy the files of a version that are not in the replica, and then publish the root node. Node
+   * files are copied level by level from the deepest level, so that a node file in the replica
+   * never refers to a missing node file.
+   */
+  private void replicateVersion(
+      Optional<TreeRoot> previous, TreeRoot root, FileCopyProgress progress) {
+    List<String> filePaths = Lists.newArrayList();
+    if (!previous.isPresent()
+        || !previous.get().lakehouseDefFilePath().equals(root.lakehouseDefFilePath())) {
+      filePaths.add(root.lakehouseDefFilePath());
+    }
+
+    // values of the previous version are already replicated together with the previous version
+    if (previous.isPresent()) {
+      TreeOperations.diff(source, previous.get(), root)
+          .forEachRemaining(keyDiff -> keyDiff.afterValue().ifPresent(filePaths::add));
+    }
+
+    List<List<String>> newNodePathLevels = Lists.newArrayList();
+    List<TreeNode> nodes = ImmutableList.of(root);
+    while (!nodes.isEmpty()) {
+      List<String> childNodePaths = Lists.newArrayList();
+      for (TreeNode node : nodes) {
+        collectReferencedFiles(node, !previous.isPresent(), filePaths, childNodePaths);
+      }
+
+      List<String> newNodePaths = filterMissingInReplica(childNodePaths);
+      newNodePathLevels.add(newNodePaths);
+      nodes = TreeOperations.readNodeFilesInParallel(source, newNodePaths);
+    }
+
+    copyFilesInParallel(filePaths, progress);
+    for (List<String> newNodePaths : Lists.reverse(newNodePathLevels)) {
+      copyFilesInParallel(newNodePaths, progress);
+    }
+
+    long version = TreeOperations.findVersionFromRootNode(root);
+    progress.record(TreeOperations.copyFile(source, replica, root.path().get()));
+    TreeOperations.publishCommittedRoot(replica, version, root);
+  }
+
+  private static void collectReferencedFiles(
+      TreeNode node, boolean includeValues, List<String> filePaths, List<String> childNodePaths) {
+    node.leftmostNodePointer().ifPresent(childNodePaths::add);
+    for (NodeKeyTableRow row : node.nodeKeyTable()) {
+      if (includeValues) {
+        filePaths.add(row.value());
+      }
+      row.nodePointer().ifPresent(childNodePaths::add);
+    }
+
+    if (includeValues) {
+      for (WriteBufferMessage message : node.writeBuffer()) {
+        message.value().ifPresent(filePaths::add);
+      }
+    }
+  }
+
+  private List<String> filterMissingInReplica(List<String> paths) {
+    List<Future<Boolean>> checks = Lists.newArrayListWithCapacity(paths.size());
+    for (String path : paths) {
+      checks.add(source.executor().submit(() -> replica.exists(path)));
+    }
+
+    List<Boolean> exists = FutureUtil.awaitAll(checks, "check files in replica");
+    List<String> missingPaths = Lists.newArrayList();
+    for (int i = 0; i < paths.size(); i++) {
+      if (!exists.get(i)) {
+        missingPaths.add(paths.get(i));
+      }
+    }
+
+    return missingPaths;
+  }
+
+  private void copyFilesInParallel(List<String> paths, FileCopyProgress progress) {
+    List<Future<Long>> copies = Lists.newArrayListWithCapacity(paths.size());
+    for (String path : paths) {
+      copies.add(source.executor().submit(() -> TreeOperations.copyFile(source, replica, path)));
+    }
+
+    FutureUtil.awaitAll(copies, "copy files").forEach(progress::record);
+  }
+
+  private void replicateScheduled() {
+    // a failed replication must not throw, otherwise all subsequent replications are cancelled
+    try {
+      replicate();
+    } catch (RuntimeException e) {
+      LOG.warn("Failed to replicate to {}, retry in the next poll", replica.root(), e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (scheduledReplications != null) {
+      scheduledReplications.cancel(false);
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.FileLocations;
+import io.trinitylake.relocated.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.trinitylake.storage.LakehouseStorage;
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracker of the latest root of a lakehouse, attached to a lakehouse storage through {@link
+ * #of(LakehouseStorage)}.
+ *
+ * <p>The latest known root is kept in memory, so that it can be returned without any request to
+ * the storage. It is updated as soon as a new version is committed through the same storage, and
+ * refreshed periodically in background to catch up with versions committed by other processes.
+ * Versions are committed one after another without gaps, so a refresh only needs to check if the
+ * root node of the next version exists, and the latest version is searched only if it does.
+ */
+public class LatestRootTracker implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LatestRootTracker.class);
+
+  private final LakehouseStorage storage;
+  private final ScheduledExecutorService executor;
+  private final ScheduledFuture<?> scheduledRefreshes;
+  private volatile TreeRoot latestRoot;
+
+  public LatestRootTracker(LakehouseStorage storage) {
+    this.storage = storage;
+    long refreshIntervalMillis = storage.ops().commonProperties().latestRootRefreshIntervalMillis();
+    if (refreshIntervalMillis > 0) {
+      this.executor =
+          Executors.newSingleThreadScheduledExecutor(
+              new ThreadFactoryBuilder()
+                  .setDaemon(true)
+                  .setNameFormat("trinitylake-latest-root-refresh-%d")
+                  .build());
+      this.scheduledRefreshes =
+          executor.scheduleWithFixedDelay(
+              this::refreshScheduled,
+              refreshIntervalMillis,
+              refreshIntervalMillis,
+              TimeUnit.MILLISECONDS);
+    } else {
+      this.executor = null;
+      this.scheduledRefreshes = null;
+    }
+  }
+
+  /**
+   * Get the tracker attached to the storage, which is created on first access and closed together
+   * with the storage.
+   *
+   * @param storage lakehouse storage
+   * @return latest root tracker
+   */
+  public static LatestRootTracker of(LakehouseStorage storage) {
+    return storage.attachment(LatestRootTracker.class, LatestRootTracker::new);
+  }
+
+  /**
+   * Get the latest root known by this tracker without sending any request to the storage, unless no
+   * root is known yet. The returned root might be behind the latest root in storage by versions
+   * committed by other processes since the last refresh.
+   *
+   * @return copy of the latest known root, which can be changed by the caller
+   */
+  public TreeRoot latestKnownRoot() {
+    TreeRoot knownRoot = latestRoot;
+    if (knownRoot == null) {
+      return verifiedLatestRoot();
+    }
+
+    return TreeOperations.copyPersistedRoot(knownRoot);
+  }
+
+  /**
+   * Get the latest root verified against the storage. When the latest known root is still the
+   * latest, this only checks that the root node of the next version does not exist.
+   *
+   * @return copy of the latest root, which can be changed by the caller
+   */
+  public TreeRoot verifiedLatestRoot() {
+    TreeRoot knownRoot = latestRoot;
+    if (knownRoot == null) {
+      update(TreeOperations.findLatestRoot(storage));
+    } else {
+      long nextVersion = TreeOperations.findVersionFromRootNode(knownRoot) + 1;
+      if (storage.exists(FileLocations.rootNodeFilePath(nextVersion))) {
+        long latestVersion = TreeOperations.findLatestVersion(storage, nextVersion);
+        update(
+            TreeOperations.readRootNodeFile(
+                storage, FileLocations.rootNodeFilePath(latestVersion)));
+      }
+    }
+
+    return TreeOperations.copyPersistedRoot(latestRoot);
+  }
+
+  /**
+   * Update the latest known root with a root that is just committed or read from storage. The
+   * update is ignored if the root is not newer than the latest known root.
+   *
+   * @param root persisted root
+   */
+  public synchronized void update(TreeRoot root) {
+    long version = TreeOperations.findVersionFromRootNode(root);
+    if (latestRoot == null || version > TreeOperations.findVersionFromRootNode(latestRoot)) {
+      this.latestRoot = TreeOperations.copyPersistedRoot(root);
+    }
+  }
+
+  private void refreshScheduled() {
+    // a failed refresh must not throw, otherwise all subsequent refreshes are cancelled
+    try {
+      verifiedLatestRoot();
+    } catch (RuntimeException e) {
+      LOG.warn("Failed to refresh latest root, retry in the next refresh", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (scheduledRefreshes != null) {
+      scheduledRefreshes.cancel(false);
+      executor.shutdownNow();
+    }
+  }
+}
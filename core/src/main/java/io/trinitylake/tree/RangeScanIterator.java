@@ -0,0 +1,190 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.relocated.com.google.common.collect.Maps;
+import io.trinitylake.relocated.com.google.common.collect.Queues;
+import io.trinitylake.storage.LakehouseStorage;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * Iterator of the rows in a key range of the tree, ordered by key.
+ *
+ * <p>The tree is walked in order lazily, and only nodes that cover the key range are read. Messages
+ * in the write buffer of a node are merged when the node is read, with messages in nodes closer to
+ * the root taking precedence.
+ */
+class RangeScanIterator implements Iterator<NodeKeyTableRow> {
+
+  private final LakehouseStorage storage;
+  private final Map<String, TreeNode> dirtyNodes;
+  private final String startKey;
+  private final String endKey;
+  private final Deque<Frame> frames;
+  private final NavigableMap<String, WriteBufferMessage> messages;
+  private NodeKeyTableRow nextTableRow;
+  private boolean nextTableRowFetched;
+  private NodeKeyTableRow next;
+
+  RangeScanIterator(
+      LakehouseStorage storage,
+      TreeNode startNode,
+      Map<String, TreeNode> dirtyNodes,
+      String startKey,
+      String endKey) {
+    this.storage = storage;
+    this.dirtyNodes = dirtyNodes;
+    this.startKey = startKey;
+    this.endKey = endKey;
+    this.frames = Queues.newArrayDeque();
+    this.messages = Maps.newTreeMap();
+    enter(startNode);
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      this.next = computeNext();
+    }
+    return next != null;
+  }
+
+  @Override
+  public NodeKeyTableRow next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    NodeKeyTableRow result = next;
+    this.next = null;
+    return result;
+  }
+
+  private NodeKeyTableRow computeNext() {
+    while (true) {
+      if (!nextTableRowFetched) {
+        this.nextTableRow = nextTableRow();
+        this.nextTableRowFetched = true;
+      }
+
+      Map.Entry<String, WriteBufferMessage> message = messages.firstEntry();
+      if (message == null
+          || (nextTableRow != null && nextTableRow.key().compareTo(message.getKey()) < 0)) {
+        this.nextTableRowFetched = false;
+        return nextTableRow;
+      }
+
+      messages.pollFirstEntry();
+      if (nextTableRow != null && nextTableRow.key().equals(message.getKey())) {
+        this.nextTableRowFetched = false;
+      }
+
+      Optional<String> value = message.getValue().value();
+      if (value.isPresent()) {
+        return ImmutableNodeKeyTableRow.builder().key(message.getKey()).value(value.get()).build();
+      }
+    }
+  }
+
+  /**
+   * Walk the node key tables to the next row in range. All the nodes that could contain a key lower
+   * than the returned row are read before returning, so that their messages are merged.
+   */
+  private NodeKeyTableRow nextTableRow() {
+    while (!frames.isEmpty()) {
+      Frame frame = frames.peek();
+      if (!frame.childVisited) {
+        frame.childVisited = true;
+        Optional<String> child =
+            frame.slot < 0
+                ? frame.node.leftmostNodePointer()
+                : frame.node.nodePointerAt(frame.slot);
+        child.ifPresent(
+            pointer -> enter(TreeOperations.readCachedNodeFile(storage, dirtyNodes, pointer)));
+        continue;
+      }
+
+      int keyIndex = frame.slot + 1;
+      if (keyIndex >= frame.node.numKeys()) {
+        frames.pop();
+        continue;
+      }
+
+      String key = frame.node.keyAt(keyIndex);
+      if (key.compareTo(endKey) >= 0) {
+        // all the remaining keys in this node and its ancestors are out of range
+        frames.clear();
+        return null;
+      }
+
+      frame.slot = keyIndex;
+      frame.childVisited = false;
+      return ImmutableNodeKeyTableRow.builder()
+          .key(key)
+          .value(frame.node.valueAt(keyIndex))
+          .build();
+    }
+
+    return null;
+  }
+
+  private void enter(TreeNode node) {
+    List<WriteBufferMessage> buffer = node.writeBuffer();
+    for (int i = buffer.size() - 1; i >= 0; i--) {
+      WriteBufferMessage message = buffer.get(i);
+      if (message.key().compareTo(startKey) >= 0 && message.key().compareTo(endKey) < 0) {
+        messages.putIfAbsent(message.key(), message);
+      }
+    }
+
+    frames.push(new Frame(node, lowerIndex(node, startKey)));
+  }
+
+  private static int lowerIndex(TreeNode node, String key) {
+    int low = 0;
+    int high = node.numKeys() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (node.keyAt(mid).compareTo(key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low - 1;
+  }
+
+  /**
+   * Position of the in-order walk in a node, which is the child node pointer after the key at
+   * {@code slot}, or the leftmost node pointer if {@code slot} is -1.
+   */
+  private static class Frame {
+
+    private final TreeNode node;
+    private int slot;
+    private boolean childVisited;
+
+    Frame(TreeNode node, int slot) {
+      this.node = node;
+      this.slot = slot;
+      this.childVisited = false;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.relocated.com.google.common.hash.HashFunction;
+import io.trinitylake.relocated.com.google.common.hash.Hashing;
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.function.ToLongFunction;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+
+/**
+ * Set of reachable file paths for garbage collection, stored as an open addressing hash table of
+ * 64-bit path hashes in off-heap memory, which takes a fixed 8 to 16 bytes per path regardless of
+ * the path length.
+ *
+ * <p>Two paths with the same hash are considered the same path, so the set must only be used to
+ * tell whether a listed file is reachable, where a collision can only make an unreachable file
+ * kept. It must not be used to tell whether a node is already visited, where a collision would
+ * skip a reachable subtree and get its files deleted.
+ */
+class ReachableFileSet implements Closeable {
+
+  private static final HashFunction HASH_FUNC = Hashing.murmur3_128();
+  static final ToLongFunction<String> MURMUR3_PATH_HASH =
+      path -> HASH_FUNC.hashString(path, StandardCharsets.UTF_8).asLong();
+  private static final int SLOT_SIZE_BYTES = Long.BYTES;
+  private static final long INITIAL_NUM_SLOTS = 1L << 16;
+  private static final long EMPTY_SLOT = 0L;
+
+  private final BufferAllocator allocator;
+  private final ToLongFunction<String> pathHash;
+  private ArrowBuf slots;
+  private long numSlots;
+  private long size;
+
+  ReachableFileSet(BufferAllocator allocator) {
+    this(allocator, MURMUR3_PATH_HASH);
+  }
+
+  ReachableFileSet(BufferAllocator allocator, ToLongFunction<String> pathHash) {
+    this.allocator = allocator;
+    this.pathHash = pathHash;
+    this.numSlots = INITIAL_NUM_SLOTS;
+    this.slots = newSlots(numSlots);
+    this.size = 0;
+  }
+
+  void add(String path) {
+    long hash = hash(path);
+    long slot = findSlot(slots, numSlots, hash);
+    if (slots.getLong(slot * SLOT_SIZE_BYTES) == hash) {
+      return;
+    }
+
+    slots.setLong(slot * SLOT_SIZE_BYTES, hash);
+    this.size++;
+    // keep the load factor at most 0.5, so that probing sequences stay short
+    if (size * 2 > numSlots) {
+      resize(numSlots * 2);
+    }
+  }
+
+  boolean contains(String path) {
+    long hash = hash(path);
+    return slots.getLong(findSlot(slots, numSlots, hash) * SLOT_SIZE_BYTES) == hash;
+  }
+
+  long size() {
+    return size;
+  }
+
+  private void resize(long newNumSlots) {
+    ArrowBuf newSlots = newSlots(newNumSlots);
+    for (long slot = 0; slot < numSlots; slot++) {
+      long hash = slots.getLong(slot * SLOT_SIZE_BYTES);
+      if (hash != EMPTY_SLOT) {
+        newSlots.setLong(findSlot(newSlots, newNumSlots, hash) * SLOT_SIZE_BYTES, hash);
+      }
+    }
+
+    slots.close();
+    this.slots = newSlots;
+    this.numSlots = newNumSlots;
+  }
+
+  private ArrowBuf newSlots(long count) {
+    ArrowBuf buffer = allocator.buffer(count * SLOT_SIZE_BYTES);
+    buffer.setZero(0, count * SLOT_SIZE_BYTES);
+    return buffer;
+  }
+
+  /** Find the slot that holds the hash, or the empty slot to put the hash with linear probing. */
+  private static long findSlot(ArrowBuf buffer, long count, long hash) {
+    // the number of slots is a power of 2
+    long slot = hash & (count - 1);
+    while (true) {
+      long slotHash = buffer.getLong(slot * SLOT_SIZE_BYTES);
+      if (slotHash == EMPTY_SLOT || slotHash == hash) {
+        return slot;
+      }
+      slot = (slot + 1) & (count - 1);
+    }
+  }
+
+  private long hash(String path) {
+    long hash = pathHash.applyAsLong(path);
+    return hash == EMPTY_SLOT ? 1L : hash;
+  }
+
+  @Override
+  public void close() {
+    slots.close();
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.StringMapBased;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableSet;
+import io.trinitylake.util.PropertyUtil;
+import io.trinitylake.util.ValidationUtil;
+import java.util.Map;
+import java.util.Set;
+
+public class ReplicationOptions implements StringMapBased {
+
+  public static final String POLL_INTERVAL_MILLIS = "replication.poll-interval-millis";
+  public static final long POLL_INTERVAL_MILLIS_DEFAULT = 1000;
+
+  public static final Set<String> OPTIONS =
+      ImmutableSet.<String>builder().add(POLL_INTERVAL_MILLIS).build();
+
+  private final Map<String, String> options;
+  private final long pollIntervalMillis;
+
+  public ReplicationOptions() {
+    this(ImmutableMap.of());
+  }
+
+  public ReplicationOptions(Map<String, String> options) {
+    this.options = PropertyUtil.filterProperties(options, OPTIONS::contains);
+    this.pollIntervalMillis =
+        PropertyUtil.propertyAsLong(options, POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS_DEFAULT);
+    ValidationUtil.checkArgument(
+        pollIntervalMillis >= 0,
+        "%s must not be negative, but got %s",
+        POLL_INTERVAL_MILLIS,
+        pollIntervalMillis);
+  }
+
+  @Override
+  public Map<String, String> asStringMap() {
+    return options;
+  }
+
+  /**
+   * Interval between polls of new versions in the source lakehouse, or 0 to only replicate when
+   * requested
+   *
+   * @return poll interval in millis
+   */
+  public long pollIntervalMillis() {
+    return pollIntervalMillis;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import org.immutables.value.Value;
+
+@Value.Immutable
+public interface ReplicationResult {
+
+  /**
+   * Latest version published in the replica
+   *
+   * @return replicated version
+   */
+  long replicatedVersion();
+
+  /**
+   * Number of versions published in the replica by this replication
+   *
+   * @return number of versions
+   */
+  long numReplicatedVersions();
+
+  /**
+   * Number of files copied to the replica
+   *
+   * @return number of files
+   */
+  long numCopiedFiles();
+
+  /**
+   * Number of bytes copied to the replica
+   *
+   * @return number of bytes
+   */
+  long numCopiedBytes();
+}
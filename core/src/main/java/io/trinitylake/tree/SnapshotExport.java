@@ -0,0 +1,217 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.FileLocations;
+import io.trinitylake.ObjectDefinitions;
+import io.trinitylake.exception.CommitFailureException;
+import io.trinitylake.exception.StorageAtomicSealFailureException;
+import io.trinitylake.models.LakehouseDef;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableList;
+import io.trinitylake.relocated.com.google.common.collect.Lists;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.util.FutureUtil;
+import io.trinitylake.util.ValidationUtil;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Export of a root version and the files reachable from it to a target storage, which can use
+ * different storage ops than the source lakehouse.
+ *
+ * <p>The tree is replicated level by level, copying all the files referenced by a level in
+ * parallel with the storage executor, and the root node file is copied last, so that an exported
+ * root node file never refers to a missing file. Files are immutable once written, so a file that
+ * already exists in the target storage is skipped, which lets a failed export be resumed, and
+ * exports of different versions to the same target only copy the files that changed in between.
+ *
+ * <p>After the files are copied, the export is registered in the lakehouse definition by
+ * committing a new root version in the source lakehouse. A partial or minimal export still refers
+ * to the files in the source lakehouse that are not replicated, so the exported version is also
+ * given a maximum version age override, which keeps it from version expiration and garbage
+ * collection for the source retention time.
+ */
+public class SnapshotExport {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SnapshotExport.class);
+
+  private SnapshotExport() {}
+
+  /**
+   * Export a root version of the source lakehouse to the target storage, and register the export
+   * in the lakehouse definition of the source lakehouse.
+   *
+   * @param source source lakehouse storage
+   * @param target target storage of the export
+   * @param exportName unique name of the export
+   * @param version root version to export
+   * @param options export options
+   * @return export result
+   */
+  public static SnapshotExportResult export(
+      LakehouseStorage source,
+      LakehouseStorage target,
+      String exportName,
+      long version,
+      SnapshotExportOptions options) {
+    TreeRoot latest = LatestRootTracker.of(source).verifiedLatestRoot();
+    checkExportNameNotExists(TreeOperations.findLakehouseDef(source, latest), exportName);
+    Optional<TreeRoot> root = TreeOperations.findRootForVersion(source, version);
+    ValidationUtil.checkArgument(
+        root.isPresent(), "Version %s does not exist or is expired", version);
+
+    FileCopyProgress progress = new FileCopyProgress();
+    if (options.mode() != SnapshotExportMode.MINIMAL) {
+      int maxDepth =
+          options.mode() == SnapshotExportMode.FULL
+              ? Integer.MAX_VALUE
+              : options.partialMaxDepth();
+      replicateTree(source, target, root.get(), maxDepth, progress);
+    }
+
+    String rootNodeFilePath = root.get().path().get();
+    progress.record(TreeOperations.copyFile(source, target, rootNodeFilePath));
+    String rootNodeFileLocation = target.root().extendPath(rootNodeFilePath).toString();
+    TreeRoot committedRoot =
+        registerExport(source, exportName, root.get(), rootNodeFileLocation, options);
+    return ImmutableSnapshotExportResult.builder()
+        .rootNodeFileLocation(rootNodeFileLocation)
+        .numCopiedFiles(progress.numCopiedFiles())
+        .numSkippedFiles(progress.numSkippedFiles())
+        .numCopiedBytes(progress.numCopiedBytes())
+        .committedRoot(committedRoot)
+        .build();
+  }
+
+  /**
+   * Copy the files referenced by the nodes of each level down to the max depth, where the root is
+   * at depth 0, together with the node files of the next level. Nodes are read from the source
+   * storage in parallel with the copies, without the decoded file cache.
+   */
+  private static void replicateTree(
+      LakehouseStorage source,
+      LakehouseStorage target,
+      TreeRoot root,
+      int maxDepth,
+      FileCopyProgress progress) {
+    List<TreeNode> nodes = ImmutableList.of(root);
+    List<String> filePaths = Lists.newArrayList(root.lakehouseDefFilePath());
+    for (int depth = 0; !nodes.isEmpty(); depth++) {
+      List<String> childNodePaths = Lists.newArrayList();
+      for (TreeNode node : nodes) {
+        collectReferencedFiles(node, filePaths, childNodePaths);
+      }
+
+      if (depth >= maxDepth) {
+        childNodePaths.clear();
+      }
+
+      filePaths.addAll(childNodePaths);
+      List<Future<Long>> copies = Lists.newArrayListWithCapacity(filePaths.size());
+      for (String path : filePaths) {
+        copies.add(source.executor().submit(() -> TreeOperations.copyFile(source, target, path)));
+      }
+
+      List<Future<TreeNode>> reads = TreeOperations.submitNodeFileReads(source, childNodePaths);
+      FutureUtil.awaitAll(copies, "copy files").forEach(progress::record);
+      nodes = FutureUtil.awaitAll(reads, "read node files");
+      filePaths = Lists.newArrayList();
+    }
+  }
+
+  private static void collectReferencedFiles(
+      TreeNode node, List<String> filePaths, List<String> childNodePaths) {
+    node.leftmostNodePointer().ifPresent(childNodePaths::add);
+    for (NodeKeyTableRow row : node.nodeKeyTable()) {
+      filePaths.add(row.value());
+      row.nodePointer().ifPresent(childNodePaths::add);
+    }
+
+    for (WriteBufferMessage message : node.writeBuffer()) {
+      message.value().ifPresent(filePaths::add);
+    }
+  }
+
+  private static TreeRoot registerExport(
+      LakehouseStorage storage,
+      String exportName,
+      TreeRoot exportedRoot,
+      String rootNodeFileLocation,
+      SnapshotExportOptions options) {
+    for (int attempt = 1; ; attempt++) {
+      TreeRoot latest = LatestRootTracker.of(storage).verifiedLatestRoot();
+      LakehouseDef lakehouseDef = TreeOperations.findLakehouseDef(storage, latest);
+      checkExportNameNotExists(lakehouseDef, exportName);
+      String lakehouseDefFilePath = FileLocations.newLakehouseDefFilePath();
+      ObjectDefinitions.writeLakehouseDef(
+          storage,
+          lakehouseDefFilePath,
+          registeredLakehouseDef(
+              lakehouseDef, exportName, exportedRoot, rootNodeFileLocation, options));
+
+      TreeRoot newRoot = TreeOperations.cloneTreeRoot(latest);
+      newRoot.setLakehouseDefFilePath(lakehouseDefFilePath);
+      try {
+        TreeOperations.commitRootNodeFile(storage, latest.path().get(), newRoot);
+        return newRoot;
+      } catch (StorageAtomicSealFailureException e) {
+        if (attempt >= options.commitAttempts()) {
+          throw new CommitFailureException(
+              e, "Failed to register snapshot export %s after %s attempts", exportName, attempt);
+        }
+
+        LOG.info(
+            "Root version after {} is committed by another writer, retry export",
+            latest.path().get());
+        TreeOperations.waitBeforeCommitRetry(
+            options.commitRetryMinWaitMillis(), options.commitRetryMaxWaitMillis(), attempt);
+      }
+    }
+  }
+
+  private static LakehouseDef registeredLakehouseDef(
+      LakehouseDef lakehouseDef,
+      String exportName,
+      TreeRoot exportedRoot,
+      String rootNodeFileLocation,
+      SnapshotExportOptions options) {
+    LakehouseDef.Builder builder =
+        lakehouseDef.toBuilder().putExportedSnapshots(exportName, rootNodeFileLocation);
+    if (options.mode() == SnapshotExportMode.FULL) {
+      return builder.build();
+    }
+
+    long nowMillis = System.currentTimeMillis();
+    long version = TreeOperations.findVersionFromRootNode(exportedRoot);
+    long ageMillis = nowMillis - exportedRoot.createdAtMillis().orElse(nowMillis);
+    long maximumAgeMillis = ageMillis + options.sourceRetentionMillis();
+    Long existingMaximumAgeMillis =
+        lakehouseDef.getMaximumVersionAgeMillisOverridesMap().get(version);
+    if (existingMaximumAgeMillis == null || existingMaximumAgeMillis < maximumAgeMillis) {
+      builder.putMaximumVersionAgeMillisOverrides(version, maximumAgeMillis);
+    }
+
+    return builder.build();
+  }
+
+  private static void checkExportNameNotExists(LakehouseDef lakehouseDef, String exportName) {
+    ValidationUtil.checkArgument(
+        !lakehouseDef.getExportedSnapshotsMap().containsKey(exportName),
+        "Snapshot export %s already exists",
+        exportName);
+  }
+}
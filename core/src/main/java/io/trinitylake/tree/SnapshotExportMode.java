@@ -0,0 +1,29 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+/** Level of the tree that a snapshot export stops replicating at. */
+public enum SnapshotExportMode {
+  /** Replicate the root node and all files reachable from it. */
+  FULL,
+
+  /**
+   * Replicate the nodes down to a maximum depth and the files they refer to. Files below the depth
+   * are still read from the source lakehouse.
+   */
+  PARTIAL,
+
+  /** Replicate only the root node file. All other files are read from the source lakehouse. */
+  MINIMAL
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.StringMapBased;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableSet;
+import io.trinitylake.util.PropertyUtil;
+import io.trinitylake.util.ValidationUtil;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class SnapshotExportOptions implements StringMapBased {
+
+  public static final String MODE = "export.mode";
+  public static final String MODE_DEFAULT = "full";
+
+  public static final String PARTIAL_MAX_DEPTH = "export.partial-max-depth";
+  public static final int PARTIAL_MAX_DEPTH_DEFAULT = 1;
+
+  public static final String SOURCE_RETENTION_MILLIS = "export.source-retention-millis";
+  public static final long SOURCE_RETENTION_MILLIS_DEFAULT = TimeUnit.DAYS.toMillis(7);
+
+  public static final String COMMIT_ATTEMPTS = "export.commit-attempts";
+  public static final int COMMIT_ATTEMPTS_DEFAULT = 5;
+
+  public static final String COMMIT_RETRY_MIN_WAIT_MILLIS = "export.commit-retry.min-wait-millis";
+  public static final long COMMIT_RETRY_MIN_WAIT_MILLIS_DEFAULT = 100;
+
+  public static final String COMMIT_RETRY_MAX_WAIT_MILLIS = "export.commit-retry.max-wait-millis";
+  public static final long COMMIT_RETRY_MAX_WAIT_MILLIS_DEFAULT = 10000;
+
+  public static final Set<String> OPTIONS =
+      ImmutableSet.<String>builder()
+          .add(MODE)
+          .add(PARTIAL_MAX_DEPTH)
+          .add(SOURCE_RETENTION_MILLIS)
+          .add(COMMIT_ATTEMPTS)
+          .add(COMMIT_RETRY_MIN_WAIT_MILLIS)
+          .add(COMMIT_RETRY_MAX_WAIT_MILLIS)
+          .build();
+
+  private final Map<String, String> options;
+  private final SnapshotExportMode mode;
+  private final int partialMaxDepth;
+  private final long sourceRetentionMillis;
+  private final int commitAttempts;
+  private final long commitRetryMinWaitMillis;
+  private final long commitRetryMaxWaitMillis;
+
+  public SnapshotExportOptions() {
+    this(ImmutableMap.of());
+  }
+
+  public SnapshotExportOptions(Map<String, String> options) {
+    this.options = PropertyUtil.filterProperties(options, OPTIONS::contains);
+    this.mode =
+        SnapshotExportMode.valueOf(
+            PropertyUtil.propertyAsString(options, MODE, MODE_DEFAULT)
+                .replace('-', '_')
+                .toUpperCase(Locale.ENGLISH));
+    this.partialMaxDepth =
+        PropertyUtil.propertyAsInt(options, PARTIAL_MAX_DEPTH, PARTIAL_MAX_DEPTH_DEFAULT);
+    ValidationUtil.checkArgument(
+        partialMaxDepth > 0,
+        "%s must be positive, but got %s",
+        PARTIAL_MAX_DEPTH,
+        partialMaxDepth);
+    this.sourceRetentionMillis =
+        PropertyUtil.propertyAsLong(
+            options, SOURCE_RETENTION_MILLIS, SOURCE_RETENTION_MILLIS_DEFAULT);
+    ValidationUtil.checkArgument(
+        sourceRetentionMillis >= 0,
+        "%s must not be negative, but got %s",
+        SOURCE_RETENTION_MILLIS,
+        sourceRetentionMillis);
+    this.commitAttempts =
+        PropertyUtil.propertyAsInt(options, COMMIT_ATTEMPTS, COMMIT_ATTEMPTS_DEFAULT);
+    ValidationUtil.checkArgument(
+        commitAttempts > 0, "%s must be positive, but got %s", COMMIT_ATTEMPTS, commitAttempts);
+    this.commitRetryMinWaitMillis =
+        PropertyUtil.propertyAsLong(
+            options, COMMIT_RETRY_MIN_WAIT_MILLIS, COMMIT_RETRY_MIN_WAIT_MILLIS_DEFAULT);
+    ValidationUtil.checkArgument(
+        commitRetryMinWaitMillis >= 0,
+        "%s must not be negative, but got %s",
+        COMMIT_RETRY_MIN_WAIT_MILLIS,
+        commitRetryMinWaitMillis);
+    this.commitRetryMaxWaitMillis =
+        PropertyUtil.propertyAsLong(
+            options, COMMIT_RETRY_MAX_WAIT_MILLIS, COMMIT_RETRY_MAX_WAIT_MILLIS_DEFAULT);
+    ValidationUtil.checkArgument(
+        commitRetryMaxWaitMillis >= commitRetryMinWaitMillis,
+        "%s must not be less than %s, but got %s",
+        COMMIT_RETRY_MAX_WAIT_MILLIS,
+        COMMIT_RETRY_MIN_WAIT_MILLIS,
+        commitRetryMaxWaitMillis);
+  }
+
+  @Override
+  public Map<String, String> asStringMap() {
+    return options;
+  }
+
+  /**
+   * Mode of the export, which decides the level of the tree that the export stops at
+   *
+   * @return export mode
+   */
+  public SnapshotExportMode mode() {
+    return mode;
+  }
+
+  /**
+   * Maximum depth of the nodes replicated by a partial export, where the root is at depth 0
+   *
+   * @return max depth
+   */
+  public int partialMaxDepth() {
+    return partialMaxDepth;
+  }
+
+  /**
+   * Minimum time that the exported version is kept in the source lakehouse after a partial or
+   * minimal export, because the export still refers to the files that are not replicated
+   *
+   * @return retention in millis
+   */
+  public long sourceRetentionMillis() {
+    return sourceRetentionMillis;
+  }
+
+  /**
+   * Number of attempts to commit the registration of the export against concurrent commits
+   *
+   * @return number of attempts
+   */
+  public int commitAttempts() {
+    return commitAttempts;
+  }
+
+  /**
+   * Wait time before the first retry of the registration, which doubles for every following retry
+   *
+   * @return wait time in millis
+   */
+  public long commitRetryMinWaitMillis() {
+    return commitRetryMinWaitMillis;
+  }
+
+  /**
+   * Maximum wait time before a retry of the registration
+   *
+   * @return wait time in millis
+   */
+  public long commitRetryMaxWaitMillis() {
+    return commitRetryMaxWaitMillis;
+  }
+}
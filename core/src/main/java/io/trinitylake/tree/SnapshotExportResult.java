@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import org.immutables.value.Value;
+
+@Value.Immutable
+public interface SnapshotExportResult {
+
+  /**
+   * Location of the exported root node file in the target storage, which is registered as the
+   * exported snapshot in the lakehouse definition
+   *
+   * @return root node file location
+   */
+  String rootNodeFileLocation();
+
+  /**
+   * Number of files copied to the target storage
+   *
+   * @return number of files
+   */
+  long numCopiedFiles();
+
+  /**
+   * Number of files skipped because they already exist in the target storage
+   *
+   * @return number of files
+   */
+  long numSkippedFiles();
+
+  /**
+   * Number of bytes copied to the target storage
+   *
+   * @return number of bytes
+   */
+  long numCopiedBytes();
+
+  /**
+   * The new tree root of the source lakehouse committed to register the export
+   *
+   * @return committed root
+   */
+  TreeRoot committedRoot();
+}
@@ -0,0 +1,219 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.FileLocations;
+import io.trinitylake.exception.StorageFileOpenFailureException;
+import io.trinitylake.exception.StoragePathNotFoundException;
+import io.trinitylake.exception.StorageReadFailureException;
+import io.trinitylake.exception.TrinityLakeRuntimeException;
+import io.trinitylake.relocated.com.google.common.collect.Lists;
+import io.trinitylake.relocated.com.google.common.collect.Maps;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.util.FileUtil;
+import io.trinitylake.util.FutureUtil;
+import io.trinitylake.util.ValidationUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index from the creation time of root versions to versions, to find the root at a point in time
+ * without reading all the roots committed since then.
+ *
+ * <p>Versions are grouped into segments of a fixed number of versions. Once the last version of a
+ * segment is committed, the creation times of all the versions in the segment are written to a
+ * timestamp index file of the segment, which is never changed afterward. Versions in a segment
+ * without a timestamp index file, like the versions after the last complete segment, are looked up
+ * by reading their root node files.
+ */
+public class TimestampIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TimestampIndex.class);
+
+  static final int SEGMENT_SIZE = 256;
+
+  private TimestampIndex() {}
+
+  /**
+   * Write the timestamp index file of the segment completed by a committed version, if any. Like
+   * the version hint file, failing to write the file is logged and not propagated, and lookups in
+   * the segment fall back to reading root node files.
+   *
+   * <p>Only the creation time of each root is read, without going through the decoded file cache,
+   * so that building a segment does not evict the roots and nodes used by readers. A segment with
+   * versions that are already expired is skipped.
+   *
+   * @param storage lakehouse storage
+   * @param committedVersion committed root version
+   */
+  public static void tryWriteSegmentFile(LakehouseStorage storage, long committedVersion) {
+    if ((committedVersion + 1) % SEGMENT_SIZE != 0) {
+      return;
+    }
+
+    long segment = committedVersion / SEGMENT_SIZE;
+    if (isExpiredSegment(storage, segment)) {
+      LOG.debug("Versions of segment {} are expired, skip timestamp index file", segment);
+      return;
+    }
+
+    List<Future<Long>> reads = Lists.newArrayListWithCapacity(SEGMENT_SIZE);
+    for (long version = segment * SEGMENT_SIZE; version <= committedVersion; version++) {
+      String path = FileLocations.rootNodeFilePath(version);
+      reads.add(storage.executor().submit(() -> readUncachedCreatedAtMillis(storage, path)));
+    }
+
+    try {
+      StringBuilder sb = new StringBuilder();
+      for (long createdAtMillis : FutureUtil.awaitAll(reads, "read root node files")) {
+        sb.append(createdAtMillis).append('\n');
+      }
+
+      try (OutputStream stream =
+          storage.startCommit(FileLocations.timestampIndexFilePath(segment))) {
+        stream.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+      }
+    } catch (IOException | RuntimeException e) {
+      if (isExpiredSegment(storage, segment)) {
+        LOG.info("Versions of segment {} are expired, skip timestamp index file", segment);
+      } else {
+        LOG.error("Failed to write timestamp index file of segment {}", segment, e);
+      }
+    }
+  }
+
+  private static boolean isExpiredSegment(LakehouseStorage storage, long segment) {
+    try {
+      return segment * SEGMENT_SIZE < TreeOperations.findMinimumVersion(storage);
+    } catch (TrinityLakeRuntimeException e) {
+      LOG.warn("Failed to read minimum version, assume segment {} is not expired", segment, e);
+      return false;
+    }
+  }
+
+  /**
+   * Find the latest version in a version range that is created before the given timestamp, by
+   * binary search over the versions. Creation times are expected to increase with versions.
+   *
+   * @param storage lakehouse storage
+   * @param fromVersion lowest version of the range, inclusive
+   * @param toVersion highest version of the range, inclusive
+   * @param latestVersion latest committed version, which tells the complete segments
+   * @param timestampMillis timestamp in epoch millis, exclusive
+   * @return latest version created before the timestamp, or empty if there is none in the range
+   */
+  public static Optional<Long> findLatestVersionBefore(
+      LakehouseStorage storage,
+      long fromVersion,
+      long toVersion,
+      long latestVersion,
+      long timestampMillis) {
+    Map<Long, Optional<long[]>> segments = Maps.newHashMap();
+    Optional<Long> result = Optional.empty();
+    long low = fromVersion;
+    long high = toVersion;
+    while (low <= high) {
+      long mid = low + (high - low) / 2;
+      if (createdAtMillis(storage, segments, latestVersion, mid) < timestampMillis) {
+        result = Optional.of(mid);
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+
+    return result;
+  }
+
+  private static long createdAtMillis(
+      LakehouseStorage storage,
+      Map<Long, Optional<long[]>> segments,
+      long latestVersion,
+      long version) {
+    long segment = version / SEGMENT_SIZE;
+    boolean isCompleteSegment = (segment + 1) * SEGMENT_SIZE - 1 <= latestVersion;
+    Optional<long[]> createdAtMillis =
+        isCompleteSegment
+            ? segments.computeIfAbsent(segment, s -> readSegmentFile(storage, s))
+            : Optional.empty();
+    if (createdAtMillis.isPresent()) {
+      return createdAtMillis.get()[(int) (version % SEGMENT_SIZE)];
+    }
+
+    return readCreatedAtMillis(storage, version);
+  }
+
+  private static long readCreatedAtMillis(LakehouseStorage storage, long version) {
+    TreeRoot root =
+        TreeOperations.readCachedRootNodeFile(storage, FileLocations.rootNodeFilePath(version));
+    ValidationUtil.checkArgument(
+        root.createdAtMillis().isPresent(),
+        "Tree root must be persisted with a timestamp in storage");
+    return root.createdAtMillis().get();
+  }
+
+  private static long readUncachedCreatedAtMillis(LakehouseStorage storage, String path) {
+    Optional<Long> createdAtMillis = TreeOperations.readRootNodeCreatedAtMillis(storage, path);
+    ValidationUtil.checkArgument(
+        createdAtMillis.isPresent(), "Tree root must be persisted with a timestamp in storage");
+    return createdAtMillis.get();
+  }
+
+  private static Optional<long[]> readSegmentFile(LakehouseStorage storage, long segment) {
+    String path = FileLocations.timestampIndexFilePath(segment);
+    try {
+      return Optional.of(
+          storage
+              .decodedFileCache()
+              .get(
+                  path,
+                  segmentPath -> decodeSegmentFile(storage, segmentPath),
+                  createdAtMillis -> (long) createdAtMillis.length * Long.BYTES));
+    } catch (StorageFileOpenFailureException
+        | StoragePathNotFoundException
+        | StorageReadFailureException e) {
+      LOG.warn("Failed to read timestamp index file {}, fallback to read root nodes", path, e);
+      return Optional.empty();
+    }
+  }
+
+  private static long[] decodeSegmentFile(LakehouseStorage storage, String path) {
+    try (InputStream stream = storage.startRead(path)) {
+      String[] lines = FileUtil.readToString(stream).split("\n");
+      if (lines.length != SEGMENT_SIZE) {
+        throw new StorageReadFailureException(
+            "Timestamp index file %s has %d versions instead of %d",
+            path,
+            lines.length,
+            SEGMENT_SIZE);
+      }
+
+      long[] createdAtMillis = new long[SEGMENT_SIZE];
+      for (int i = 0; i < SEGMENT_SIZE; i++) {
+        createdAtMillis[i] = Long.parseLong(lines[i]);
+      }
+      return createdAtMillis;
+    } catch (IOException | NumberFormatException e) {
+      throw new StorageReadFailureException(e, "Failed to read timestamp index file %s", path);
+    }
+  }
+}
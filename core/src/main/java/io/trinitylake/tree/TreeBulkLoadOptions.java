@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.StringMapBased;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableSet;
+import io.trinitylake.util.PropertyUtil;
+import io.trinitylake.util.ValidationUtil;
+import java.util.Map;
+import java.util.Set;
+
+public class TreeBulkLoadOptions implements StringMapBased {
+
+  public static final String FILL_FACTOR = "bulk-load.fill-factor";
+  public static final double FILL_FACTOR_DEFAULT = 0.8;
+
+  public static final Set<String> OPTIONS = ImmutableSet.<String>builder().add(FILL_FACTOR).build();
+
+  private final Map<String, String> options;
+  private final double fillFactor;
+
+  public TreeBulkLoadOptions() {
+    this(ImmutableMap.of());
+  }
+
+  public TreeBulkLoadOptions(Map<String, String> options) {
+    this.options = PropertyUtil.filterProperties(options, OPTIONS::contains);
+    this.fillFactor = PropertyUtil.propertyAsDouble(options, FILL_FACTOR, FILL_FACTOR_DEFAULT);
+    ValidationUtil.checkArgument(
+        fillFactor > 0 && fillFactor <= 1,
+        "%s must be in range (0, 1], but got %s",
+        FILL_FACTOR,
+        fillFactor);
+  }
+
+  @Override
+  public Map<String, String> asStringMap() {
+    return options;
+  }
+
+  /**
+   * Fraction of the lakehouse order and node file max size that each node built by a bulk load is
+   * filled to, leaving room for later changes before the node is split
+   *
+   * @return fill factor
+   */
+  public double fillFactor() {
+    return fillFactor;
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.FileLocations;
+import io.trinitylake.exception.StorageAtomicSealFailureException;
+import io.trinitylake.models.LakehouseDef;
+import io.trinitylake.relocated.com.google.common.collect.AbstractIterator;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableList;
+import io.trinitylake.relocated.com.google.common.collect.Iterators;
+import io.trinitylake.relocated.com.google.common.collect.Lists;
+import io.trinitylake.relocated.com.google.common.collect.PeekingIterator;
+import io.trinitylake.relocated.com.google.common.collect.Queues;
+import io.trinitylake.relocated.com.google.common.collect.Sets;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.util.FutureUtil;
+import io.trinitylake.util.ValidationUtil;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * Bulk loader of the TrinityLake tree, which builds the tree bottom-up from rows sorted by key and
+ * commits it as a single new root version.
+ *
+ * <p>Nodes are filled in key order up to the fill factor of the options, and the key separating
+ * two nodes of the same level is moved to the level above, so that all the levels are built in a
+ * single pass over the rows. Complete nodes are written in parallel while the rows are still being
+ * read, with a bounded number of pending writes, so that the rows are streamed instead of being
+ * held in memory.
+ */
+public class TreeBulkLoader {
+
+  // upper bound of the keys when scanning all the rows of a tree
+  private static final String MAX_KEY = String.valueOf(Character.MAX_VALUE);
+
+  private final LakehouseStorage storage;
+  private final int maxKeysPerNode;
+  private final long maxNodeSizeBytes;
+  private final int maxPendingWrites;
+  private final List<Level> levels;
+  private final Deque<Future<?>> pendingWrites;
+
+  private TreeBulkLoader(
+      LakehouseStorage storage, LakehouseDef lakehouseDef, TreeBulkLoadOptions options) {
+    this.storage = storage;
+    int order = TreeOperations.lakehouseOrder(lakehouseDef);
+    // a node can take one more key than the fill factor allows when it is the last of its level
+    this.maxKeysPerNode =
+        Math.max(1, Math.min(order - 2, (int) (options.fillFactor() * (order - 1))));
+    this.maxNodeSizeBytes =
+        lakehouseDef.hasNodeFileMaxSizeBytes()
+            ? (long) (options.fillFactor() * lakehouseDef.getNodeFileMaxSizeBytes())
+            : 0;
+    this.maxPendingWrites = storage.ops().commonProperties().ioParallelism() * 2;
+    this.levels = Lists.newArrayList(new Level(FileLocations.newNodeFilePath()));
+    this.pendingWrites = Queues.newArrayDeque();
+  }
+
+  public static TreeRoot load(LakehouseStorage storage, Iterator<NodeKeyTableRow> rows) {
+    return load(storage, rows, new TreeBulkLoadOptions());
+  }
+
+  /**
+   * Load rows into the tree and commit the result as a new root version.
+   *
+   * <p>The rows are merged with the rows of the latest tree root, with the messages in its write
+   * buffer applied, and a loaded row replaces an existing row of the same key. Node pointers of the
+   * loaded rows are ignored. As with a write buffer flush, the messages of the latest committed
+   * transaction are kept in the write buffer of the new root for conflict detection, except for
+   * the keys replaced by loaded rows.
+   *
+   * <p>All the existing rows are read and written to new node files, so the cost of a load is
+   * proportional to the size of the lakehouse, not to the number of loaded rows.
+   *
+   * @param storage lakehouse storage
+   * @param rows rows sorted by key, without duplicate keys
+   * @param options bulk load options
+   * @return committed root
+   * @throws StorageAtomicSealFailureException if another writer commits the same root version
+   *     first
+   */
+  public static TreeRoot load(
+      LakehouseStorage storage, Iterator<NodeKeyTableRow> rows, TreeBulkLoadOptions options) {
+    TreeRoot latest = TreeOperations.findLatestRoot(storage);
+    LakehouseDef lakehouseDef = TreeOperations.findLakehouseDef(storage, latest);
+    Iterator<NodeKeyTableRow> existingRows = TreeOperations.scan(storage, latest, "", MAX_KEY);
+    List<WriteBufferMessage> messages = latest.writeBuffer();
+    Set<String> retainedKeys = TreeOperations.retainedKeys(messages);
+    Set<String> replacedKeys = Sets.newHashSet();
+    Iterator<NodeKeyTableRow> loadedRows =
+        Iterators.transform(
+            rows,
+            row -> {
+              if (retainedKeys.contains(row.key())) {
+                replacedKeys.add(row.key());
+              }
+              return row;
+            });
+    TreeRoot newRoot =
+        new TreeBulkLoader(storage, lakehouseDef, options)
+            .build(mergeRows(existingRows, loadedRows));
+    messages.stream()
+        .filter(
+            message ->
+                retainedKeys.contains(message.key()) && !replacedKeys.contains(message.key()))
+        .forEach(newRoot::appendMessage);
+
+    newRoot.setLakehouseDefFilePath(latest.lakehouseDefFilePath());
+    TreeOperations.commitRootNodeFile(storage, latest.path().get(), newRoot);
+    return newRoot;
+  }
+
+  private static Iterator<NodeKeyTableRow> mergeRows(
+      Iterator<NodeKeyTableRow> existingRows, Iterator<NodeKeyTableRow> loadedRows) {
+    PeekingIterator<NodeKeyTableRow> existing = Iterators.peekingIterator(existingRows);
+    PeekingIterator<NodeKeyTableRow> loaded = Iterators.peekingIterator(loadedRows);
+    return new AbstractIterator<NodeKeyTableRow>() {
+      @Override
+      protected NodeKeyTableRow computeNext() {
+        if (!existing.hasNext()) {
+          return loaded.hasNext() ? loaded.next() : endOfData();
+        }
+
+        if (!loaded.hasNext()) {
+          return existing.next();
+        }
+
+        int comparison = existing.peek().key().compareTo(loaded.peek().key());
+        if (comparison < 0) {
+          return existing.next();
+        }
+
+        if (comparison == 0) {
+          existing.next();
+        }
+        return loaded.next();
+      }
+    };
+  }
+
+  private TreeRoot build(Iterator<NodeKeyTableRow> rows) {
+    try {
+      String lastKey = null;
+      while (rows.hasNext()) {
+        NodeKeyTableRow row = rows.next();
+        ValidationUtil.checkArgument(
+            lastKey == null || lastKey.compareTo(row.key()) < 0,
+            "Rows must be sorted by key without duplicates, but got %s after %s",
+            row.key(),
+            lastKey);
+        lastKey = row.key();
+        add(0, ImmutableNodeKeyTableRow.builder().key(row.key()).value(row.value()).build());
+      }
+
+      int topLevel = levels.size() - 1;
+      for (int level = 0; level < topLevel; level++) {
+        writeNode(completeNode(levels.get(level)), levels.get(level).nodePath);
+      }
+
+      TreeRoot root = new BasicTreeRoot();
+      TreeNode topNode = completeNode(levels.get(topLevel));
+      topNode.leftmostNodePointer().ifPresent(root::setLeftmostNodePointer);
+      for (int i = 0; i < topNode.numKeys(); i++) {
+        String key = topNode.keyAt(i);
+        root.set(key, topNode.valueAt(i));
+        topNode.nodePointerAt(i).ifPresent(pointer -> root.setNodePointer(key, pointer));
+      }
+
+      FutureUtil.awaitAll(pendingWrites, "write node files");
+      return root;
+    } catch (RuntimeException e) {
+      pendingWrites.forEach(write -> write.cancel(true));
+      throw e;
+    }
+  }
+
+  /**
+   * Add a row to the last node of a level. A row that does not fit in the node is kept as the
+   * separator of the node, and is only moved to the level above once another row follows it, so
+   * that no node is left empty.
+   */
+  private void add(int levelIndex, NodeKeyTableRow row) {
+    if (levelIndex == levels.size()) {
+      Level newLevel = new Level(FileLocations.newNodeFilePath());
+      newLevel.node.setLeftmostNodePointer(levels.get(levelIndex - 1).nodePath);
+      levels.add(newLevel);
+    }
+
+    Level level = levels.get(levelIndex);
+    if (level.separator != null) {
+      writeNode(level.node, level.nodePath);
+      String nextNodePath = FileLocations.newNodeFilePath();
+      add(
+          levelIndex + 1,
+          ImmutableNodeKeyTableRow.builder()
+              .from(level.separator)
+              .nodePointer(nextNodePath)
+              .build());
+      level.node = new BasicTreeNode();
+      level.separator.nodePointer().ifPresent(level.node::setLeftmostNodePointer);
+      level.nodePath = nextNodePath;
+      level.separator = null;
+    }
+
+    if (isFull(level.node)) {
+      level.separator = row;
+    } else {
+      TreeOperations.setRow(level.node, row);
+    }
+  }
+
+  private static TreeNode completeNode(Level level) {
+    if (level.separator != null) {
+      TreeOperations.setRow(level.node, level.separator);
+      level.separator = null;
+    }
+    return level.node;
+  }
+
+  private boolean isFull(TreeNode node) {
+    return node.numKeys() >= maxKeysPerNode
+        || (maxNodeSizeBytes > 0
+            && TreeOperations.estimateNodeKeyTableSizeBytes(node) >= maxNodeSizeBytes);
+  }
+
+  private void writeNode(TreeNode node, String path) {
+    if (pendingWrites.size() >= maxPendingWrites) {
+      FutureUtil.awaitAll(ImmutableList.of(pendingWrites.poll()), "write node file");
+    }
+
+    pendingWrites.add(
+        storage.executor().submit(() -> TreeOperations.writeNodeFile(storage, path, node)));
+  }
+
+  /** Last node of a level of the tree being built, which is not yet written. */
+  private static class Level {
+
+    private TreeNode node;
+    private String nodePath;
+    private NodeKeyTableRow separator;
+
+    Level(String nodePath) {
+      this.node = new BasicTreeNode();
+      this.nodePath = nodePath;
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.exception.StorageAtomicSealFailureException;
+import io.trinitylake.models.LakehouseDef;
+import io.trinitylake.storage.LakehouseStorage;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compaction of the TrinityLake tree, which flushes the messages in the write buffer of the latest
+ * tree root to the node key tables, so that readers do not need to merge them on read.
+ */
+public class TreeCompaction {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TreeCompaction.class);
+
+  private TreeCompaction() {}
+
+  /**
+   * Compact the latest tree root and commit the result as a new root version.
+   *
+   * <p>Messages of the latest committed transaction are kept in the write buffer. The node and I/O
+   * budgets in the options are checked before flushing each message, messages that are not flushed
+   * within the budget stay in the write buffer for the next run. If another writer commits the
+   * same root version first, the compaction result is discarded.
+   *
+   * @param storage lakehouse storage
+   * @param options compaction options
+   * @return compaction result
+   */
+  public static TreeCompactionResult compact(
+      LakehouseStorage storage, TreeCompactionOptions options) {
+    TreeRoot latest = TreeOperations.findLatestRoot(storage);
+    if (latest.writeBuffer().isEmpty()) {
+      return ImmutableTreeCompactionResult.builder()
+          .numFlushedMessages(0)
+          .numWrittenNodes(0)
+          .numIoRequests(0)
+          .build();
+    }
+
+    LakehouseDef lakehouseDef = TreeOperations.findLakehouseDef(storage, latest);
+    TreeRoot newRoot = TreeOperations.cloneTreeRoot(latest);
+    AtomicInteger numNodeFileReads = new AtomicInteger();
+    int numFlushedMessages =
+        TreeOperations.flushWriteBuffer(
+            storage,
+            lakehouseDef,
+            newRoot,
+            numNodeFileReads,
+            () ->
+                newRoot.dirtyNodes().size() >= options.maxNodesPerRun()
+                    || numNodeFileReads.get() + newRoot.dirtyNodes().size()
+                        >= options.maxIoRequestsPerRun());
+
+    // dirty nodes are only written together with the new root
+    int numWrittenNodes = newRoot.dirtyNodes().size();
+    ImmutableTreeCompactionResult.Builder result =
+        ImmutableTreeCompactionResult.builder()
+            .numFlushedMessages(numFlushedMessages)
+            .numWrittenNodes(numWrittenNodes)
+            .numIoRequests(numNodeFileReads.get() + numWrittenNodes);
+    if (numFlushedMessages == 0) {
+      return result.build();
+    }
+
+    try {
+      TreeOperations.commitRootNodeFile(storage, latest.path().get(), newRoot);
+    } catch (StorageAtomicSealFailureException e) {
+      LOG.info(
+          "Root version after {} is committed by another writer, skip compaction",
+          latest.path().get());
+      return result.build();
+    }
+
+    return result.committedRoot(newRoot).build();
+  }
+}
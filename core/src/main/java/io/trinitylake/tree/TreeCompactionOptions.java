@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.StringMapBased;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableSet;
+import io.trinitylake.util.PropertyUtil;
+import io.trinitylake.util.ValidationUtil;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class TreeCompactionOptions implements StringMapBased {
+
+  public static final String INTERVAL_MILLIS = "compaction.interval-millis";
+  public static final long INTERVAL_MILLIS_DEFAULT = TimeUnit.MINUTES.toMillis(1);
+
+  public static final String MAX_NODES_PER_RUN = "compaction.max-nodes-per-run";
+  public static final int MAX_NODES_PER_RUN_DEFAULT = 1000;
+
+  public static final String MAX_IO_REQUESTS_PER_RUN = "compaction.max-io-requests-per-run";
+  public static final int MAX_IO_REQUESTS_PER_RUN_DEFAULT = 5000;
+
+  public static final Set<String> OPTIONS =
+      ImmutableSet.<String>builder()
+          .add(INTERVAL_MILLIS)
+          .add(MAX_NODES_PER_RUN)
+          .add(MAX_IO_REQUESTS_PER_RUN)
+          .build();
+
+  private final Map<String, String> options;
+  private final long intervalMillis;
+  private final int maxNodesPerRun;
+  private final int maxIoRequestsPerRun;
+
+  public TreeCompactionOptions() {
+    this(ImmutableMap.of());
+  }
+
+  public TreeCompactionOptions(Map<String, String> options) {
+    this.options = PropertyUtil.filterProperties(options, OPTIONS::contains);
+    this.intervalMillis =
+        PropertyUtil.propertyAsLong(options, INTERVAL_MILLIS, INTERVAL_MILLIS_DEFAULT);
+    this.maxNodesPerRun =
+        PropertyUtil.propertyAsInt(options, MAX_NODES_PER_RUN, MAX_NODES_PER_RUN_DEFAULT);
+    this.maxIoRequestsPerRun =
+        PropertyUtil.propertyAsInt(
+            options, MAX_IO_REQUESTS_PER_RUN, MAX_IO_REQUESTS_PER_RUN_DEFAULT);
+    ValidationUtil.checkArgument(
+        intervalMillis > 0, "%s must be positive, but got %s", INTERVAL_MILLIS, intervalMillis);
+    ValidationUtil.checkArgument(
+        maxNodesPerRun > 0, "%s must be positive, but got %s", MAX_NODES_PER_RUN, maxNodesPerRun);
+    ValidationUtil.checkArgument(
+        maxIoRequestsPerRun > 0,
+        "%s must be positive, but got %s",
+        MAX_IO_REQUESTS_PER_RUN,
+        maxIoRequestsPerRun);
+  }
+
+  @Override
+  public Map<String, String> asStringMap() {
+    return options;
+  }
+
+  /**
+   * Interval between the end of a scheduled compaction run and the start of the next one
+   *
+   * @return interval in millis
+   */
+  public long intervalMillis() {
+    return intervalMillis;
+  }
+
+  /**
+   * Maximum number of node files to write in a compaction run, excluding the new root
+   *
+   * @return max number of nodes
+   */
+  public int maxNodesPerRun() {
+    return maxNodesPerRun;
+  }
+
+  /**
+   * Maximum number of node file read and write requests against storage in a compaction run
+   *
+   * @return max number of I/O requests
+   */
+  public int maxIoRequestsPerRun() {
+    return maxIoRequestsPerRun;
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import java.util.Optional;
+import org.immutables.value.Value;
+
+@Value.Immutable
+public interface TreeCompactionResult {
+
+  int numFlushedMessages();
+
+  int numWrittenNodes();
+
+  int numIoRequests();
+
+  /**
+   * The new tree root committed by the compaction, if any message is flushed and the commit
+   * succeeds
+   *
+   * @return committed root
+   */
+  Optional<TreeRoot> committedRoot();
+}
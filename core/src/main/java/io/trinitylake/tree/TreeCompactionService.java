@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.relocated.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.util.ValidationUtil;
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** A service that runs {@link TreeCompaction} against a lakehouse periodically in background. */
+public class TreeCompactionService implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TreeCompactionService.class);
+
+  private final LakehouseStorage storage;
+  private final TreeCompactionOptions options;
+  private final ScheduledExecutorService executor;
+  private ScheduledFuture<?> scheduledRuns;
+
+  public TreeCompactionService(LakehouseStorage storage, TreeCompactionOptions options) {
+    this.storage = storage;
+    this.options = options;
+    this.executor =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("trinitylake-tree-compaction-%d")
+                .build());
+  }
+
+  public synchronized void start() {
+    ValidationUtil.checkState(scheduledRuns == null, "Tree compaction service is already started");
+    this.scheduledRuns =
+        executor.scheduleWithFixedDelay(
+            this::runScheduled,
+            options.intervalMillis(),
+            options.intervalMillis(),
+            TimeUnit.MILLISECONDS);
+  }
+
+  public TreeCompactionResult runOnce() {
+    return TreeCompaction.compact(storage, options);
+  }
+
+  private void runScheduled() {
+    // a failed run must not throw, otherwise all subsequent runs are cancelled
+    try {
+      TreeCompactionResult result = runOnce();
+      LOG.debug(
+          "Flushed {} messages with {} nodes written and {} I/O requests",
+          result.numFlushedMessages(),
+          result.numWrittenNodes(),
+          result.numIoRequests());
+    } catch (RuntimeException e) {
+      LOG.warn("Failed to compact tree, retry in the next run", e);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (scheduledRuns != null) {
+      scheduledRuns.cancel(false);
+    }
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.relocated.com.google.common.collect.ImmutableList;
+import io.trinitylake.relocated.com.google.common.collect.Lists;
+import io.trinitylake.relocated.com.google.common.collect.Sets;
+import io.trinitylake.storage.LakehouseStorage;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Iterator of the keys with different values in two trees, ordered by key.
+ *
+ * <p>Trees of different versions share the nodes that are not changed in between by node pointer,
+ * and the subtree of a shared node is identical in both trees. The trees are walked level by level
+ * together, and a node that is also reachable from the other tree is not walked. A key can only
+ * have different values if it is in the key table or the write buffer of a walked node of either
+ * tree, so only these keys are searched in both trees while iterating. Searches go through the
+ * decoded file cache, and read the same walked nodes again in most cases.
+ */
+class TreeDiffIterator implements Iterator<KeyDiff> {
+
+  private final LakehouseStorage storage;
+  private final TreeNode startNodeA;
+  private final TreeNode startNodeB;
+  private final Iterator<String> candidateKeys;
+  private KeyDiff next;
+
+  TreeDiffIterator(LakehouseStorage storage, TreeNode startNodeA, TreeNode startNodeB) {
+    this.storage = storage;
+    this.startNodeA = startNodeA;
+    this.startNodeB = startNodeB;
+    this.candidateKeys = findCandidateKeys().iterator();
+  }
+
+  private NavigableSet<String> findCandidateKeys() {
+    NavigableSet<String> keys = Sets.newTreeSet();
+    if (startNodeA.path().isPresent() && startNodeA.path().equals(startNodeB.path())) {
+      return keys;
+    }
+
+    Map<String, TreeNode> dirtyNodesA = TreeOperations.dirtyNodes(startNodeA);
+    Map<String, TreeNode> dirtyNodesB = TreeOperations.dirtyNodes(startNodeB);
+    Set<String> pathsA = Sets.newHashSet();
+    Set<String> pathsB = Sets.newHashSet();
+    List<TreeNode> nodesA = ImmutableList.of(startNodeA);
+    List<TreeNode> nodesB = ImmutableList.of(startNodeB);
+    while (!nodesA.isEmpty() || !nodesB.isEmpty()) {
+      List<String> childNodePathsA = collectKeys(nodesA, keys);
+      List<String> childNodePathsB = collectKeys(nodesB, keys);
+      pathsA.addAll(childNodePathsA);
+      pathsB.addAll(childNodePathsB);
+      nodesA = readUnsharedNodes(dirtyNodesA, childNodePathsA, pathsB);
+      nodesB = readUnsharedNodes(dirtyNodesB, childNodePathsB, pathsA);
+    }
+
+    return keys;
+  }
+
+  private static List<String> collectKeys(List<TreeNode> nodes, Set<String> keys) {
+    List<String> childNodePaths = Lists.newArrayList();
+    for (TreeNode node : nodes) {
+      node.leftmostNodePointer().ifPresent(childNodePaths::add);
+      for (NodeKeyTableRow row : node.nodeKeyTable()) {
+        keys.add(row.key());
+        row.nodePointer().ifPresent(childNodePaths::add);
+      }
+
+      for (WriteBufferMessage message : node.writeBuffer()) {
+        keys.add(message.key());
+      }
+    }
+
+    return childNodePaths;
+  }
+
+  private List<TreeNode> readUnsharedNodes(
+      Map<String, TreeNode> dirtyNodes, List<String> paths, Set<String> otherTreePaths) {
+    List<TreeNode> nodes = Lists.newArrayList();
+    for (String path : paths) {
+      if (!otherTreePaths.contains(path)) {
+        nodes.add(TreeOperations.readCachedNodeFile(storage, dirtyNodes, path));
+      }
+    }
+
+    return nodes;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (next == null && candidateKeys.hasNext()) {
+      String key = candidateKeys.next();
+      Optional<String> beforeValue = TreeOperations.searchValue(storage, startNodeA, key);
+      Optional<String> afterValue = TreeOperations.searchValue(storage, startNodeB, key);
+      if (!beforeValue.equals(afterValue)) {
+        this.next =
+            ImmutableKeyDiff.builder()
+                .key(key)
+                .beforeValue(beforeValue)
+                .afterValue(afterValue)
+                .build();
+      }
+    }
+
+    return next != null;
+  }
+
+  @Override
+  public KeyDiff next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    KeyDiff result = next;
+    this.next = null;
+    return result;
+  }
+}
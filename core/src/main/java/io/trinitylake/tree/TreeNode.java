@@ -47,11 +47,116 @@ public interface TreeNode {
    */
   int numKeys();
 
+  /**
+   * Key at the given index of the node key table, where keys are ordered from index 0 to {@link
+   * #numKeys()} - 1
+   *
+   * @param index index of the row
+   * @return key
+   */
+  String keyAt(int index);
+
+  /**
+   * Value at the given index of the node key table
+   *
+   * @param index index of the row
+   * @return value
+   */
+  String valueAt(int index);
+
+  /**
+   * Pointer to the child node at the given index of the node key table, which covers keys between
+   * the key at the index and the key at the next index
+   *
+   * @param index index of the row
+   * @return node pointer
+   */
+  Optional<String> nodePointerAt(int index);
+
+  /**
+   * Search the node key table for the given key.
+   *
+   * <p>If the key is not in the node key table, the result contains the pointer to the child node
+   * that covers the key, if the node is not a leaf.
+   *
+   * @param key key to search
+   * @return search result
+   */
   NodeSearchResult search(String key);
 
   void set(String key, String value);
 
   void remove(String key);
 
+  void clearNodeKeyTable();
+
+  /**
+   * Pointer to the child node that covers all keys lower than the first key in the node key table,
+   * which is stored in the first row of the node key table with NULL key and NULL value. A node
+   * without this pointer is a leaf node.
+   *
+   * @return leftmost node pointer
+   */
+  Optional<String> leftmostNodePointer();
+
+  void setLeftmostNodePointer(String nodePointer);
+
+  void clearLeftmostNodePointer();
+
+  /**
+   * Pointer to the child node that covers keys between the given key and the next key in the node
+   * key table
+   *
+   * @param key key in the node key table
+   * @return node pointer
+   */
+  Optional<String> nodePointer(String key);
+
+  void setNodePointer(String key, String nodePointer);
+
+  void clearNodePointer(String key);
+
+  /**
+   * The greatest key in the node key table that is strictly lower than the given key
+   *
+   * @param key key to compare
+   * @return lower key, or empty if the given key is covered by the leftmost node pointer
+   */
+  Optional<String> lowerKey(String key);
+
+  /**
+   * Rows of the node key table ordered by key, excluding the first row that only holds the
+   * leftmost node pointer
+   *
+   * @return node key table rows
+   */
   List<NodeKeyTableRow> nodeKeyTable();
+
+  /**
+   * Messages in the write buffer of the node, in the order they are appended
+   *
+   * @return write buffer messages
+   */
+  List<WriteBufferMessage> writeBuffer();
+
+  /**
+   * The number of messages in the write buffer of the node
+   *
+   * @return number of messages
+   */
+  int numMessages();
+
+  /**
+   * Message at the given index of the write buffer, where messages are ordered from index 0 to
+   * {@link #numMessages()} - 1 in the order they are appended. Unlike {@link #writeBuffer()}, this
+   * does not copy the write buffer.
+   *
+   * @param index index of the message
+   * @return write buffer message
+   */
+  WriteBufferMessage messageAt(int index);
+
+  void appendMessage(WriteBufferMessage message);
+
+  void clearWriteBuffer();
 }
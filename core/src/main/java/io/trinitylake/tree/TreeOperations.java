@@ -16,33 +16,48 @@ package io.trinitylake.tree;
 import io.trinitylake.FileLocations;
 import io.trinitylake.ObjectDefinitions;
 import io.trinitylake.ObjectKeys;
+import io.trinitylake.exception.CommitFailureException;
 import io.trinitylake.exception.StorageAtomicSealFailureException;
+import io.trinitylake.exception.StorageDeleteFailureException;
 import io.trinitylake.exception.StorageFileOpenFailureException;
 import io.trinitylake.exception.StorageReadFailureException;
 import io.trinitylake.exception.StorageWriteFailureException;
 import io.trinitylake.models.LakehouseDef;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableList;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
 import io.trinitylake.relocated.com.google.common.collect.Lists;
+import io.trinitylake.relocated.com.google.common.collect.Maps;
+import io.trinitylake.relocated.com.google.common.collect.Sets;
+import io.trinitylake.relocated.com.google.common.io.ByteStreams;
 import io.trinitylake.storage.AtomicOutputStream;
 import io.trinitylake.storage.LakehouseStorage;
 import io.trinitylake.storage.local.LocalInputStream;
+import io.trinitylake.util.CloseableIterable;
 import io.trinitylake.util.FileUtil;
+import io.trinitylake.util.FutureUtil;
 import io.trinitylake.util.ValidationUtil;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
 import org.apache.arrow.memory.BufferAllocator;
-import org.apache.arrow.memory.RootAllocator;
-import org.apache.arrow.vector.FieldVector;
 import org.apache.arrow.vector.VarCharVector;
 import org.apache.arrow.vector.VectorSchemaRoot;
 import org.apache.arrow.vector.ipc.ArrowFileReader;
 import org.apache.arrow.vector.ipc.ArrowFileWriter;
 import org.apache.arrow.vector.ipc.message.ArrowBlock;
-import org.apache.arrow.vector.types.pojo.Field;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,132 +65,552 @@ public class TreeOperations {
 
   private static final Logger LOG = LoggerFactory.getLogger(TreeOperations.class);
 
+  static final long FILE_COPY_SKIPPED = -1;
+
   private static final int NODE_FILE_KEY_COLUMN_INDEX = 0;
   private static final String NODE_FILE_KEY_COLUMN_NAME = "key";
 
   private static final int NODE_FILE_VALUE_COLUMN_INDEX = 1;
   private static final String NODE_FILE_VALUE_COLUMN_NAME = "value";
 
+  private static final int NODE_FILE_NODE_POINTER_COLUMN_INDEX = 2;
+  private static final String NODE_FILE_NODE_POINTER_COLUMN_NAME = "pnode";
+
+  private static final int NODE_FILE_TRANSACTION_COLUMN_INDEX = 3;
+  private static final String NODE_FILE_TRANSACTION_COLUMN_NAME = "txn";
+
+  private static final int LAKEHOUSE_ORDER_DEFAULT = 128;
+
+  // rough heap overhead of the string objects and row slots of a decoded row
+  private static final long DECODED_ROW_OVERHEAD_BYTES = 64;
+
   private TreeOperations() {}
 
   /**
    * Clone a tree root, excluding persistence specific information like path and creation time.
+   * Dirty nodes of the root are cloned together with it.
    *
    * @param node root to be cloned
    * @return cloned root
    */
   public static TreeRoot cloneTreeRoot(TreeRoot node) {
-    TreeRoot clonedRoot = new BasicTreeRoot();
-    node.nodeKeyTable().forEach(entry -> clonedRoot.set(entry.key(), entry.value()));
+    TreeRoot clonedRoot = copyRoot(node);
     clonedRoot.setLakehouseDefFilePath(node.lakehouseDefFilePath());
+    node.dirtyNodes()
+        .forEach((path, dirtyNode) -> clonedRoot.putDirtyNode(path, copyNode(dirtyNode)));
     return clonedRoot;
   }
 
+  /**
+   * Copy the node key table, leftmost node pointer and write buffer of a root. A {@link
+   * BasicTreeNode} is copied in O(1) by sharing its state until either root is changed.
+   */
+  private static TreeRoot copyRoot(TreeNode node) {
+    if (node instanceof BasicTreeNode) {
+      return new BasicTreeRoot((BasicTreeNode) node);
+    }
+
+    TreeRoot copiedRoot = new BasicTreeRoot();
+    copyRows(node, 0, node.numKeys(), copiedRoot);
+    node.leftmostNodePointer().ifPresent(copiedRoot::setLeftmostNodePointer);
+    node.writeBuffer().forEach(copiedRoot::appendMessage);
+    return copiedRoot;
+  }
+
+  private static TreeNode copyNode(TreeNode node) {
+    if (node instanceof BasicTreeNode) {
+      return new BasicTreeNode((BasicTreeNode) node);
+    }
+
+    TreeNode copiedNode = new BasicTreeNode();
+    copyRows(node, 0, node.numKeys(), copiedNode);
+    node.leftmostNodePointer().ifPresent(copiedNode::setLeftmostNodePointer);
+    node.writeBuffer().forEach(copiedNode::appendMessage);
+    return copiedNode;
+  }
+
+  /**
+   * Read a root node file. The returned root is a copy of the decoded root in the decoded file
+   * cache of the storage, and can be changed by the caller.
+   *
+   * @param storage lakehouse storage
+   * @param path root node file path
+   * @return tree root
+   */
   public static TreeRoot readRootNodeFile(LakehouseStorage storage, String path) {
-    try (LocalInputStream stream = storage.startReadLocal(path)) {
-      TreeRoot root = readRootNodeFile(stream);
-      root.setPath(path);
-      return root;
+    TreeRoot cachedRoot = readCachedRootNodeFile(storage, path);
+    TreeRoot root = copyPersistedRoot(cachedRoot);
+    root.setPath(path);
+    return root;
+  }
+
+  /**
+   * Read a root node file without the decoded file cache, for roots of versions before the latest
+   * ones, so that reading them does not evict the latest versions from the cache.
+   *
+   * @param storage lakehouse storage
+   * @param path root node file path
+   * @return tree root
+   */
+  static TreeRoot readUncachedRootNodeFile(LakehouseStorage storage, String path) {
+    TreeRoot root = new BasicTreeRoot();
+    readNodeFile(storage, path, root);
+    root.setPath(path);
+    return root;
+  }
+
+  /**
+   * Copy a persisted root together with its persistence specific information, so that the copy can
+   * be changed by the caller without changing the persisted root.
+   */
+  static TreeRoot copyPersistedRoot(TreeRoot persistedRoot) {
+    TreeRoot root = copyRoot(persistedRoot);
+    persistedRoot.path().ifPresent(root::setPath);
+    persistedRoot.createdAtMillis().ifPresent(root::setCreatedAtMillis);
+    persistedRoot.previousRootNodeFilePath().ifPresent(root::setPreviousRootNodeFilePath);
+    persistedRoot.rollbackFromRootNodeFilePath().ifPresent(root::setRollbackFromRootNodeFilePath);
+    root.setLakehouseDefFilePath(persistedRoot.lakehouseDefFilePath());
+    return root;
+  }
+
+  /**
+   * Read a node file. The returned node is a copy of the decoded node in the decoded file cache of
+   * the storage, and can be changed by the caller.
+   *
+   * @param storage lakehouse storage
+   * @param path node file path
+   * @return tree node
+   */
+  public static TreeNode readNodeFile(LakehouseStorage storage, String path) {
+    TreeNode cachedNode = readCachedNodeFile(storage, path);
+    TreeNode node = copyNode(cachedNode);
+    node.setPath(path);
+    cachedNode.createdAtMillis().ifPresent(node::setCreatedAtMillis);
+    return node;
+  }
+
+  /**
+   * Read a root node file through the decoded file cache of the storage. The returned root is
+   * shared with other readers and must not be changed.
+   */
+  static TreeRoot readCachedRootNodeFile(LakehouseStorage storage, String path) {
+    return storage
+        .decodedFileCache()
+        .get(
+            path,
+            rootPath -> {
+              TreeRoot root = new BasicTreeRoot();
+              readNodeFile(storage, rootPath, root);
+              return root;
+            },
+            TreeOperations::estimateDecodedSizeBytes);
+  }
+
+  /**
+   * Read the creation time of a root node file, without going through the decoded file cache and
+   * without decoding the rows of the root when the file can be opened as an Arrow node.
+   *
+   * @param storage lakehouse storage
+   * @param path root node file path
+   * @return creation time in epoch millis, or empty if the root has none
+   */
+  static Optional<Long> readRootNodeCreatedAtMillis(LakehouseStorage storage, String path) {
+    Optional<ArrowTreeNode> arrowRoot = tryOpenNodeFile(storage, path, true);
+    if (!arrowRoot.isPresent()) {
+      TreeRoot root = new BasicTreeRoot();
+      readNodeFile(storage, path, root);
+      return root.createdAtMillis();
+    }
+
+    try (ArrowTreeNode root = arrowRoot.get()) {
+      return root.createdAtMillis();
+    }
+  }
+
+  /**
+   * Read a node file through the decoded file cache of the storage. The returned node is shared
+   * with other readers and must not be changed.
+   */
+  static TreeNode readCachedNodeFile(LakehouseStorage storage, String path) {
+    return storage
+        .decodedFileCache()
+        .get(
+            path,
+            nodePath -> {
+              TreeNode node = new BasicTreeNode();
+              readNodeFile(storage, nodePath, node);
+              return node;
+            },
+            TreeOperations::estimateDecodedSizeBytes);
+  }
+
+  static void readNodeFile(LakehouseStorage storage, String path, TreeNode node) {
+    try (LocalInputStream stream = storage.startReadLocal(path);
+        BufferAllocator allocator = newChildAllocator(storage, "read-node-file");
+        ArrowFileReader reader = new ArrowFileReader(stream.channel(), allocator)) {
+      readNodeFile(reader, node);
+      node.setPath(path);
     } catch (IOException e) {
       throw new StorageReadFailureException(e);
     }
   }
 
-  private static TreeRoot readRootNodeFile(LocalInputStream stream) {
-    TreeRoot treeRoot = new BasicTreeRoot();
+  static BufferAllocator newChildAllocator(LakehouseStorage storage, String name) {
+    return storage.allocator().newChildAllocator(name, 0, Long.MAX_VALUE);
+  }
 
-    BufferAllocator allocator = new RootAllocator();
-    ArrowFileReader reader = new ArrowFileReader(stream.channel(), allocator);
+  private static void readNodeFile(ArrowFileReader reader, TreeNode node) {
     try {
       for (ArrowBlock arrowBlock : reader.getRecordBlocks()) {
         reader.loadRecordBatch(arrowBlock);
         VectorSchemaRoot root = reader.getVectorSchemaRoot();
+        VarCharVector keyVector = (VarCharVector) root.getVector(NODE_FILE_KEY_COLUMN_INDEX);
+        VarCharVector valueVector = (VarCharVector) root.getVector(NODE_FILE_VALUE_COLUMN_INDEX);
+        // node files written before the introduction of node pointers and write buffer
+        // only have the key and value columns
+        VarCharVector nodePointerVector =
+            optionalVector(root, NODE_FILE_NODE_POINTER_COLUMN_INDEX);
+        VarCharVector transactionVector = optionalVector(root, NODE_FILE_TRANSACTION_COLUMN_INDEX);
 
         int numKeys = 0;
         for (int i = 0; i < root.getRowCount(); ++i) {
-          // TODO: leverage Arrow Text to be more efficient and avoid byte array copy
-          String key = root.getVector(NODE_FILE_KEY_COLUMN_INDEX).getObject(i).toString();
-          String value = root.getVector(NODE_FILE_VALUE_COLUMN_INDEX).getObject(i).toString();
-
-          if (ObjectKeys.CREATED_AT_MILLIS.equals(key)) {
-            treeRoot.setCreatedAtMillis(Long.parseLong(value));
-          } else if (ObjectKeys.LAKEHOUSE_DEFINITION.equals(key)) {
-            treeRoot.setLakehouseDefFilePath(value);
-          } else if (ObjectKeys.PREVIOUS_ROOT_NODE.equals(key)) {
-            treeRoot.setPreviousRootNodeFilePath(value);
-          } else if (ObjectKeys.ROLLBACK_FROM_ROOT_NODE.equals(key)) {
-            treeRoot.setRollbackFromRootNodeFilePath(value);
+          String key = readString(keyVector, i);
+          String value = readString(valueVector, i);
+          String nodePointer = nodePointerVector == null ? null : readString(nodePointerVector, i);
+          String transactionId =
+              transactionVector == null ? null : readString(transactionVector, i);
+
+          if (transactionId != null) {
+            node.appendMessage(
+                ImmutableWriteBufferMessage.builder()
+                    .key(key)
+                    .value(Optional.ofNullable(value))
+                    .transactionId(transactionId)
+                    .build());
+          } else if (key == null) {
+            if (nodePointer != null) {
+              node.setLeftmostNodePointer(nodePointer);
+            }
           } else if (ObjectKeys.NUMBER_OF_KEYS.equals(key)) {
             numKeys = Integer.parseInt(value);
-          } else {
-            treeRoot.set(key, value);
+          } else if (!readSystemInternalRow(node, key, value)) {
+            node.set(key, value);
+            if (nodePointer != null) {
+              node.setNodePointer(key, nodePointer);
+            }
           }
         }
 
         ValidationUtil.checkState(
-            numKeys == treeRoot.numKeys(),
+            numKeys == node.numKeys(),
             "Recorded number of keys do not match the actual node key table size, the node file might be corrupted");
       }
     } catch (IOException e) {
       throw new StorageReadFailureException(e);
     }
+  }
+
+  private static boolean readSystemInternalRow(TreeNode node, String key, String value) {
+    if (ObjectKeys.CREATED_AT_MILLIS.equals(key)) {
+      node.setCreatedAtMillis(Long.parseLong(value));
+      return true;
+    }
+
+    if (!(node instanceof TreeRoot)) {
+      return false;
+    }
+
+    TreeRoot treeRoot = (TreeRoot) node;
+    if (ObjectKeys.LAKEHOUSE_DEFINITION.equals(key)) {
+      treeRoot.setLakehouseDefFilePath(value);
+    } else if (ObjectKeys.PREVIOUS_ROOT_NODE.equals(key)) {
+      treeRoot.setPreviousRootNodeFilePath(value);
+    } else if (ObjectKeys.ROLLBACK_FROM_ROOT_NODE.equals(key)) {
+      treeRoot.setRollbackFromRootNodeFilePath(value);
+    } else {
+      return false;
+    }
+
+    return true;
+  }
 
-    return treeRoot;
+  private static VarCharVector optionalVector(VectorSchemaRoot root, int index) {
+    return root.getFieldVectors().size() > index ? (VarCharVector) root.getVector(index) : null;
   }
 
+  private static String readString(VarCharVector vector, int index) {
+    if (vector.isNull(index)) {
+      return null;
+    }
+
+    return new String(vector.get(index), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Write a root node file.
+   *
+   * <p>The dirty nodes of the root are written first, in parallel, and the root is only written
+   * after all of them are written, so that a root node file never refers to a missing node file.
+   * Nodes that are not changed under the root are shared with earlier versions by node pointer,
+   * and are not written again. As every node file is committed atomically, writing the root fails
+   * if another root node file already exists at the path.
+   *
+   * @param storage lakehouse storage
+   * @param path root node file path
+   * @param root tree root
+   */
   public static void writeRootNodeFile(LakehouseStorage storage, String path, TreeRoot root) {
-    try (AtomicOutputStream stream = storage.startCommit(path)) {
-      writeRootNodeFile(stream, root);
+    writeDirtyNodeFiles(storage, root);
+    writeNodeFile(storage, path, root);
+  }
+
+  /**
+   * Commit a tree root as the version after the given previous root.
+   *
+   * <p>Writing the root node file without overwrite is the commit point. Once it succeeds, the
+   * committed root is published by {@link #publishCommittedRoot}.
+   *
+   * @param storage lakehouse storage
+   * @param previousRootNodeFilePath root node file path of the version the root is based on
+   * @param root tree root to commit, which gets the path of its root node file once committed
+   * @return committed version
+   * @throws StorageAtomicSealFailureException if another writer commits the same version first
+   */
+  public static long commitRootNodeFile(
+      LakehouseStorage storage, String previousRootNodeFilePath, TreeRoot root) {
+    long version = FileLocations.versionFromNodeFilePath(previousRootNodeFilePath) + 1;
+    String path = FileLocations.rootNodeFilePath(version);
+    root.setPreviousRootNodeFilePath(previousRootNodeFilePath);
+    writeRootNodeFile(storage, path, root);
+    root.setPath(path);
+    publishCommittedRoot(storage, version, root);
+    return version;
+  }
+
+  /**
+   * Wait before retrying a commit that failed because of a concurrent commit. The wait time grows
+   * exponentially with the attempt up to the max wait time, with a random jitter.
+   *
+   * @param minWaitMillis wait time before the first retry
+   * @param maxWaitMillis maximum wait time before a retry
+   * @param attempt number of the attempt that failed, starting from 1
+   * @throws CommitFailureException if the thread is interrupted during the wait
+   */
+  public static void waitBeforeCommitRetry(long minWaitMillis, long maxWaitMillis, int attempt) {
+    long waitMillis = Math.min(maxWaitMillis, minWaitMillis << Math.min(attempt - 1, 30));
+    // random jitter keeps concurrent writers from retrying at the same time again
+    long jitteredWaitMillis = ThreadLocalRandom.current().nextLong(waitMillis / 2, waitMillis + 1);
+    try {
+      Thread.sleep(jitteredWaitMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CommitFailureException(e, "Interrupted when waiting to retry commit");
+    }
+  }
+
+  /**
+   * Publish a root whose root node file is committed as the given version. The version hint file
+   * and the timestamp index file are written on a best effort basis, and the latest root tracker of
+   * the storage is updated.
+   *
+   * @param storage lakehouse storage
+   * @param version committed version
+   * @param committedRoot committed tree root
+   */
+  static void publishCommittedRoot(LakehouseStorage storage, long version, TreeRoot committedRoot) {
+    tryWriteRootNodeVersionHintFile(storage, version);
+    TimestampIndex.tryWriteSegmentFile(storage, version);
+    LatestRootTracker.of(storage).update(committedRoot);
+  }
+
+  private static void writeDirtyNodeFiles(LakehouseStorage storage, TreeRoot root) {
+    List<Future<?>> writes = Lists.newArrayList();
+    for (Map.Entry<String, TreeNode> dirtyNode : root.dirtyNodes().entrySet()) {
+      writes.add(
+          storage
+              .executor()
+              .submit(() -> writeNodeFile(storage, dirtyNode.getKey(), dirtyNode.getValue())));
+    }
+
+    FutureUtil.awaitAll(writes, "write node files");
+    root.clearDirtyNodes();
+  }
+
+  /**
+   * Delete files with one request to the storage ops, which batch the deletes as the storage
+   * supports. A file that fails to be deleted is only left behind as an orphan, so failures are
+   * logged and not thrown.
+   *
+   * @return number of deleted files
+   */
+  static int deleteFiles(LakehouseStorage storage, List<String> paths) {
+    if (paths.isEmpty()) {
+      return 0;
+    }
+
+    try {
+      storage.delete(paths);
+      return paths.size();
+    } catch (StorageDeleteFailureException e) {
+      LOG.warn("Failed to delete some of {} files", paths.size(), e);
+      return e.numFailedFiles().map(numFailedFiles -> paths.size() - numFailedFiles).orElse(0);
+    } catch (RuntimeException e) {
+      LOG.warn("Failed to delete {} files", paths.size(), e);
+      return 0;
+    }
+  }
+
+  /**
+   * Copy a file from the source storage to the same path in the target storage, unless it already
+   * exists in the target storage.
+   *
+   * @return number of copied bytes, or {@link #FILE_COPY_SKIPPED} if the file already exists
+   */
+  static long copyFile(LakehouseStorage source, LakehouseStorage target, String path) {
+    if (target.exists(path)) {
+      return FILE_COPY_SKIPPED;
+    }
+
+    try (InputStream input = source.startRead(path)) {
+      // the file is only sealed after it is fully copied, and a failed copy releases what is staged
+      AtomicOutputStream output = target.startCommit(path);
+      try {
+        long numBytes = ByteStreams.copy(input, output);
+        output.atomicallySeal();
+        return numBytes;
+      } catch (IOException | RuntimeException e) {
+        output.abort();
+        throw e;
+      }
+    } catch (StorageAtomicSealFailureException e) {
+      LOG.debug("File {} is copied to {} by another writer", path, target.root());
+      return FILE_COPY_SKIPPED;
     } catch (IOException e) {
+      throw new StorageWriteFailureException(
+          e, "Failed to copy file %s from %s to %s", path, source.root(), target.root());
+    }
+  }
+
+  /** Read node files without the decoded file cache, which is kept for the latest versions. */
+  static List<TreeNode> readNodeFilesInParallel(LakehouseStorage storage, List<String> paths) {
+    return FutureUtil.awaitAll(submitNodeFileReads(storage, paths), "read node files");
+  }
+
+  static List<Future<TreeNode>> submitNodeFileReads(LakehouseStorage storage, List<String> paths) {
+    List<Future<TreeNode>> reads = Lists.newArrayListWithCapacity(paths.size());
+    for (String path : paths) {
+      reads.add(
+          storage
+              .executor()
+              .submit(
+                  () -> {
+                    TreeNode node = new BasicTreeNode();
+                    readNodeFile(storage, path, node);
+                    return node;
+                  }));
+    }
+
+    return reads;
+  }
+
+  public static void writeNodeFile(LakehouseStorage storage, String path, TreeNode node) {
+    try (AtomicOutputStream stream = storage.startCommit(path);
+        BufferAllocator allocator = newChildAllocator(storage, "write-node-file");
+        VectorSchemaRoot schema =
+            VectorSchemaRoot.of(
+                new VarCharVector(NODE_FILE_KEY_COLUMN_NAME, allocator),
+                new VarCharVector(NODE_FILE_VALUE_COLUMN_NAME, allocator),
+                new VarCharVector(NODE_FILE_NODE_POINTER_COLUMN_NAME, allocator),
+                new VarCharVector(NODE_FILE_TRANSACTION_COLUMN_NAME, allocator))) {
+      writeNodeFile(stream, schema, node);
+    } catch (FileAlreadyExistsException e) {
       throw new StorageAtomicSealFailureException(e);
+    } catch (IOException e) {
+      // only a conflict with another writer is a seal failure, which a commit can be retried for
+      throw new StorageWriteFailureException(e, "Failed to write node file %s", path);
     }
   }
 
-  private static void writeRootNodeFile(AtomicOutputStream stream, TreeRoot root) {
-    BufferAllocator allocator = new RootAllocator();
-    VarCharVector keyVector = new VarCharVector(NODE_FILE_KEY_COLUMN_NAME, allocator);
-    VarCharVector valueVector = new VarCharVector(NODE_FILE_VALUE_COLUMN_NAME, allocator);
+  private static void writeNodeFile(
+      AtomicOutputStream stream, VectorSchemaRoot schema, TreeNode node) {
+    VarCharVector keyVector = (VarCharVector) schema.getVector(NODE_FILE_KEY_COLUMN_INDEX);
+    VarCharVector valueVector = (VarCharVector) schema.getVector(NODE_FILE_VALUE_COLUMN_INDEX);
+    VarCharVector nodePointerVector =
+        (VarCharVector) schema.getVector(NODE_FILE_NODE_POINTER_COLUMN_INDEX);
+    VarCharVector transactionVector =
+        (VarCharVector) schema.getVector(NODE_FILE_TRANSACTION_COLUMN_INDEX);
 
     int index = 0;
     long createdAtMillis = System.currentTimeMillis();
-    keyVector.setSafe(index, ObjectKeys.CREATED_AT_MILLIS_BYTES);
-    valueVector.setSafe(index, Long.toString(createdAtMillis).getBytes(StandardCharsets.UTF_8));
+    writeSystemInternalRow(
+        keyVector,
+        valueVector,
+        nodePointerVector,
+        transactionVector,
+        index,
+        ObjectKeys.CREATED_AT_MILLIS_BYTES,
+        Long.toString(createdAtMillis));
 
     index++;
-    keyVector.setSafe(index, ObjectKeys.NUMBER_OF_KEYS_BYTES);
-    valueVector.setSafe(index, Integer.toString(root.numKeys()).getBytes(StandardCharsets.UTF_8));
+    writeSystemInternalRow(
+        keyVector,
+        valueVector,
+        nodePointerVector,
+        transactionVector,
+        index,
+        ObjectKeys.NUMBER_OF_KEYS_BYTES,
+        Integer.toString(node.numKeys()));
 
-    index++;
-    keyVector.setSafe(index, ObjectKeys.LAKEHOUSE_DEFINITION_BYTES);
-    valueVector.setSafe(index, root.lakehouseDefFilePath().getBytes(StandardCharsets.UTF_8));
+    if (node instanceof TreeRoot) {
+      index =
+          writeRootSystemInternalRows(
+              keyVector, valueVector, nodePointerVector, transactionVector, index, (TreeRoot) node);
+    }
 
-    if (root.previousRootNodeFilePath().isPresent()) {
-      index++;
-      keyVector.setSafe(index, ObjectKeys.PREVIOUS_ROOT_NODE_BYTES);
-      valueVector.setSafe(
-          index, root.previousRootNodeFilePath().get().getBytes(StandardCharsets.UTF_8));
+    index++;
+    keyVector.setNull(index);
+    valueVector.setNull(index);
+    if (node.leftmostNodePointer().isPresent()) {
+      nodePointerVector.setSafe(
+          index, node.leftmostNodePointer().get().getBytes(StandardCharsets.UTF_8));
+    } else {
+      nodePointerVector.setNull(index);
     }
+    transactionVector.setNull(index);
 
-    if (root.rollbackFromRootNodeFilePath().isPresent()) {
+    // rows are written in key order, so that readers can binary search the node key table
+    for (int i = 0; i < node.numKeys(); i++) {
       index++;
-      keyVector.setSafe(index, ObjectKeys.ROLLBACK_FROM_ROOT_NODE_BYTES);
-      valueVector.setSafe(
-          index, root.rollbackFromRootNodeFilePath().get().getBytes(StandardCharsets.UTF_8));
+      keyVector.setSafe(index, node.keyAt(i).getBytes(StandardCharsets.UTF_8));
+      valueVector.setSafe(index, node.valueAt(i).getBytes(StandardCharsets.UTF_8));
+      Optional<String> nodePointer = node.nodePointerAt(i);
+      if (nodePointer.isPresent()) {
+        nodePointerVector.setSafe(index, nodePointer.get().getBytes(StandardCharsets.UTF_8));
+      } else {
+        nodePointerVector.setNull(index);
+      }
+      transactionVector.setNull(index);
     }
 
-    for (NodeKeyTableRow row : root.nodeKeyTable()) {
+    for (WriteBufferMessage message : node.writeBuffer()) {
       index++;
-      keyVector.setSafe(index, row.key().getBytes(StandardCharsets.UTF_8));
-      valueVector.setSafe(index, row.value().getBytes(StandardCharsets.UTF_8));
+      keyVector.setSafe(index, message.key().getBytes(StandardCharsets.UTF_8));
+      if (message.value().isPresent()) {
+        valueVector.setSafe(index, message.value().get().getBytes(StandardCharsets.UTF_8));
+      } else {
+        valueVector.setNull(index);
+      }
+      nodePointerVector.setNull(index);
+      transactionVector.setSafe(index, message.transactionId().getBytes(StandardCharsets.UTF_8));
     }
 
     index++;
     keyVector.setValueCount(index);
     valueVector.setValueCount(index);
+    nodePointerVector.setValueCount(index);
+    transactionVector.setValueCount(index);
+    schema.setRowCount(index);
 
-    List<Field> fields = Lists.newArrayList(keyVector.getField(), valueVector.getField());
-    List<FieldVector> vectors = Lists.newArrayList(keyVector, valueVector);
-    VectorSchemaRoot schema = new VectorSchemaRoot(fields, vectors);
     try (ArrowFileWriter writer = new ArrowFileWriter(schema, null, stream.channel())) {
       writer.start();
       writer.writeBatch();
@@ -185,6 +620,64 @@ public class TreeOperations {
     }
   }
 
+  private static int writeRootSystemInternalRows(
+      VarCharVector keyVector,
+      VarCharVector valueVector,
+      VarCharVector nodePointerVector,
+      VarCharVector transactionVector,
+      int lastIndex,
+      TreeRoot root) {
+    int index = lastIndex + 1;
+    writeSystemInternalRow(
+        keyVector,
+        valueVector,
+        nodePointerVector,
+        transactionVector,
+        index,
+        ObjectKeys.LAKEHOUSE_DEFINITION_BYTES,
+        root.lakehouseDefFilePath());
+
+    if (root.previousRootNodeFilePath().isPresent()) {
+      index++;
+      writeSystemInternalRow(
+          keyVector,
+          valueVector,
+          nodePointerVector,
+          transactionVector,
+          index,
+          ObjectKeys.PREVIOUS_ROOT_NODE_BYTES,
+          root.previousRootNodeFilePath().get());
+    }
+
+    if (root.rollbackFromRootNodeFilePath().isPresent()) {
+      index++;
+      writeSystemInternalRow(
+          keyVector,
+          valueVector,
+          nodePointerVector,
+          transactionVector,
+          index,
+          ObjectKeys.ROLLBACK_FROM_ROOT_NODE_BYTES,
+          root.rollbackFromRootNodeFilePath().get());
+    }
+
+    return index;
+  }
+
+  private static void writeSystemInternalRow(
+      VarCharVector keyVector,
+      VarCharVector valueVector,
+      VarCharVector nodePointerVector,
+      VarCharVector transactionVector,
+      int index,
+      byte[] key,
+      String value) {
+    keyVector.setSafe(index, key);
+    valueVector.setSafe(index, value.getBytes(StandardCharsets.UTF_8));
+    nodePointerVector.setNull(index);
+    transactionVector.setNull(index);
+  }
+
   public static void tryWriteRootNodeVersionHintFile(LakehouseStorage storage, long rootVersion) {
     try (OutputStream stream =
         storage.startOverwrite(FileLocations.LATEST_VERSION_HINT_FILE_PATH)) {
@@ -208,60 +701,118 @@ public class TreeOperations {
   }
 
   public static TreeRoot findLatestRoot(LakehouseStorage storage) {
-    // TODO: this should be improved by adding a minimum version file
-    //  so that versions that are too old can be deleted in storage.
-    //  Unlike the version hint file, this minimum file must exist if the minimum version is greater
-    // than zero,
-    //  and the creation of this file should require a global lock
-    long latestVersion = 0;
+    long latestVersion = -1;
     try (InputStream versionHintStream =
         storage.startRead(FileLocations.LATEST_VERSION_HINT_FILE_PATH)) {
       String versionHintText = FileUtil.readToString(versionHintStream);
       latestVersion = Long.parseLong(versionHintText);
     } catch (StorageFileOpenFailureException | StorageReadFailureException | IOException e) {
-      LOG.warn("Failed to read latest version hint file, fallback to search from version 0", e);
+      LOG.warn(
+          "Failed to read latest version hint file, fallback to search from minimum version", e);
+    }
+
+    if (latestVersion >= 0 && !storage.exists(FileLocations.rootNodeFilePath(latestVersion))) {
+      LOG.warn(
+          "Root node of hinted version {} does not exist, search from minimum version",
+          latestVersion);
+      latestVersion = -1;
     }
 
-    String rootNodeFilePath = FileLocations.rootNodeFilePath(latestVersion);
+    if (latestVersion < 0) {
+      latestVersion = findMinimumVersion(storage);
+    }
+
+    latestVersion = findLatestVersion(storage, latestVersion);
+    return TreeOperations.readRootNodeFile(storage, FileLocations.rootNodeFilePath(latestVersion));
+  }
 
+  /**
+   * Find the latest version starting from an existing version. Versions are committed one after
+   * another without gaps, so the versions after the given version are probed with exponentially
+   * growing steps until a missing version is found, and the latest version is then found by binary
+   * search between the last existing and the first missing probed versions. This takes O(log n)
+   * existence checks when the given version is n versions behind the latest version.
+   */
+  static long findLatestVersion(LakehouseStorage storage, long existingVersion) {
+    long lowVersion = existingVersion;
+    long highVersion;
+    long step = 1;
     while (true) {
-      long nextVersion = latestVersion + 1;
-      String nextRootNodeFilePath = FileLocations.rootNodeFilePath(latestVersion);
-      if (!storage.exists(nextRootNodeFilePath)) {
+      long probedVersion = lowVersion + step;
+      if (!storage.exists(FileLocations.rootNodeFilePath(probedVersion))) {
+        highVersion = probedVersion;
         break;
       }
-      rootNodeFilePath = nextRootNodeFilePath;
-      latestVersion = nextVersion;
+      lowVersion = probedVersion;
+      step *= 2;
     }
 
-    TreeRoot root = TreeOperations.readRootNodeFile(storage, rootNodeFilePath);
-    return root;
+    // the root node of the low version exists and the root node of the high version does not
+    while (highVersion - lowVersion > 1) {
+      long midVersion = lowVersion + (highVersion - lowVersion) / 2;
+      if (storage.exists(FileLocations.rootNodeFilePath(midVersion))) {
+        lowVersion = midVersion;
+      } else {
+        highVersion = midVersion;
+      }
+    }
+
+    return lowVersion;
   }
 
+  /**
+   * Find the minimum version of the lakehouse. Root nodes of lower versions are expired, and might
+   * already be deleted from storage. Unlike the version hint file, the minimum version file must
+   * exist once any version is expired, and the minimum version is 0 if the file does not exist.
+   *
+   * @param storage lakehouse storage
+   * @return minimum version
+   */
+  public static long findMinimumVersion(LakehouseStorage storage) {
+    if (!storage.exists(FileLocations.MINIMUM_VERSION_FILE_PATH)) {
+      return 0;
+    }
+
+    try (InputStream stream = storage.startRead(FileLocations.MINIMUM_VERSION_FILE_PATH)) {
+      return Long.parseLong(FileUtil.readToString(stream).trim());
+    } catch (IOException | NumberFormatException e) {
+      throw new StorageReadFailureException(
+          e, "Failed to read minimum version file at %s", storage.root());
+    }
+  }
+
+  /**
+   * Find the root of a version. As the root node file path is derived from the version, the root
+   * node file is read directly instead of walking the previous roots from the latest root.
+   *
+   * @param storage lakehouse storage
+   * @param version root version
+   * @return root of the version, or empty if the version does not exist or is expired
+   */
   public static Optional<TreeRoot> findRootForVersion(LakehouseStorage storage, long version) {
-    TreeRoot latest = findLatestRoot(storage);
-    ValidationUtil.checkArgument(
-        latest.path().isPresent(), "latest tree root must be persisted with a path in storage");
-    long latestVersion = FileLocations.versionFromNodeFilePath(latest.path().get());
-    ValidationUtil.checkArgument(
-        version <= latestVersion,
-        "Version %d must not be higher than latest version %d",
-        version,
-        latestVersion);
-
-    TreeRoot current = latest;
-    while (current.previousRootNodeFilePath().isPresent()) {
-      TreeRoot previous =
-          TreeOperations.readRootNodeFile(storage, current.previousRootNodeFilePath().get());
-      if (version == FileLocations.versionFromNodeFilePath(previous.path().get())) {
-        return Optional.of(previous);
-      }
-      current = previous;
+    ValidationUtil.checkArgument(version >= 0, "Version %d must not be negative", version);
+    String rootNodeFilePath = FileLocations.rootNodeFilePath(version);
+    if (!storage.exists(rootNodeFilePath)) {
+      return Optional.empty();
     }
 
-    return Optional.empty();
+    // an expired root node might not be deleted yet
+    if (version < findMinimumVersion(storage)) {
+      return Optional.empty();
+    }
+
+    return Optional.of(readRootNodeFile(storage, rootNodeFilePath));
   }
 
+  /**
+   * Find the latest root created before the given timestamp, or the root of the minimum version if
+   * all the other roots are created at or after the timestamp. Roots are looked up through the
+   * {@link TimestampIndex}, so that only the found root is fully read.
+   *
+   * @param storage lakehouse storage
+   * @param timestampMillis timestamp in epoch millis, exclusive
+   * @return tree root
+   */
   public static TreeRoot findRootBeforeTimestamp(LakehouseStorage storage, long timestampMillis) {
     TreeRoot latest = findLatestRoot(storage);
     ValidationUtil.checkArgument(
@@ -274,39 +825,72 @@ public class TreeOperations {
         timestampMillis,
         latestCreatedAtMillis);
 
-    TreeRoot current = latest;
-    while (current.previousRootNodeFilePath().isPresent()) {
-      TreeRoot previous =
-          TreeOperations.readRootNodeFile(storage, current.previousRootNodeFilePath().get());
-      ValidationUtil.checkArgument(
-          previous.createdAtMillis().isPresent(),
-          "Tree root must be persisted with a timestamp in storage");
-      if (timestampMillis > previous.createdAtMillis().get()) {
-        return previous;
-      }
-      current = previous;
-    }
+    long latestVersion = findVersionFromRootNode(latest);
+    long minimumVersion = findMinimumVersion(storage);
+    long version =
+        TimestampIndex.findLatestVersionBefore(
+                storage, minimumVersion, latestVersion - 1, latestVersion, timestampMillis)
+            .orElse(minimumVersion);
+    return version == latestVersion
+        ? latest
+        : readRootNodeFile(storage, FileLocations.rootNodeFilePath(version));
+  }
 
-    return current;
+  public static CloseableIterable<TreeRoot> listRoots(LakehouseStorage storage) {
+    return listRoots(storage, 0);
   }
 
-  public static Iterable<TreeRoot> listRoots(LakehouseStorage storage) {
-    return new TreeRootIterable(storage, findLatestRoot(storage));
+  /**
+   * List roots from the latest root to the root of the minimum version, reading the roots of the
+   * next versions in parallel while the caller processes the current root. The previous root of a
+   * version is always the root of the version before it, so the roots to read ahead are known
+   * without reading the roots in between, which hides the latency of reading the roots one by one.
+   *
+   * <p>Roots before the latest one are read without the decoded file cache. Closing the returned
+   * iterable cancels the roots still being read ahead.
+   *
+   * @param storage lakehouse storage
+   * @param readAheadVersions max number of versions to read ahead, 0 disables read-ahead
+   * @return roots from the latest to the oldest
+   */
+  public static CloseableIterable<TreeRoot> listRoots(
+      LakehouseStorage storage, int readAheadVersions) {
+    ValidationUtil.checkArgument(
+        readAheadVersions >= 0,
+        "Read-ahead versions must not be negative, but got %s",
+        readAheadVersions);
+    return new TreeRootIterable(
+        storage, findLatestRoot(storage), findMinimumVersion(storage), readAheadVersions);
   }
 
-  private static class TreeRootIterable implements Iterable<TreeRoot> {
+  private static class TreeRootIterable implements CloseableIterable<TreeRoot> {
 
     private final LakehouseStorage storage;
     private final TreeRoot latest;
+    private final long minimumVersion;
+    private final int readAheadVersions;
+    private final List<LakehouseVersionIterator> iterators = Lists.newArrayList();
 
-    TreeRootIterable(LakehouseStorage storage, TreeRoot latest) {
+    TreeRootIterable(
+        LakehouseStorage storage, TreeRoot latest, long minimumVersion, int readAheadVersions) {
       this.storage = storage;
       this.latest = latest;
+      this.minimumVersion = minimumVersion;
+      this.readAheadVersions = readAheadVersions;
+    }
+
+    @Override
+    public synchronized Iterator<TreeRoot> iterator() {
+      LakehouseVersionIterator iterator =
+          new LakehouseVersionIterator(storage, latest, minimumVersion, readAheadVersions);
+      iterators.add(iterator);
+      return iterator;
     }
 
     @Override
-    public Iterator<TreeRoot> iterator() {
-      return new LakehouseVersionIterator(storage, latest);
+    public synchronized void close() {
+      iterators.forEach(LakehouseVersionIterator::cancelReadAhead);
+      iterators.clear();
     }
   }
 
@@ -314,17 +898,33 @@ public class TreeOperations {
 
     private final LakehouseStorage storage;
     private final TreeRoot latest;
+    private final long minimumVersion;
+    private final int readAheadVersions;
+    private final Map<String, Future<TreeRoot>> readAheadRoots;
+    private long nextReadAheadVersion;
     private TreeRoot current;
 
-    LakehouseVersionIterator(LakehouseStorage storage, TreeRoot latest) {
+    LakehouseVersionIterator(
+        LakehouseStorage storage, TreeRoot latest, long minimumVersion, int readAheadVersions) {
       this.storage = storage;
       this.latest = latest;
+      this.minimumVersion = minimumVersion;
+      this.readAheadVersions = readAheadVersions;
+      this.readAheadRoots = Maps.newHashMap();
+      this.nextReadAheadVersion = Long.MAX_VALUE;
       this.current = null;
     }
 
     @Override
     public boolean hasNext() {
-      return current == null || current.previousRootNodeFilePath().isPresent();
+      return current == null || hasPrevious(current);
+    }
+
+    /** Roots of versions lower than the minimum version are expired, and might be deleted. */
+    private boolean hasPrevious(TreeRoot root) {
+      return root.previousRootNodeFilePath().isPresent()
+          && FileLocations.versionFromNodeFilePath(root.previousRootNodeFilePath().get())
+              >= minimumVersion;
     }
 
     @Override
@@ -332,37 +932,898 @@ public class TreeOperations {
       if (current == null) {
         this.current = latest;
       } else {
+        String previousPath = current.previousRootNodeFilePath().get();
+        Future<TreeRoot> readAheadRoot = readAheadRoots.remove(previousPath);
         this.current =
-            TreeOperations.readRootNodeFile(storage, current.previousRootNodeFilePath().get());
+            readAheadRoot != null
+                ? FutureUtil.awaitAll(ImmutableList.of(readAheadRoot), "read root node file").get(0)
+                : readUncachedRootNodeFile(storage, previousPath);
+      }
+
+      if (hasPrevious(current)) {
+        readAhead();
+      } else {
+        cancelReadAhead();
       }
       return current;
     }
+
+    private void cancelReadAhead() {
+      readAheadRoots.values().forEach(root -> root.cancel(true));
+      readAheadRoots.clear();
+    }
+
+    private void readAhead() {
+      if (readAheadVersions == 0) {
+        return;
+      }
+
+      long previousVersion =
+          FileLocations.versionFromNodeFilePath(current.previousRootNodeFilePath().get());
+      if (previousVersion < nextReadAheadVersion) {
+        // the roots read ahead so far are not in the chain of previous roots
+        cancelReadAhead();
+        this.nextReadAheadVersion = previousVersion;
+      }
+
+      while (nextReadAheadVersion >= minimumVersion
+          && nextReadAheadVersion > previousVersion - readAheadVersions) {
+        String path = FileLocations.rootNodeFilePath(nextReadAheadVersion);
+        readAheadRoots.put(
+            path, storage.executor().submit(() -> readUncachedRootNodeFile(storage, path)));
+        this.nextReadAheadVersion--;
+      }
+    }
   }
 
   public static Optional<String> searchValue(
       LakehouseStorage storage, TreeNode startNode, String key) {
-    TreeNode currentNode = startNode;
-    while (true) {
-      NodeSearchResult searchResult = currentNode.search(key);
-      if (searchResult.value().isPresent()) {
-        return Optional.of(searchResult.value().get());
+    Map<String, TreeNode> dirtyNodes = dirtyNodes(startNode);
+    NodeSearchResult searchResult = searchNode(startNode, key);
+    while (!searchResult.value().isPresent() && searchResult.nodePointer().isPresent()) {
+      String nodePointer = searchResult.nodePointer().get();
+      TreeNode dirtyNode = dirtyNodes.get(nodePointer);
+      searchResult =
+          dirtyNode != null
+              ? searchNode(dirtyNode, key)
+              : searchNodeFile(storage, nodePointer, key);
+    }
+
+    return searchResult.value();
+  }
+
+  private static NodeSearchResult searchNode(TreeNode node, String key) {
+    // messages in the write buffer are newer than anything in the node and its subtree
+    Optional<WriteBufferMessage> message = findLatestMessage(node, key);
+    if (message.isPresent()) {
+      return ImmutableNodeSearchResult.builder().value(message.get().value()).build();
+    }
+
+    return node.search(key);
+  }
+
+  /** Nodes not yet written to storage that can be reached from the start node of a read. */
+  static Map<String, TreeNode> dirtyNodes(TreeNode startNode) {
+    return startNode instanceof TreeRoot ? ((TreeRoot) startNode).dirtyNodes() : ImmutableMap.of();
+  }
+
+  /**
+   * Read a node from the given dirty nodes, or through the decoded file cache of the storage if it
+   * is not dirty. The returned node is shared and must not be changed.
+   */
+  static TreeNode readCachedNodeFile(
+      LakehouseStorage storage, Map<String, TreeNode> dirtyNodes, String path) {
+    TreeNode dirtyNode = dirtyNodes.get(path);
+    return dirtyNode != null ? dirtyNode : readCachedNodeFile(storage, path);
+  }
+
+  static NodeSearchResult searchNodeFile(LakehouseStorage storage, String path, String key) {
+    if (storage.decodedFileCache().enabled()) {
+      return searchNode(readCachedNodeFile(storage, path), key);
+    }
+
+    Optional<ArrowTreeNode> arrowNode = tryOpenNodeFile(storage, path, false);
+    if (!arrowNode.isPresent()) {
+      return searchNode(readNodeFile(storage, path), key);
+    }
+
+    try (ArrowTreeNode node = arrowNode.get()) {
+      return searchNode(node, key);
+    }
+  }
+
+  /**
+   * Open a node file as a node that keeps the Arrow buffers of the file off-heap and decodes rows
+   * on demand. The caller must close the node to release the buffers.
+   *
+   * @param storage lakehouse storage
+   * @param path node file path
+   * @return node backed by the Arrow buffers of the node file
+   */
+  public static ArrowTreeNode openNodeFile(LakehouseStorage storage, String path) {
+    Optional<ArrowTreeNode> node = tryOpenNodeFile(storage, path, false);
+    ValidationUtil.checkState(
+        node.isPresent(), "Node file %s is not sorted by key and cannot be opened", path);
+    return node.get();
+  }
+
+  /**
+   * Open a root node file as a tree root that keeps the Arrow buffers of the file off-heap and
+   * decodes rows on demand. The caller must close the root to release the buffers.
+   *
+   * @param storage lakehouse storage
+   * @param path root node file path
+   * @return tree root backed by the Arrow buffers of the root node file
+   */
+  public static ArrowTreeRoot openRootNodeFile(LakehouseStorage storage, String path) {
+    Optional<ArrowTreeNode> root = tryOpenNodeFile(storage, path, true);
+    ValidationUtil.checkState(
+        root.isPresent(), "Root node file %s is not sorted by key and cannot be opened", path);
+    return (ArrowTreeRoot) root.get();
+  }
+
+  private static Optional<ArrowTreeNode> tryOpenNodeFile(
+      LakehouseStorage storage, String path, boolean isRoot) {
+    try (LocalInputStream stream = storage.startReadLocal(path)) {
+      BufferAllocator allocator = newChildAllocator(storage, "open-node-file");
+      ArrowFileReader reader = new ArrowFileReader(stream.channel(), allocator);
+      Optional<ArrowTreeNode> node = Optional.empty();
+      try {
+        node = openNodeFile(allocator, reader, isRoot);
+      } finally {
+        if (!node.isPresent()) {
+          reader.close();
+          allocator.close();
+        }
+      }
+
+      node.ifPresent(n -> n.setPath(path));
+      return node;
+    } catch (IOException e) {
+      throw new StorageReadFailureException(e);
+    }
+  }
+
+  private static Optional<ArrowTreeNode> openNodeFile(
+      BufferAllocator allocator, ArrowFileReader reader, boolean isRoot) throws IOException {
+    List<ArrowBlock> arrowBlocks = reader.getRecordBlocks();
+    VectorSchemaRoot root = reader.getVectorSchemaRoot();
+    // node files without the node pointer and write buffer columns are not sorted by key
+    if (arrowBlocks.size() != 1
+        || root.getFieldVectors().size() <= NODE_FILE_TRANSACTION_COLUMN_INDEX) {
+      return Optional.empty();
+    }
+
+    reader.loadRecordBatch(arrowBlocks.get(0));
+    VarCharVector keyVector = (VarCharVector) root.getVector(NODE_FILE_KEY_COLUMN_INDEX);
+    VarCharVector valueVector = (VarCharVector) root.getVector(NODE_FILE_VALUE_COLUMN_INDEX);
+    VarCharVector nodePointerVector =
+        (VarCharVector) root.getVector(NODE_FILE_NODE_POINTER_COLUMN_INDEX);
+    VarCharVector transactionVector =
+        (VarCharVector) root.getVector(NODE_FILE_TRANSACTION_COLUMN_INDEX);
+    int rowCount = root.getRowCount();
+    ArrowTreeNode node =
+        isRoot
+            ? new ArrowTreeRoot(
+                allocator,
+                reader,
+                keyVector,
+                valueVector,
+                nodePointerVector,
+                transactionVector,
+                rowCount)
+            : new ArrowTreeNode(
+                allocator,
+                reader,
+                keyVector,
+                valueVector,
+                nodePointerVector,
+                transactionVector,
+                rowCount);
+    return Optional.of(node);
+  }
+
+  private static Optional<WriteBufferMessage> findLatestMessage(TreeNode node, String key) {
+    for (int i = node.numMessages() - 1; i >= 0; i--) {
+      WriteBufferMessage message = node.messageAt(i);
+      if (message.key().equals(key)) {
+        return Optional.of(message);
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Scan the rows of the tree in the key range from the start key (inclusive) to the end key
+   * (exclusive), ordered by key, with the messages in write buffers applied.
+   *
+   * <p>Nodes are read lazily while iterating, and only nodes that cover the key range are read.
+   *
+   * @param storage lakehouse storage
+   * @param startNode start node
+   * @param startKey start key, inclusive
+   * @param endKey end key, exclusive
+   * @return iterator of rows in the key range, without node pointers
+   */
+  public static Iterator<NodeKeyTableRow> scan(
+      LakehouseStorage storage, TreeNode startNode, String startKey, String endKey) {
+    ValidationUtil.checkNotNull(startKey, "Start key must be provided");
+    ValidationUtil.checkNotNull(endKey, "End key must be provided");
+    return new RangeScanIterator(storage, startNode, dirtyNodes(startNode), startKey, endKey);
+  }
+
+  /**
+   * Scan the rows of the tree with keys starting with the given prefix, ordered by key.
+   *
+   * @param storage lakehouse storage
+   * @param startNode start node
+   * @param keyPrefix key prefix
+   * @return iterator of rows with the key prefix, without node pointers
+   */
+  public static Iterator<NodeKeyTableRow> scanPrefix(
+      LakehouseStorage storage, TreeNode startNode, String keyPrefix) {
+    ValidationUtil.checkNotNullOrEmptyString(keyPrefix, "Key prefix must be provided");
+    return scan(storage, startNode, keyPrefix, prefixUpperBound(keyPrefix));
+  }
+
+  /**
+   * Scan the rows of the tree with keys starting with the given prefix and strictly greater than
+   * the given key, ordered by key. This is used to resume a scan after the last returned key.
+   *
+   * @param storage lakehouse storage
+   * @param startNode start node
+   * @param keyPrefix key prefix
+   * @param afterKey key to resume the scan after, exclusive
+   * @return iterator of rows with the key prefix after the given key, without node pointers
+   */
+  public static Iterator<NodeKeyTableRow> scanPrefix(
+      LakehouseStorage storage, TreeNode startNode, String keyPrefix, String afterKey) {
+    ValidationUtil.checkNotNullOrEmptyString(keyPrefix, "Key prefix must be provided");
+    ValidationUtil.checkNotNull(afterKey, "After key must be provided");
+    String startKey = afterKey + Character.MIN_VALUE;
+    if (startKey.compareTo(keyPrefix) < 0) {
+      startKey = keyPrefix;
+    }
+
+    return scan(storage, startNode, startKey, prefixUpperBound(keyPrefix));
+  }
+
+  private static String prefixUpperBound(String keyPrefix) {
+    int lastIndex = keyPrefix.length() - 1;
+    char lastChar = keyPrefix.charAt(lastIndex);
+    ValidationUtil.checkArgument(
+        lastChar < Character.MAX_VALUE, "Invalid key prefix ending with max character");
+    return keyPrefix.substring(0, lastIndex) + (char) (lastChar + 1);
+  }
+
+  /**
+   * Find the keys with different values in two trees, such as the roots of two versions, ordered by
+   * key, with the messages in write buffers applied.
+   *
+   * <p>Nodes shared by both trees are not read, so the number of nodes read is proportional to the
+   * number of nodes changed between the trees instead of the size of the trees.
+   *
+   * @param storage lakehouse storage
+   * @param startNodeA start node of the first tree
+   * @param startNodeB start node of the second tree
+   * @return iterator of the keys added, removed or modified in the second tree
+   */
+  public static Iterator<KeyDiff> diff(
+      LakehouseStorage storage, TreeNode startNodeA, TreeNode startNodeB) {
+    return new TreeDiffIterator(storage, startNodeA, startNodeB);
+  }
+
+  /**
+   * Set the value of a key in the tree, by appending a message to the write buffer of the root.
+   *
+   * @param storage lakehouse storage
+   * @param lakehouseDef lakehouse definition
+   * @param root running tree root
+   * @param transactionId ID of the transaction making the change
+   * @param key key to set
+   * @param value value to set
+   */
+  public static void setValue(
+      LakehouseStorage storage,
+      LakehouseDef lakehouseDef,
+      TreeRoot root,
+      String transactionId,
+      String key,
+      String value) {
+    root.appendMessage(
+        ImmutableWriteBufferMessage.builder()
+            .key(key)
+            .value(value)
+            .transactionId(transactionId)
+            .build());
+    flushWriteBufferIfFull(storage, lakehouseDef, root, transactionId);
+  }
+
+  /**
+   * Remove a key from the tree, by appending a delete message to the write buffer of the root.
+   *
+   * @param storage lakehouse storage
+   * @param lakehouseDef lakehouse definition
+   * @param root running tree root
+   * @param transactionId ID of the transaction making the change
+   * @param key key to remove
+   */
+  public static void removeKey(
+      LakehouseStorage storage,
+      LakehouseDef lakehouseDef,
+      TreeRoot root,
+      String transactionId,
+      String key) {
+    root.appendMessage(
+        ImmutableWriteBufferMessage.builder().key(key).transactionId(transactionId).build());
+    flushWriteBufferIfFull(storage, lakehouseDef, root, transactionId);
+  }
+
+  private static void flushWriteBufferIfFull(
+      LakehouseStorage storage, LakehouseDef lakehouseDef, TreeRoot root, String transactionId) {
+    if (isWriteBufferFull(root, lakehouseDef)) {
+      flushWriteBuffer(
+          storage, lakehouseDef, root, transactionId, new AtomicInteger(), () -> false);
+    }
+  }
+
+  /**
+   * Flush the write buffer of the root.
+   *
+   * <p>Messages of the latest committed transaction are kept in the write buffer, together with
+   * any other message against the same keys, so that they can be used for conflict detection when
+   * committing. All the other messages are applied to the node key tables in the order they were
+   * appended, until the stop condition is met. Messages that are not applied stay in the write
+   * buffer in their original order.
+   *
+   * @param storage lakehouse storage
+   * @param lakehouseDef lakehouse definition
+   * @param root tree root to flush
+   * @param runningTransactionId ID of the transaction performing the flush
+   * @param numNodeFileReads counter of the node files read from storage, increased during the flush
+   * @param stopCondition condition checked before applying each message
+   * @return number of messages applied to the node key tables
+   */
+  static int flushWriteBuffer(
+      LakehouseStorage storage,
+      LakehouseDef lakehouseDef,
+      TreeRoot root,
+      String runningTransactionId,
+      AtomicInteger numNodeFileReads,
+      BooleanSupplier stopCondition) {
+    Set<String> retainedKeys = retainedKeys(root.writeBuffer(), runningTransactionId);
+    return flushWriteBuffer(
+        storage, lakehouseDef, root, retainedKeys, numNodeFileReads, stopCondition);
+  }
+
+  /**
+   * Flush the write buffer of the root outside of any transaction, like {@link
+   * #flushWriteBuffer(LakehouseStorage, LakehouseDef, TreeRoot, String, AtomicInteger,
+   * BooleanSupplier)} where every message in the write buffer is committed.
+   *
+   * @param storage lakehouse storage
+   * @param lakehouseDef lakehouse definition
+   * @param root tree root to flush
+   * @param numNodeFileReads counter of the node files read from storage, increased during the flush
+   * @param stopCondition condition checked before applying each message
+   * @return number of messages applied to the node key tables
+   */
+  static int flushWriteBuffer(
+      LakehouseStorage storage,
+      LakehouseDef lakehouseDef,
+      TreeRoot root,
+      AtomicInteger numNodeFileReads,
+      BooleanSupplier stopCondition) {
+    Set<String> retainedKeys = retainedKeys(root.writeBuffer());
+    return flushWriteBuffer(
+        storage, lakehouseDef, root, retainedKeys, numNodeFileReads, stopCondition);
+  }
+
+  private static int flushWriteBuffer(
+      LakehouseStorage storage,
+      LakehouseDef lakehouseDef,
+      TreeRoot root,
+      Set<String> retainedKeys,
+      AtomicInteger numNodeFileReads,
+      BooleanSupplier stopCondition) {
+    List<WriteBufferMessage> messages = root.writeBuffer();
+    root.clearWriteBuffer();
+    ChildNodeReader reader = new ChildNodeReader(storage, root, numNodeFileReads);
+    int numApplied = 0;
+    boolean stopped = false;
+    for (WriteBufferMessage message : messages) {
+      stopped = stopped || stopCondition.getAsBoolean();
+      if (stopped || retainedKeys.contains(message.key())) {
+        root.appendMessage(message);
+      } else {
+        applyMessage(reader, lakehouseDef, root, message);
+        numApplied++;
+      }
+    }
+    return numApplied;
+  }
+
+  private static void applyMessage(
+      ChildNodeReader reader,
+      LakehouseDef lakehouseDef,
+      TreeRoot root,
+      WriteBufferMessage message) {
+    if (message.value().isPresent()) {
+      applySetValue(reader, lakehouseDef, root, message.key(), message.value().get());
+    } else {
+      applyRemoveKey(reader, root, message.key());
+    }
+  }
+
+  /**
+   * Keys of the write buffer messages that are kept when flushing the write buffer, which are the
+   * keys changed by the latest committed transaction.
+   *
+   * @param messages write buffer messages
+   * @param runningTransactionId ID of the transaction performing the flush
+   * @return retained keys
+   */
+  static Set<String> retainedKeys(List<WriteBufferMessage> messages, String runningTransactionId) {
+    Optional<String> transactionId = latestCommittedTransactionId(messages, runningTransactionId);
+    return keysOfTransaction(messages, transactionId);
+  }
+
+  /**
+   * Keys of the write buffer messages that are kept when flushing the write buffer outside of any
+   * transaction, in which case the latest committed transaction is the one of the last message.
+   *
+   * @param messages write buffer messages
+   * @return retained keys
+   */
+  static Set<String> retainedKeys(List<WriteBufferMessage> messages) {
+    return keysOfTransaction(
+        messages,
+        messages.isEmpty()
+            ? Optional.empty()
+            : Optional.of(messages.get(messages.size() - 1).transactionId()));
+  }
+
+  private static Set<String> keysOfTransaction(
+      List<WriteBufferMessage> messages, Optional<String> transactionId) {
+    Set<String> keys = Sets.newHashSet();
+    transactionId.ifPresent(
+        id ->
+            messages.stream()
+                .filter(message -> message.transactionId().equals(id))
+                .forEach(message -> keys.add(message.key())));
+    return keys;
+  }
+
+  private static Optional<String> latestCommittedTransactionId(
+      List<WriteBufferMessage> messages, String runningTransactionId) {
+    for (int i = messages.size() - 1; i >= 0; i--) {
+      if (!messages.get(i).transactionId().equals(runningTransactionId)) {
+        return Optional.of(messages.get(i).transactionId());
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static boolean isWriteBufferFull(TreeNode node, LakehouseDef lakehouseDef) {
+    if (node.numMessages() >= lakehouseOrder(lakehouseDef) - 1) {
+      return true;
+    }
+
+    return lakehouseDef.hasNodeFileMaxSizeBytes()
+        && estimateNodeKeyTableSizeBytes(node) + estimateWriteBufferSizeBytes(node)
+            > lakehouseDef.getNodeFileMaxSizeBytes();
+  }
+
+  /**
+   * Set the value of a key directly in the node key tables.
+   *
+   * <p>Every non-root node on the path from the root to the key is copied to a new node file, so
+   * that node files of earlier versions are never modified. A node that exceeds the lakehouse
+   * order or node file size limit is split, with the median key moved to its parent. When the root
+   * overflows, its keys are moved to two new children and the tree height grows by one.
+   */
+  private static void applySetValue(
+      ChildNodeReader reader,
+      LakehouseDef lakehouseDef,
+      TreeRoot root,
+      String key,
+      String value) {
+    insert(reader, lakehouseDef, root, root, key, value);
+    if (needsSplit(root, lakehouseDef)) {
+      NodeSplit split = splitNode(root, root);
+      root.clearNodeKeyTable();
+      root.setLeftmostNodePointer(split.leftNodePointer());
+      setRow(root, split.median());
+    }
+  }
+
+  /**
+   * Remove a key directly from the node key tables.
+   *
+   * <p>A key in a non-leaf node is replaced by its predecessor, which is removed from the subtree
+   * on its left. Nodes left without any key are removed from their parent, and the root collapses
+   * into its only child when it has no key left. Underfull nodes are not merged with or refilled
+   * from their siblings, so a tree that shrinks keeps its height until it is rebuilt by a bulk
+   * load.
+   */
+  private static void applyRemoveKey(ChildNodeReader reader, TreeRoot root, String key) {
+    delete(reader, root, root, key);
+    while (root.numKeys() == 0 && root.leftmostNodePointer().isPresent()) {
+      String childNodePointer = root.leftmostNodePointer().get();
+      TreeNode child = reader.read(childNodePointer);
+      root.removeDirtyNode(childNodePointer);
+      root.clearLeftmostNodePointer();
+      copyRows(child, 0, child.numKeys(), root);
+      child.leftmostNodePointer().ifPresent(root::setLeftmostNodePointer);
+    }
+  }
+
+  /**
+   * List all the rows in the tree with the given start node, ordered by key, with the messages in
+   * write buffers applied.
+   *
+   * @param storage lakehouse storage
+   * @param startNode start node
+   * @return rows ordered by key, without node pointers
+   */
+  public static List<NodeKeyTableRow> listRows(LakehouseStorage storage, TreeNode startNode) {
+    NavigableMap<String, String> values = Maps.newTreeMap();
+    addRows(storage, dirtyNodes(startNode), startNode, values);
+    return values.entrySet().stream()
+        .map(e -> ImmutableNodeKeyTableRow.builder().key(e.getKey()).value(e.getValue()).build())
+        .collect(Collectors.toList());
+  }
+
+  private static void addRows(
+      LakehouseStorage storage,
+      Map<String, TreeNode> dirtyNodes,
+      TreeNode node,
+      NavigableMap<String, String> values) {
+    node.leftmostNodePointer().ifPresent(pointer -> addRows(storage, dirtyNodes, pointer, values));
+    for (int i = 0; i < node.numKeys(); i++) {
+      values.put(node.keyAt(i), node.valueAt(i));
+      node.nodePointerAt(i).ifPresent(pointer -> addRows(storage, dirtyNodes, pointer, values));
+    }
+
+    for (WriteBufferMessage message : node.writeBuffer()) {
+      if (message.value().isPresent()) {
+        values.put(message.key(), message.value().get());
+      } else {
+        values.remove(message.key());
       }
+    }
+  }
 
-      if (!searchResult.nodePointer().isPresent()) {
-        return Optional.empty();
+  private static void addRows(
+      LakehouseStorage storage,
+      Map<String, TreeNode> dirtyNodes,
+      String nodePointer,
+      NavigableMap<String, String> values) {
+    addRows(storage, dirtyNodes, readCachedNodeFile(storage, dirtyNodes, nodePointer), values);
+  }
+
+  private static void insert(
+      ChildNodeReader reader,
+      LakehouseDef lakehouseDef,
+      TreeRoot root,
+      TreeNode node,
+      String key,
+      String value) {
+    NodeSearchResult searchResult = node.search(key);
+    if (searchResult.value().isPresent() || !searchResult.nodePointer().isPresent()) {
+      node.set(key, value);
+      return;
+    }
+
+    Optional<String> slotKey = node.lowerKey(key);
+    String childNodePointer = searchResult.nodePointer().get();
+    TreeNode child = reader.read(childNodePointer);
+    insert(reader, lakehouseDef, root, child, key, value);
+    if (needsSplit(child, lakehouseDef)) {
+      root.removeDirtyNode(childNodePointer);
+      NodeSplit split = splitNode(root, child);
+      setChildNodePointer(node, slotKey, split.leftNodePointer());
+      setRow(node, split.median());
+    } else {
+      setChildNodePointer(node, slotKey, markDirty(root, childNodePointer, child));
+    }
+  }
+
+  private static boolean delete(
+      ChildNodeReader reader, TreeRoot root, TreeNode node, String key) {
+    NodeSearchResult searchResult = node.search(key);
+    if (searchResult.value().isPresent()) {
+      deleteFromNode(reader, root, node, key);
+      return true;
+    }
+
+    if (!searchResult.nodePointer().isPresent()) {
+      return false;
+    }
+
+    Optional<String> slotKey = node.lowerKey(key);
+    String childNodePointer = searchResult.nodePointer().get();
+    TreeNode child = reader.read(childNodePointer);
+    if (!delete(reader, root, child, key)) {
+      return false;
+    }
+
+    persistChild(root, node, slotKey, childNodePointer, child);
+    return true;
+  }
+
+  private static void deleteFromNode(
+      ChildNodeReader reader, TreeRoot root, TreeNode node, String key) {
+    Optional<String> slotKey = node.lowerKey(key);
+    Optional<String> leftNodePointer = childNodePointer(node, slotKey);
+    Optional<String> rightNodePointer = node.nodePointer(key);
+    Optional<NodeKeyTableRow> predecessor = Optional.empty();
+    if (leftNodePointer.isPresent()) {
+      TreeNode leftChild = reader.read(leftNodePointer.get());
+      predecessor = removeMaxRow(reader, root, leftChild);
+      persistChild(root, node, slotKey, leftNodePointer.get(), leftChild);
+    }
+
+    node.remove(key);
+    if (predecessor.isPresent()) {
+      setRow(
+          node,
+          ImmutableNodeKeyTableRow.builder()
+              .from(predecessor.get())
+              .nodePointer(rightNodePointer)
+              .build());
+    } else if (rightNodePointer.isPresent()) {
+      // the left subtree is empty, the right subtree takes over its slot
+      setChildNodePointer(node, slotKey, rightNodePointer.get());
+    }
+  }
+
+  private static Optional<NodeKeyTableRow> removeMaxRow(
+      ChildNodeReader reader, TreeRoot root, TreeNode node) {
+    int lastIndex = node.numKeys() - 1;
+    Optional<String> lastKey =
+        lastIndex < 0 ? Optional.empty() : Optional.of(node.keyAt(lastIndex));
+    Optional<String> rightmostNodePointer = childNodePointer(node, lastKey);
+    if (rightmostNodePointer.isPresent()) {
+      TreeNode child = reader.read(rightmostNodePointer.get());
+      Optional<NodeKeyTableRow> maxRow = removeMaxRow(reader, root, child);
+      persistChild(root, node, lastKey, rightmostNodePointer.get(), child);
+      if (maxRow.isPresent()) {
+        return maxRow;
       }
+    }
+
+    if (!lastKey.isPresent()) {
+      return Optional.empty();
+    }
+
+    NodeKeyTableRow lastRow =
+        ImmutableNodeKeyTableRow.builder()
+            .key(lastKey.get())
+            .value(node.valueAt(lastIndex))
+            .build();
+    node.remove(lastKey.get());
+    return Optional.of(lastRow);
+  }
+
+  private static void persistChild(
+      TreeRoot root,
+      TreeNode node,
+      Optional<String> slotKey,
+      String childNodePointer,
+      TreeNode child) {
+    if (child.numKeys() > 0) {
+      setChildNodePointer(node, slotKey, markDirty(root, childNodePointer, child));
+      return;
+    }
+
+    root.removeDirtyNode(childNodePointer);
+    if (child.leftmostNodePointer().isPresent()) {
+      setChildNodePointer(node, slotKey, child.leftmostNodePointer().get());
+    } else if (slotKey.isPresent()) {
+      node.clearNodePointer(slotKey.get());
+    } else {
+      node.clearLeftmostNodePointer();
+    }
+  }
+
+  private static Optional<String> childNodePointer(TreeNode node, Optional<String> slotKey) {
+    return slotKey.isPresent() ? node.nodePointer(slotKey.get()) : node.leftmostNodePointer();
+  }
+
+  private static void setChildNodePointer(
+      TreeNode node, Optional<String> slotKey, String nodePointer) {
+    if (slotKey.isPresent()) {
+      node.setNodePointer(slotKey.get(), nodePointer);
+    } else {
+      node.setLeftmostNodePointer(nodePointer);
+    }
+  }
 
-      currentNode = readRootNodeFile(storage, searchResult.nodePointer().get());
+  static void setRow(TreeNode node, NodeKeyTableRow row) {
+    node.set(row.key(), row.value());
+    if (row.nodePointer().isPresent()) {
+      node.setNodePointer(row.key(), row.nodePointer().get());
+    } else {
+      node.clearNodePointer(row.key());
     }
   }
 
-  public static void setValue(LakehouseStorage storage, TreeRoot root, String key, String value) {
-    // TODO: implement actual algorithm
-    root.set(key, value);
+  private static boolean needsSplit(TreeNode node, LakehouseDef lakehouseDef) {
+    if (node.numKeys() < 2) {
+      return false;
+    }
+
+    if (node.numKeys() >= lakehouseOrder(lakehouseDef)) {
+      return true;
+    }
+
+    return lakehouseDef.hasNodeFileMaxSizeBytes()
+        && estimateNodeKeyTableSizeBytes(node) > lakehouseDef.getNodeFileMaxSizeBytes();
   }
 
-  public static void removeKey(LakehouseStorage storage, TreeRoot root, String key) {
-    // TODO: implement actual algorithm
-    root.remove(key);
+  static int lakehouseOrder(LakehouseDef lakehouseDef) {
+    return lakehouseDef.hasOrder() ? lakehouseDef.getOrder() : LAKEHOUSE_ORDER_DEFAULT;
+  }
+
+  private static long estimateWriteBufferSizeBytes(TreeNode node) {
+    long sizeBytes = 0;
+    for (int i = 0; i < node.numMessages(); i++) {
+      WriteBufferMessage message = node.messageAt(i);
+      sizeBytes += utf8SizeBytes(message.key()) + utf8SizeBytes(message.transactionId());
+      sizeBytes += message.value().map(TreeOperations::utf8SizeBytes).orElse(0L);
+    }
+    return sizeBytes;
+  }
+
+  static long estimateNodeKeyTableSizeBytes(TreeNode node) {
+    long sizeBytes = 0;
+    for (int i = 0; i < node.numKeys(); i++) {
+      sizeBytes += utf8SizeBytes(node.keyAt(i)) + utf8SizeBytes(node.valueAt(i));
+      sizeBytes += node.nodePointerAt(i).map(TreeOperations::utf8SizeBytes).orElse(0L);
+    }
+    return sizeBytes;
+  }
+
+  /**
+   * Size of the string once encoded in a node file, which stores strings in UTF-8. Unlike {@link
+   * String#length()}, this counts 2 or 3 bytes for characters outside of ASCII.
+   */
+  static long utf8SizeBytes(String value) {
+    long sizeBytes = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        sizeBytes += 1;
+      } else if (c < 0x800 || Character.isSurrogate(c)) {
+        // a surrogate pair is encoded in 4 bytes
+        sizeBytes += 2;
+      } else {
+        sizeBytes += 3;
+      }
+    }
+    return sizeBytes;
+  }
+
+  private static long estimateDecodedSizeBytes(TreeNode node) {
+    long numChars = 0;
+    for (int i = 0; i < node.numKeys(); i++) {
+      numChars += node.keyAt(i).length() + node.valueAt(i).length();
+      numChars += node.nodePointerAt(i).map(String::length).orElse(0);
+    }
+    for (int i = 0; i < node.numMessages(); i++) {
+      WriteBufferMessage message = node.messageAt(i);
+      numChars += message.key().length() + message.transactionId().length();
+      numChars += message.value().map(String::length).orElse(0);
+    }
+    long numRows = node.numKeys() + node.numMessages();
+    return numChars * Character.BYTES + numRows * DECODED_ROW_OVERHEAD_BYTES;
+  }
+
+  private static NodeSplit splitNode(TreeRoot root, TreeNode node) {
+    int medianIndex = node.numKeys() / 2;
+
+    TreeNode left = new BasicTreeNode();
+    node.leftmostNodePointer().ifPresent(left::setLeftmostNodePointer);
+    copyRows(node, 0, medianIndex, left);
+
+    TreeNode right = new BasicTreeNode();
+    node.nodePointerAt(medianIndex).ifPresent(right::setLeftmostNodePointer);
+    copyRows(node, medianIndex + 1, node.numKeys(), right);
+
+    String leftNodePointer = putNewDirtyNode(root, left);
+    String rightNodePointer = putNewDirtyNode(root, right);
+    return new NodeSplit(
+        leftNodePointer,
+        ImmutableNodeKeyTableRow.builder()
+            .key(node.keyAt(medianIndex))
+            .value(node.valueAt(medianIndex))
+            .nodePointer(rightNodePointer)
+            .build());
+  }
+
+  private static void copyRows(TreeNode source, int fromIndex, int toIndex, TreeNode target) {
+    for (int i = fromIndex; i < toIndex; i++) {
+      String key = source.keyAt(i);
+      target.set(key, source.valueAt(i));
+      source.nodePointerAt(i).ifPresent(pointer -> target.setNodePointer(key, pointer));
+    }
+  }
+
+  /**
+   * Reader of the child nodes to be changed. A dirty node of the root is changed in place, while a
+   * node file in storage is copied, so that node files of earlier versions are never modified.
+   */
+  private static class ChildNodeReader {
+
+    private final LakehouseStorage storage;
+    private final TreeRoot root;
+    private final AtomicInteger numNodeFileReads;
+
+    ChildNodeReader(LakehouseStorage storage, TreeRoot root, AtomicInteger numNodeFileReads) {
+      this.storage = storage;
+      this.root = root;
+      this.numNodeFileReads = numNodeFileReads;
+    }
+
+    TreeNode read(String path) {
+      TreeNode dirtyNode = root.dirtyNodes().get(path);
+      if (dirtyNode != null) {
+        return dirtyNode;
+      }
+
+      numNodeFileReads.incrementAndGet();
+      return readNodeFile(storage, path);
+    }
+  }
+
+  /**
+   * Mark a changed node as dirty, to be written when the root is written. A node that is already
+   * dirty keeps its path, while a copied node file gets a new path.
+   *
+   * @return path of the dirty node
+   */
+  private static String markDirty(TreeRoot root, String path, TreeNode node) {
+    if (!root.dirtyNodes().containsKey(path)) {
+      return putNewDirtyNode(root, node);
+    }
+
+    node.clearPath();
+    node.clearCreatedAtMillis();
+    root.putDirtyNode(path, node);
+    return path;
+  }
+
+  /**
+   * Mark a node as dirty with a new path, for a node that has no node file yet or whose node file
+   * is copied.
+   *
+   * @return path of the dirty node
+   */
+  private static String putNewDirtyNode(TreeRoot root, TreeNode node) {
+    String path = FileLocations.newNodeFilePath();
+    node.clearPath();
+    node.clearCreatedAtMillis();
+    root.putDirtyNode(path, node);
+    return path;
+  }
+
+  private static class NodeSplit {
+
+    private final String leftNodePointer;
+    private final NodeKeyTableRow median;
+
+    NodeSplit(String leftNodePointer, NodeKeyTableRow median) {
+      this.leftNodePointer = leftNodePointer;
+      this.median = median;
+    }
+
+    String leftNodePointer() {
+      return leftNodePointer;
+    }
+
+    NodeKeyTableRow median() {
+      return median;
+    }
   }
 }
@@ -13,6 +13,7 @@
  */
 package io.trinitylake.tree;
 
+import java.util.Map;
 import java.util.Optional;
 
 public interface TreeRoot extends TreeNode {
@@ -32,4 +33,19 @@ public interface TreeRoot extends TreeNode {
   String lakehouseDefFilePath();
 
   void setLakehouseDefFilePath(String lakehouseDefFilePath);
+
+  /**
+   * Nodes changed under this root that are not yet written to storage, keyed by the path of the
+   * node file they will be written to. Node pointers in the tree can refer to these paths before
+   * the nodes are written.
+   *
+   * @return dirty nodes by node file path
+   */
+  Map<String, TreeNode> dirtyNodes();
+
+  void putDirtyNode(String path, TreeNode node);
+
+  void removeDirtyNode(String path);
+
+  void clearDirtyNodes();
 }
@@ -0,0 +1,287 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.FileLocations;
+import io.trinitylake.exception.StorageAtomicSealFailureException;
+import io.trinitylake.exception.StorageFileOpenFailureException;
+import io.trinitylake.exception.StoragePathNotFoundException;
+import io.trinitylake.exception.StorageReadFailureException;
+import io.trinitylake.exception.StorageWriteFailureException;
+import io.trinitylake.models.LakehouseDef;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableList;
+import io.trinitylake.relocated.com.google.common.collect.Lists;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.util.FileUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Expiration of lakehouse versions according to the retention settings in the lakehouse
+ * definition.
+ *
+ * <p>Versions are expired from the oldest version, by moving the minimum version recorded in the
+ * minimum version file forward. Once the minimum version file is written, readers no longer access
+ * the expired versions, and their root node files and the timestamp index segment files that only
+ * cover expired versions are deleted. Other files that are only reachable from expired versions
+ * are left to garbage collection.
+ */
+public class VersionExpiration {
+
+  private static final Logger LOG = LoggerFactory.getLogger(VersionExpiration.class);
+
+  static final long MAXIMUM_VERSION_AGE_MILLIS_DEFAULT = TimeUnit.DAYS.toMillis(7);
+  static final int MINIMUM_VERSIONS_TO_KEEP_DEFAULT = 3;
+
+  private VersionExpiration() {}
+
+  /**
+   * Expire the versions that are older than their maximum age and not among the minimum number of
+   * versions to keep.
+   *
+   * <p>Concurrent expirations are serialized by a lock file. If the lock is held by another
+   * expiration that has not timed out, nothing is expired.
+   *
+   * @param storage lakehouse storage
+   * @param options expiration options
+   * @return expiration result
+   */
+  public static VersionExpirationResult expire(
+      LakehouseStorage storage, VersionExpirationOptions options) {
+    return expire(storage, options, System.currentTimeMillis());
+  }
+
+  static VersionExpirationResult expire(
+      LakehouseStorage storage, VersionExpirationOptions options, long nowMillis) {
+    String lockContent = nowMillis + "\n" + UUID.randomUUID();
+    if (!tryAcquireLock(storage, options, lockContent, nowMillis)) {
+      long minimumVersion = TreeOperations.findMinimumVersion(storage);
+      LOG.info("Version expiration lock is held by another expiration, skip expiration");
+      return ImmutableVersionExpirationResult.builder()
+          .previousMinimumVersion(minimumVersion)
+          .minimumVersion(minimumVersion)
+          .numDeletedFiles(0)
+          .build();
+    }
+
+    try {
+      // read after the lock is acquired, so that the minimum version never moves backward
+      long previousMinimumVersion = TreeOperations.findMinimumVersion(storage);
+      long minimumVersion = findExpiredMinimumVersion(storage, previousMinimumVersion, nowMillis);
+      ImmutableVersionExpirationResult.Builder result =
+          ImmutableVersionExpirationResult.builder()
+              .previousMinimumVersion(previousMinimumVersion)
+              .minimumVersion(minimumVersion);
+      if (minimumVersion == previousMinimumVersion) {
+        return result.numDeletedFiles(0).build();
+      }
+
+      writeMinimumVersionFile(storage, minimumVersion);
+      List<String> expiredFilePaths = expiredFilePaths(previousMinimumVersion, minimumVersion);
+      int numDeletedFiles = TreeOperations.deleteFiles(storage, expiredFilePaths);
+      return result.numDeletedFiles(numDeletedFiles).build();
+    } finally {
+      releaseLock(storage, lockContent);
+    }
+  }
+
+  /**
+   * Find the minimum version after expiration. All versions lower than it must be expirable, so
+   * the search stops at the first version that must be kept.
+   */
+  private static long findExpiredMinimumVersion(
+      LakehouseStorage storage, long previousMinimumVersion, long nowMillis) {
+    TreeRoot latest = TreeOperations.findLatestRoot(storage);
+    LakehouseDef lakehouseDef = TreeOperations.findLakehouseDef(storage, latest);
+    long latestVersion = TreeOperations.findVersionFromRootNode(latest);
+    int minimumVersionsToKeep =
+        Math.max(
+            1,
+            lakehouseDef.hasMinimumVersionsToKeep()
+                ? lakehouseDef.getMinimumVersionsToKeep()
+                : MINIMUM_VERSIONS_TO_KEEP_DEFAULT);
+    long maxExpirableVersion = latestVersion - minimumVersionsToKeep;
+    if (maxExpirableVersion < previousMinimumVersion) {
+      return previousMinimumVersion;
+    }
+
+    long maximumVersionAgeMillis =
+        lakehouseDef.hasMaximumVersionAgeMillis()
+            ? lakehouseDef.getMaximumVersionAgeMillis()
+            : MAXIMUM_VERSION_AGE_MILLIS_DEFAULT;
+    long maxExpiredVersion =
+        TimestampIndex.findLatestVersionBefore(
+                storage,
+                previousMinimumVersion,
+                maxExpirableVersion,
+                latestVersion,
+                nowMillis - maximumVersionAgeMillis)
+            .orElse(previousMinimumVersion - 1);
+
+    Map<Long, Long> overrides = lakehouseDef.getMaximumVersionAgeMillisOverridesMap();
+    for (Map.Entry<Long, Long> override : overrides.entrySet()) {
+      long version = override.getKey();
+      if (version >= previousMinimumVersion
+          && version <= maxExpiredVersion
+          && versionAgeMillis(storage, version, nowMillis) <= override.getValue()) {
+        // the version is kept longer than the maximum age, together with all versions after it
+        maxExpiredVersion = version - 1;
+      }
+    }
+
+    // versions with a shorter maximum age right after the expired versions are also expired
+    while (maxExpiredVersion < maxExpirableVersion
+        && overrides.containsKey(maxExpiredVersion + 1)
+        && versionAgeMillis(storage, maxExpiredVersion + 1, nowMillis)
+            > overrides.get(maxExpiredVersion + 1)) {
+      maxExpiredVersion++;
+    }
+
+    return Math.max(previousMinimumVersion, maxExpiredVersion + 1);
+  }
+
+  private static long versionAgeMillis(LakehouseStorage storage, long version, long nowMillis) {
+    TreeRoot root =
+        TreeOperations.readCachedRootNodeFile(storage, FileLocations.rootNodeFilePath(version));
+    // a version without creation time is considered just created, so that it is never expired
+    return nowMillis - root.createdAtMillis().orElse(nowMillis);
+  }
+
+  private static List<String> expiredFilePaths(long previousMinimumVersion, long minimumVersion) {
+    List<String> paths = Lists.newArrayList();
+    for (long version = previousMinimumVersion; version < minimumVersion; version++) {
+      paths.add(FileLocations.rootNodeFilePath(version));
+    }
+
+    // segments that cover only expired versions are no longer searched
+    for (long segment = previousMinimumVersion / TimestampIndex.SEGMENT_SIZE;
+        (segment + 1) * TimestampIndex.SEGMENT_SIZE <= minimumVersion;
+        segment++) {
+      paths.add(FileLocations.timestampIndexFilePath(segment));
+    }
+
+    return paths;
+  }
+
+  /**
+   * Write the minimum version file, unless the minimum version in storage is already the same or
+   * higher, so that the minimum version never moves backward.
+   */
+  static void writeMinimumVersionFile(LakehouseStorage storage, long minimumVersion) {
+    long currentMinimumVersion = TreeOperations.findMinimumVersion(storage);
+    if (minimumVersion <= currentMinimumVersion) {
+      LOG.info(
+          "Minimum version {} is already reached in storage, skip writing minimum version {}",
+          currentMinimumVersion,
+          minimumVersion);
+      return;
+    }
+
+    try (OutputStream stream = storage.startOverwrite(FileLocations.MINIMUM_VERSION_FILE_PATH)) {
+      stream.write(Long.toString(minimumVersion).getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new StorageWriteFailureException(e, "Failed to write minimum version file");
+    }
+  }
+
+  /**
+   * Try to acquire the lock by writing the lock file with the given content, which holds the lock
+   * time and a random owner token. The lock file is read back after it is written, so that the
+   * lock is only considered acquired if it holds the content of this expiration.
+   */
+  private static boolean tryAcquireLock(
+      LakehouseStorage storage,
+      VersionExpirationOptions options,
+      String lockContent,
+      long nowMillis) {
+    if (tryWriteLockFile(storage, lockContent)) {
+      return isLockHeld(storage, lockContent);
+    }
+
+    Optional<String> existingLockContent = tryReadLockFile(storage);
+    if (!existingLockContent.isPresent()) {
+      // the lock is released after the lock file is written
+      return tryWriteLockFile(storage, lockContent) && isLockHeld(storage, lockContent);
+    }
+
+    long lockedAtMillis = lockedAtMillis(existingLockContent.get());
+    if (nowMillis - lockedAtMillis < options.lockTimeoutMillis()) {
+      return false;
+    }
+
+    LOG.warn("Take over version expiration lock acquired at {}", lockedAtMillis);
+    releaseLock(storage, existingLockContent.get());
+    return tryWriteLockFile(storage, lockContent) && isLockHeld(storage, lockContent);
+  }
+
+  private static boolean isLockHeld(LakehouseStorage storage, String lockContent) {
+    return tryReadLockFile(storage).map(lockContent::equals).orElse(false);
+  }
+
+  /** A lock file without a valid lock time is considered abandoned. */
+  private static long lockedAtMillis(String lockContent) {
+    try {
+      return Long.parseLong(lockContent.split("\n", 2)[0]);
+    } catch (NumberFormatException e) {
+      LOG.warn("Invalid version expiration lock file content: {}", lockContent);
+      return 0;
+    }
+  }
+
+  private static boolean tryWriteLockFile(LakehouseStorage storage, String lockContent) {
+    try (OutputStream stream =
+        storage.startCommit(FileLocations.VERSION_EXPIRATION_LOCK_FILE_PATH)) {
+      stream.write(lockContent.getBytes(StandardCharsets.UTF_8));
+      return true;
+    } catch (StorageAtomicSealFailureException e) {
+      return false;
+    } catch (IOException e) {
+      throw new StorageWriteFailureException(e, "Failed to write version expiration lock file");
+    }
+  }
+
+  private static Optional<String> tryReadLockFile(LakehouseStorage storage) {
+    try (InputStream stream = storage.startRead(FileLocations.VERSION_EXPIRATION_LOCK_FILE_PATH)) {
+      return Optional.of(FileUtil.readToString(stream));
+    } catch (StorageFileOpenFailureException
+        | StoragePathNotFoundException
+        | StorageReadFailureException
+        | IOException e) {
+      LOG.warn("Failed to read version expiration lock file", e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Delete the lock file if it still holds the given content. The lock file of another expiration
+   * that took over the lock is left as is.
+   */
+  private static void releaseLock(LakehouseStorage storage, String lockContent) {
+    if (!isLockHeld(storage, lockContent)) {
+      LOG.warn("Version expiration lock is held by another expiration, skip releasing the lock");
+      return;
+    }
+
+    storage.delete(ImmutableList.of(FileLocations.VERSION_EXPIRATION_LOCK_FILE_PATH));
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.StringMapBased;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableSet;
+import io.trinitylake.util.PropertyUtil;
+import io.trinitylake.util.ValidationUtil;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class VersionExpirationOptions implements StringMapBased {
+
+  public static final String LOCK_TIMEOUT_MILLIS = "expiration.lock-timeout-millis";
+  public static final long LOCK_TIMEOUT_MILLIS_DEFAULT = TimeUnit.MINUTES.toMillis(10);
+
+  public static final Set<String> OPTIONS =
+      ImmutableSet.<String>builder().add(LOCK_TIMEOUT_MILLIS).build();
+
+  private final Map<String, String> options;
+  private final long lockTimeoutMillis;
+
+  public VersionExpirationOptions() {
+    this(ImmutableMap.of());
+  }
+
+  public VersionExpirationOptions(Map<String, String> options) {
+    this.options = PropertyUtil.filterProperties(options, OPTIONS::contains);
+    this.lockTimeoutMillis =
+        PropertyUtil.propertyAsLong(options, LOCK_TIMEOUT_MILLIS, LOCK_TIMEOUT_MILLIS_DEFAULT);
+    ValidationUtil.checkArgument(
+        lockTimeoutMillis > 0,
+        "%s must be positive, but got %s",
+        LOCK_TIMEOUT_MILLIS,
+        lockTimeoutMillis);
+  }
+
+  @Override
+  public Map<String, String> asStringMap() {
+    return options;
+  }
+
+  /**
+   * Time after which the lock of an expiration that has not released it is considered abandoned,
+   * and can be taken over by another expiration
+   *
+   * @return timeout in millis
+   */
+  public long lockTimeoutMillis() {
+    return lockTimeoutMillis;
+  }
+}
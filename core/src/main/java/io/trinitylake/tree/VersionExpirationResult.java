@@ -0,0 +1,45 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import org.immutables.value.Value;
+
+@Value.Immutable
+public interface VersionExpirationResult {
+
+  /**
+   * Minimum version before the expiration
+   *
+   * @return version
+   */
+  long previousMinimumVersion();
+
+  /**
+   * Minimum version after the expiration, versions lower than this are expired
+   *
+   * @return version
+   */
+  long minimumVersion();
+
+  /**
+   * Number of files deleted by the expiration, which excludes the files that failed to be deleted
+   *
+   * @return number of files
+   */
+  int numDeletedFiles();
+
+  default long numExpiredVersions() {
+    return minimumVersion() - previousMinimumVersion();
+  }
+}
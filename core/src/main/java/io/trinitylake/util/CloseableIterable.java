@@ -0,0 +1,29 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.util;
+
+import java.io.Closeable;
+
+/**
+ * An iterable whose iterators might hold resources, such as work running in the background, until
+ * the iterable is closed.
+ *
+ * @param <T> type of the elements
+ */
+public interface CloseableIterable<T> extends Iterable<T>, Closeable {
+
+  /** Release the resources held by the iterators, which must not be used afterwards. */
+  @Override
+  void close();
+}
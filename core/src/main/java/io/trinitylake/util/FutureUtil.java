@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.util;
+
+import io.trinitylake.exception.TrinityLakeRuntimeException;
+import io.trinitylake.relocated.com.google.common.base.Throwables;
+import io.trinitylake.relocated.com.google.common.collect.Lists;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+public class FutureUtil {
+
+  private FutureUtil() {}
+
+  /**
+   * Wait for tasks submitted to the storage executor. All the tasks are cancelled if any of them
+   * fails, and the failure of the task is thrown as is if it is unchecked.
+   *
+   * @param tasks submitted tasks
+   * @param description description of the tasks for the error message, like "read node files"
+   * @param <T> result type
+   * @return results of the tasks, in the order of the tasks
+   */
+  public static <T> List<T> awaitAll(
+      Collection<? extends Future<? extends T>> tasks, String description) {
+    List<T> results = Lists.newArrayListWithCapacity(tasks.size());
+    try {
+      for (Future<? extends T> task : tasks) {
+        results.add(task.get());
+      }
+    } catch (ExecutionException e) {
+      tasks.forEach(task -> task.cancel(true));
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new TrinityLakeRuntimeException(e.getCause(), "Failed to %s", description);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      tasks.forEach(task -> task.cancel(true));
+      throw new TrinityLakeRuntimeException(e, "Interrupted when trying to %s", description);
+    }
+
+    return results;
+  }
+}
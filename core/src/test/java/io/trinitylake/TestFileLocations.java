@@ -71,6 +71,15 @@ public class TestFileLocations {
         .hasMessageContaining("Root node file path must match pattern");
   }
 
+  @Test
+  public void testNodeFilePath() {
+    assertThat(FileLocations.newNodeFilePath())
+        .contains(FileLocations.NODE_FILE_PATH_PREFIX)
+        .endsWith(FileLocations.ARROW_IPC_FILE_SUFFIX)
+        .hasSize(23 + "-node-".length() + 36 + FileLocations.ARROW_IPC_FILE_SUFFIX.length());
+    assertThat(FileLocations.isRootNodeFilePath(FileLocations.newNodeFilePath())).isFalse();
+  }
+
   @Test
   public void testLakehouseDefFilePath() {
     assertThat(FileLocations.newLakehouseDefFilePath())
@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.trinitylake.models.NamespaceDef;
+import io.trinitylake.models.TableDef;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableList;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.storage.BasicLakehouseStorage;
+import io.trinitylake.storage.CommonStorageOpsProperties;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.storage.LiteralURI;
+import io.trinitylake.storage.local.LocalStorageOps;
+import io.trinitylake.storage.local.LocalStorageOpsProperties;
+import io.trinitylake.util.Pair;
+import java.io.File;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestObjectDefinitions {
+
+  @TempDir private File tempDir;
+
+  private LakehouseStorage storage;
+
+  @BeforeEach
+  public void beforeEach() {
+    CommonStorageOpsProperties props =
+        new CommonStorageOpsProperties(
+            ImmutableMap.of(
+                CommonStorageOpsProperties.WRITE_STAGING_DIRECTORY, tempDir + "/tmp-write",
+                CommonStorageOpsProperties.IO_PARALLELISM, "4"));
+
+    this.storage =
+        new BasicLakehouseStorage(
+            new LiteralURI("file://" + tempDir),
+            new LocalStorageOps(props, LocalStorageOpsProperties.instance()));
+  }
+
+  @Test
+  public void testWriteNamespaceDefs() {
+    List<Pair<String, NamespaceDef>> namespaceDefs =
+        IntStream.range(0, 20)
+            .mapToObj(
+                i ->
+                    Pair.of(
+                        "ns" + i, NamespaceDef.newBuilder().putProperties("k", "v" + i).build()))
+            .collect(Collectors.toList());
+
+    List<String> paths = ObjectDefinitions.writeNamespaceDefs(storage, namespaceDefs);
+
+    assertThat(paths).hasSize(20).doesNotHaveDuplicates();
+    for (int i = 0; i < 20; i++) {
+      assertThat(paths.get(i)).contains("-ns" + i + "-");
+      assertThat(ObjectDefinitions.readNamespaceDef(storage, paths.get(i)))
+          .isEqualTo(namespaceDefs.get(i).second());
+    }
+  }
+
+  @Test
+  public void testWriteTableDefs() {
+    List<Pair<String, TableDef>> tableDefs =
+        IntStream.range(0, 20)
+            .mapToObj(
+                i -> Pair.of("t" + i, TableDef.newBuilder().putProperties("k", "v" + i).build()))
+            .collect(Collectors.toList());
+
+    List<String> paths = ObjectDefinitions.writeTableDefs(storage, "ns1", tableDefs);
+
+    assertThat(paths).hasSize(20).doesNotHaveDuplicates();
+    for (int i = 0; i < 20; i++) {
+      assertThat(paths.get(i)).contains("-ns1-t" + i + "-");
+      assertThat(ObjectDefinitions.readTableDef(storage, paths.get(i)))
+          .isEqualTo(tableDefs.get(i).second());
+    }
+  }
+
+  @Test
+  public void testWriteEmptyTableDefs() {
+    assertThat(ObjectDefinitions.writeTableDefs(storage, "ns1", ImmutableList.of())).isEmpty();
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.trinitylake.exception.CommitAttemptExhaustedException;
+import io.trinitylake.exception.CommitFailureException;
+import io.trinitylake.exception.InvalidArgumentException;
+import io.trinitylake.exception.StorageWriteFailureException;
+import io.trinitylake.models.LakehouseDef;
+import io.trinitylake.models.NamespaceDef;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.storage.AtomicOutputStream;
+import io.trinitylake.storage.BasicLakehouseStorage;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.storage.LiteralURI;
+import io.trinitylake.storage.local.LocalStorageOps;
+import io.trinitylake.tree.TreeOperations;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestTrinityLakeCommitRetry {
+
+  private static final LakehouseDef LAKEHOUSE_DEF =
+      LakehouseDef.newBuilder().setNamespaceNameMaxSizeBytes(8).build();
+  private static final Map<String, String> NO_WAIT_OPTIONS =
+      ImmutableMap.of(
+          TransactionOptions.COMMIT_RETRY_MIN_WAIT_MILLIS, "0",
+          TransactionOptions.COMMIT_RETRY_MAX_WAIT_MILLIS, "0");
+
+  @TempDir private File tempDir;
+
+  private LakehouseStorage storage;
+
+  @BeforeEach
+  public void beforeEach() {
+    this.storage =
+        new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), new LocalStorageOps());
+    TrinityLake.createLakehouse(storage, LAKEHOUSE_DEF);
+    RunningTransaction transaction = TrinityLake.beginTransaction(storage);
+    transaction = TrinityLake.createNamespace(storage, transaction, "ns0", namespaceDef("v0"));
+    TrinityLake.commitTransaction(storage, transaction);
+  }
+
+  @Test
+  public void testRebaseNonConflictingTransaction() {
+    RunningTransaction transaction1 = TrinityLake.beginTransaction(storage, NO_WAIT_OPTIONS);
+    RunningTransaction transaction2 = TrinityLake.beginTransaction(storage, NO_WAIT_OPTIONS);
+    transaction1 = TrinityLake.createNamespace(storage, transaction1, "ns1", namespaceDef("v1"));
+    transaction2 = TrinityLake.createNamespace(storage, transaction2, "ns2", namespaceDef("v2"));
+    transaction2 = TrinityLake.alterNamespace(storage, transaction2, "ns0", namespaceDef("v0-2"));
+    TrinityLake.commitTransaction(storage, transaction1);
+
+    CommittedTransaction committed = TrinityLake.commitTransaction(storage, transaction2);
+    assertThat(committed.committedRoot().path()).hasValue(FileLocations.rootNodeFilePath(3));
+    assertThat(TreeOperations.findLatestRoot(storage).previousRootNodeFilePath())
+        .hasValue(FileLocations.rootNodeFilePath(2));
+
+    RunningTransaction transaction = TrinityLake.beginTransaction(storage);
+    assertThat(TrinityLake.showNamespaces(storage, transaction))
+        .containsExactly("ns0", "ns1", "ns2");
+    assertThat(TrinityLake.describeNamespace(storage, transaction, "ns0"))
+        .isEqualTo(namespaceDef("v0-2"));
+    assertThat(TrinityLake.describeNamespace(storage, transaction, "ns1"))
+        .isEqualTo(namespaceDef("v1"));
+  }
+
+  @Test
+  public void testConflictingTransactionFails() {
+    RunningTransaction transaction1 = TrinityLake.beginTransaction(storage, NO_WAIT_OPTIONS);
+    RunningTransaction transaction2 = TrinityLake.beginTransaction(storage, NO_WAIT_OPTIONS);
+    transaction1 = TrinityLake.alterNamespace(storage, transaction1, "ns0", namespaceDef("v0-1"));
+    transaction2 = TrinityLake.alterNamespace(storage, transaction2, "ns0", namespaceDef("v0-2"));
+    TrinityLake.commitTransaction(storage, transaction1);
+
+    RunningTransaction conflictingTransaction = transaction2;
+    assertThatThrownBy(() -> TrinityLake.commitTransaction(storage, conflictingTransaction))
+        .isInstanceOf(CommitFailureException.class)
+        .hasMessageContaining("conflicts with concurrent commits");
+    assertThat(TrinityLake.describeNamespace(storage, TrinityLake.beginTransaction(storage), "ns0"))
+        .isEqualTo(namespaceDef("v0-1"));
+  }
+
+  @Test
+  public void testSerializableTransactionFailsOnAnyConcurrentCommit() {
+    RunningTransaction transaction1 = TrinityLake.beginTransaction(storage, NO_WAIT_OPTIONS);
+    RunningTransaction transaction2 =
+        TrinityLake.beginTransaction(
+            storage,
+            ImmutableMap.<String, String>builder()
+                .putAll(NO_WAIT_OPTIONS)
+                .put(TransactionOptions.ISOLATION_LEVEL, "serializable")
+                .build());
+    transaction1 = TrinityLake.createNamespace(storage, transaction1, "ns1", namespaceDef("v1"));
+    transaction2 = TrinityLake.createNamespace(storage, transaction2, "ns2", namespaceDef("v2"));
+    TrinityLake.commitTransaction(storage, transaction1);
+
+    RunningTransaction serializableTransaction = transaction2;
+    assertThatThrownBy(() -> TrinityLake.commitTransaction(storage, serializableTransaction))
+        .isInstanceOf(CommitFailureException.class)
+        .hasMessageContaining("serializable");
+  }
+
+  @Test
+  public void testCommitAttemptsExhausted() {
+    RunningTransaction transaction1 = TrinityLake.beginTransaction(storage);
+    RunningTransaction transaction2 =
+        TrinityLake.beginTransaction(
+            storage, ImmutableMap.of(TransactionOptions.COMMIT_ATTEMPTS, "1"));
+    transaction1 = TrinityLake.createNamespace(storage, transaction1, "ns1", namespaceDef("v1"));
+    transaction2 = TrinityLake.createNamespace(storage, transaction2, "ns2", namespaceDef("v2"));
+    TrinityLake.commitTransaction(storage, transaction1);
+
+    RunningTransaction failingTransaction = transaction2;
+    assertThatThrownBy(() -> TrinityLake.commitTransaction(storage, failingTransaction))
+        .isInstanceOf(CommitAttemptExhaustedException.class);
+    assertThat(TreeOperations.findLatestRoot(storage).path())
+        .hasValue(FileLocations.rootNodeFilePath(2));
+  }
+
+  @Test
+  public void testWriteFailureIsNotRetried() {
+    String failingPath = FileLocations.rootNodeFilePath(2);
+    AtomicInteger numFailedCommits = new AtomicInteger();
+    LakehouseStorage failingStorage =
+        new BasicLakehouseStorage(
+            new LiteralURI("file://" + tempDir),
+            new LocalStorageOps() {
+              @Override
+              public AtomicOutputStream startCommit(LiteralURI uri) {
+                AtomicOutputStream stream = super.startCommit(uri);
+                return uri.path().endsWith(failingPath)
+                    ? new FailingAtomicOutputStream(stream, numFailedCommits)
+                    : stream;
+              }
+            });
+    RunningTransaction transaction = TrinityLake.beginTransaction(failingStorage, NO_WAIT_OPTIONS);
+    transaction =
+        TrinityLake.createNamespace(failingStorage, transaction, "ns1", namespaceDef("v1"));
+
+    RunningTransaction failingTransaction = transaction;
+    assertThatThrownBy(() -> TrinityLake.commitTransaction(failingStorage, failingTransaction))
+        .isInstanceOf(StorageWriteFailureException.class)
+        .hasCauseInstanceOf(IOException.class);
+    assertThat(numFailedCommits.get()).isEqualTo(1);
+    assertThat(TreeOperations.findLatestRoot(storage).path())
+        .hasValue(FileLocations.rootNodeFilePath(1));
+  }
+
+  @Test
+  public void testInvalidOptions() {
+    assertThatThrownBy(
+            () -> new TransactionOptions(ImmutableMap.of(TransactionOptions.COMMIT_ATTEMPTS, "0")))
+        .isInstanceOf(InvalidArgumentException.class);
+    assertThatThrownBy(
+            () ->
+                new TransactionOptions(
+                    ImmutableMap.of(
+                        TransactionOptions.COMMIT_RETRY_MIN_WAIT_MILLIS, "100",
+                        TransactionOptions.COMMIT_RETRY_MAX_WAIT_MILLIS, "10")))
+        .isInstanceOf(InvalidArgumentException.class);
+  }
+
+  private static NamespaceDef namespaceDef(String value) {
+    return NamespaceDef.newBuilder().putProperties("k", value).build();
+  }
+
+  /** An atomic output stream that fails to seal with an I/O error other than a conflict. */
+  private static class FailingAtomicOutputStream extends AtomicOutputStream {
+
+    private final AtomicOutputStream delegate;
+    private final AtomicInteger numFailedSeals;
+
+    FailingAtomicOutputStream(AtomicOutputStream delegate, AtomicInteger numFailedSeals) {
+      this.delegate = delegate;
+      this.numFailedSeals = numFailedSeals;
+    }
+
+    @Override
+    public void atomicallySeal() throws IOException {
+      numFailedSeals.incrementAndGet();
+      throw new IOException("No space left on device");
+    }
+
+    @Override
+    public void abort() {
+      delegate.abort();
+    }
+
+    @Override
+    public FileChannel channel() {
+      return delegate.channel();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      delegate.write(b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int off, int len) throws IOException {
+      delegate.write(bytes, off, len);
+    }
+  }
+}
@@ -14,7 +14,9 @@
 package io.trinitylake;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import io.trinitylake.exception.InvalidArgumentException;
 import io.trinitylake.models.LakehouseDef;
 import io.trinitylake.models.NamespaceDef;
 import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
@@ -133,4 +135,45 @@ public class TestTrinityLakeNamespaceOps {
     transaction = TrinityLake.beginTransaction(storage);
     assertThat(TrinityLake.namespaceExists(storage, transaction, "ns1")).isFalse();
   }
+
+  @Test
+  public void testShowNamespacesPaginated() {
+    RunningTransaction transaction = TrinityLake.beginTransaction(storage);
+    for (int i = 1; i <= 5; i++) {
+      transaction =
+          TrinityLake.createNamespace(
+              storage, transaction, "ns" + i, NamespaceDef.newBuilder().build());
+    }
+    TrinityLake.commitTransaction(storage, transaction);
+
+    transaction = TrinityLake.beginTransaction(storage);
+    ListPage page = TrinityLake.showNamespaces(storage, transaction, 2);
+    assertThat(page.names()).containsExactly("ns1", "ns2");
+    assertThat(page.continuationToken().isPresent()).isTrue();
+
+    // changes committed after the first page are not visible in the following pages
+    RunningTransaction dropTransaction = TrinityLake.beginTransaction(storage);
+    dropTransaction = TrinityLake.dropNamespace(storage, dropTransaction, "ns3");
+    TrinityLake.commitTransaction(storage, dropTransaction);
+
+    transaction = TrinityLake.beginTransaction(storage);
+    page = TrinityLake.showNamespaces(storage, transaction, 2, page.continuationToken().get());
+    assertThat(page.names()).containsExactly("ns3", "ns4");
+    assertThat(page.continuationToken().isPresent()).isTrue();
+
+    page = TrinityLake.showNamespaces(storage, transaction, 2, page.continuationToken().get());
+    assertThat(page.names()).containsExactly("ns5");
+    assertThat(page.continuationToken().isPresent()).isFalse();
+
+    page = TrinityLake.showNamespaces(storage, transaction, 10);
+    assertThat(page.names()).containsExactly("ns1", "ns2", "ns4", "ns5");
+    assertThat(page.continuationToken().isPresent()).isFalse();
+  }
+
+  @Test
+  public void testShowNamespacesInvalidContinuationToken() {
+    RunningTransaction transaction = TrinityLake.beginTransaction(storage);
+    assertThatThrownBy(() -> TrinityLake.showNamespaces(storage, transaction, 2, "invalid"))
+        .isInstanceOf(InvalidArgumentException.class);
+  }
 }
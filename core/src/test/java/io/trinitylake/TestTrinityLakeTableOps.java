@@ -14,7 +14,9 @@
 package io.trinitylake;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import io.trinitylake.exception.ObjectNotFoundException;
 import io.trinitylake.models.Column;
 import io.trinitylake.models.DataType;
 import io.trinitylake.models.LakehouseDef;
@@ -179,4 +181,29 @@ public class TestTrinityLakeTableOps {
     transaction = TrinityLake.beginTransaction(storage);
     assertThat(TrinityLake.tableExists(storage, transaction, "ns1", "t1")).isFalse();
   }
+
+  @Test
+  public void testShowTablesInNamespace() {
+    TableDef tableDef =
+        TableDef.newBuilder()
+            .setSchema(
+                Schema.newBuilder()
+                    .addColumns(Column.newBuilder().setName("c1").setType(DataType.VARCHAR).build())
+                    .build())
+            .build();
+
+    RunningTransaction transaction = TrinityLake.beginTransaction(storage);
+    transaction = TrinityLake.createNamespace(storage, transaction, "ns2", NS1_DEF);
+    transaction = TrinityLake.createTable(storage, transaction, NS1, "t2", tableDef);
+    transaction = TrinityLake.createTable(storage, transaction, NS1, "t1", tableDef);
+    transaction = TrinityLake.createTable(storage, transaction, "ns2", "t3", tableDef);
+    TrinityLake.commitTransaction(storage, transaction);
+
+    RunningTransaction readTransaction = TrinityLake.beginTransaction(storage);
+    assertThat(TrinityLake.showNamespaces(storage, readTransaction)).containsExactly("ns1", "ns2");
+    assertThat(TrinityLake.showTables(storage, readTransaction, NS1)).containsExactly("t1", "t2");
+    assertThat(TrinityLake.showTables(storage, readTransaction, "ns2")).containsExactly("t3");
+    assertThatThrownBy(() -> TrinityLake.showTables(storage, readTransaction, "ns3"))
+        .isInstanceOf(ObjectNotFoundException.class);
+  }
 }
@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.trinitylake.storage.local.LocalStorageOps;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import org.apache.arrow.memory.BufferAllocator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestBasicLakehouseStorage {
+
+  @Test
+  public void testCloseWaitsForRunningTasks(@TempDir Path tempDir)
+      throws IOException, InterruptedException {
+    BasicLakehouseStorage storage =
+        new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), new LocalStorageOps());
+    CountDownLatch started = new CountDownLatch(1);
+    Future<?> task =
+        storage
+            .executor()
+            .submit(
+                () -> {
+                  try (BufferAllocator allocator =
+                      storage.allocator().newChildAllocator("task", 0, 1024)) {
+                    allocator.buffer(16).close();
+                    started.countDown();
+                    Thread.sleep(Long.MAX_VALUE);
+                  } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                  }
+                });
+    started.await();
+
+    // the task releases its child allocator before the root allocator is closed
+    storage.close();
+    assertThat(task.isDone()).isTrue();
+  }
+}
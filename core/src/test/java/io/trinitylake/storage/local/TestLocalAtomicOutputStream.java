@@ -69,6 +69,26 @@ public class TestLocalAtomicOutputStream {
     assertThat(result).isEqualTo("some data");
   }
 
+  @Test
+  public void testAbort(@TempDir Path tempDir) throws IOException {
+    Path stagingDirectory = tempDir.resolve("staging");
+    assertThat(stagingDirectory.toFile().mkdirs()).isTrue();
+    CommonStorageOpsProperties commonProperties =
+        new CommonStorageOpsProperties(
+            ImmutableMap.of(
+                CommonStorageOpsProperties.WRITE_STAGING_DIRECTORY, stagingDirectory.toString()));
+
+    Path targetFilePath = tempDir.resolve("target-" + UUID.randomUUID() + ".txt");
+    LocalAtomicOutputStream stream =
+        new LocalAtomicOutputStream(
+            targetFilePath, commonProperties, LocalStorageOpsProperties.instance());
+    stream.write("some data".getBytes(StandardCharsets.UTF_8));
+    stream.abort();
+
+    assertThat(targetFilePath.toFile().exists()).isFalse();
+    assertThat(stagingDirectory.toFile().list()).isEmpty();
+  }
+
   @Test
   public void testTwoConcurrentSeal(@TempDir Path tempDir) throws IOException {
     CommonStorageOpsProperties commonProperties =
@@ -0,0 +1,112 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.storage.AtomicOutputStream;
+import io.trinitylake.storage.DecodedFileCache;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.storage.LiteralURI;
+import io.trinitylake.storage.SeekableInputStream;
+import io.trinitylake.storage.StorageOps;
+import io.trinitylake.storage.local.LocalInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.apache.arrow.memory.BufferAllocator;
+
+/**
+ * A lakehouse storage that counts the read, existence check and commit requests sent to the wrapped
+ * storage.
+ */
+class CountingLakehouseStorage implements LakehouseStorage {
+
+  private final LakehouseStorage delegate;
+  private final AtomicInteger numReads = new AtomicInteger();
+  private final AtomicInteger numExistenceChecks = new AtomicInteger();
+  private final AtomicInteger numCommits = new AtomicInteger();
+
+  CountingLakehouseStorage(LakehouseStorage delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public LiteralURI root() {
+    return delegate.root();
+  }
+
+  @Override
+  public StorageOps ops() {
+    return delegate.ops();
+  }
+
+  @Override
+  public BufferAllocator allocator() {
+    return delegate.allocator();
+  }
+
+  @Override
+  public DecodedFileCache decodedFileCache() {
+    return delegate.decodedFileCache();
+  }
+
+  @Override
+  public ExecutorService executor() {
+    return delegate.executor();
+  }
+
+  @Override
+  public <T> T attachment(Class<T> type, Function<LakehouseStorage, T> factory) {
+    return delegate.attachment(type, factory);
+  }
+
+  @Override
+  public SeekableInputStream startRead(String path) {
+    numReads.incrementAndGet();
+    return delegate.startRead(path);
+  }
+
+  @Override
+  public LocalInputStream startReadLocal(String path) {
+    numReads.incrementAndGet();
+    return delegate.startReadLocal(path);
+  }
+
+  @Override
+  public boolean exists(String path) {
+    numExistenceChecks.incrementAndGet();
+    return delegate.exists(path);
+  }
+
+  @Override
+  public AtomicOutputStream startCommit(String path) {
+    numCommits.incrementAndGet();
+    return delegate.startCommit(path);
+  }
+
+  int numReads() {
+    return numReads.get();
+  }
+
+  int numCommits() {
+    return numCommits.get();
+  }
+
+  int numExistenceChecks() {
+    return numExistenceChecks.get();
+  }
+
+  int numRequests() {
+    return numReads.get() + numExistenceChecks.get() + numCommits.get();
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import io.trinitylake.models.NamespaceDef;
+import io.trinitylake.relocated.com.google.common.collect.Lists;
+import io.trinitylake.storage.BasicLakehouseStorage;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.storage.LiteralURI;
+import io.trinitylake.storage.local.LocalStorageOps;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Local lakehouse storages opened by a test, which are all closed together after the test, because
+ * each storage owns an executor, a decoded file cache and an allocator.
+ */
+class LocalLakehouseStorages implements Closeable {
+
+  private final List<LakehouseStorage> storages = Lists.newArrayList();
+
+  LakehouseStorage open(Path path) {
+    LakehouseStorage storage =
+        new BasicLakehouseStorage(new LiteralURI("file://" + path), new LocalStorageOps());
+    storages.add(storage);
+    return storage;
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (LakehouseStorage storage : storages) {
+      storage.close();
+    }
+    storages.clear();
+  }
+
+  static NamespaceDef namespaceDef(String value) {
+    return NamespaceDef.newBuilder().putProperties("k", value).build();
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.trinitylake.exception.InvalidStateException;
+import io.trinitylake.storage.BasicLakehouseStorage;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.storage.LiteralURI;
+import io.trinitylake.storage.local.LocalStorageOps;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestArrowTreeNode {
+
+  @TempDir private Path tempDir;
+
+  private LakehouseStorage storage;
+
+  @BeforeEach
+  public void beforeEach() {
+    this.storage =
+        new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), new LocalStorageOps());
+  }
+
+  @Test
+  public void testReadRootNodeFile() {
+    TreeRoot treeRoot = new BasicTreeRoot();
+    treeRoot.setLakehouseDefFilePath("some/path/to/lakehouse/def");
+    treeRoot.setPreviousRootNodeFilePath("some/path/to/previous/root");
+    treeRoot.setLeftmostNodePointer("node-a");
+    for (int i = 1; i < 10; i += 2) {
+      treeRoot.set("k" + i, "val" + i);
+      treeRoot.setNodePointer("k" + i, "node-" + i);
+    }
+    treeRoot.appendMessage(
+        ImmutableWriteBufferMessage.builder().key("k2").value("val2").transactionId("t").build());
+    TreeOperations.writeRootNodeFile(storage, "root.ipc", treeRoot);
+
+    try (ArrowTreeRoot root = TreeOperations.openRootNodeFile(storage, "root.ipc")) {
+      assertThat(root.path()).hasValue("root.ipc");
+      assertThat(root.createdAtMillis().isPresent()).isTrue();
+      assertThat(root.lakehouseDefFilePath()).isEqualTo("some/path/to/lakehouse/def");
+      assertThat(root.previousRootNodeFilePath()).hasValue("some/path/to/previous/root");
+      assertThat(root.rollbackFromRootNodeFilePath()).isEmpty();
+      assertThat(root.numKeys()).isEqualTo(5);
+      assertThat(root.keyAt(1)).isEqualTo("k3");
+      assertThat(root.valueAt(1)).isEqualTo("val3");
+      assertThat(root.nodePointerAt(1)).hasValue("node-3");
+      assertThat(root.leftmostNodePointer()).hasValue("node-a");
+      assertThat(root.nodeKeyTable()).isEqualTo(treeRoot.nodeKeyTable());
+      assertThat(root.writeBuffer()).isEqualTo(treeRoot.writeBuffer());
+      assertThat(root.numMessages()).isEqualTo(treeRoot.numMessages());
+      for (int i = 0; i < root.numMessages(); i++) {
+        assertThat(root.messageAt(i)).isEqualTo(treeRoot.messageAt(i));
+      }
+
+      assertThat(root.search("k5").value()).hasValue("val5");
+      assertThat(root.search("k0").nodePointer()).hasValue("node-a");
+      assertThat(root.search("k6").nodePointer()).hasValue("node-5");
+      assertThat(root.nodePointer("k7")).hasValue("node-7");
+      assertThat(root.nodePointer("k8")).isEmpty();
+      assertThat(root.lowerKey("k1")).isEmpty();
+      assertThat(root.lowerKey("k4")).hasValue("k3");
+      assertThat(root.lowerKey("k9")).hasValue("k7");
+    }
+  }
+
+  @Test
+  public void testSearchSupplementaryCharacterKeys() {
+    // U+1F600 sorts before U+FF21 in UTF-16 order, but after it in UTF-8 byte order
+    String supplementaryKey = "k\ud83d\ude00";
+    String fullWidthKey = "k\uff21";
+    TreeNode treeNode = new BasicTreeNode();
+    treeNode.set("k1", "val1");
+    treeNode.set(supplementaryKey, "val-supplementary");
+    treeNode.set(fullWidthKey, "val-full-width");
+    treeNode.set("k\u00e9", "val-latin");
+    treeNode.set("k\u0800", "val-samaritan");
+    TreeOperations.writeNodeFile(storage, "node.ipc", treeNode);
+
+    try (ArrowTreeNode node = TreeOperations.openNodeFile(storage, "node.ipc")) {
+      for (int i = 0; i < treeNode.numKeys(); i++) {
+        assertThat(node.keyAt(i)).isEqualTo(treeNode.keyAt(i));
+        assertThat(node.search(treeNode.keyAt(i)).value()).hasValue(treeNode.valueAt(i));
+      }
+
+      assertThat(node.search("k\ud83d\ude01").value()).isEmpty();
+      assertThat(node.lowerKey(fullWidthKey)).hasValue(supplementaryKey);
+      assertThat(node.lowerKey("k\uffff")).hasValue(fullWidthKey);
+      assertThat(node.lowerKey("k\ud83d\ude01")).hasValue(supplementaryKey);
+    }
+  }
+
+  @Test
+  public void testChangeDecodesNode() {
+    TreeNode treeNode = new BasicTreeNode();
+    treeNode.set("k1", "val1");
+    treeNode.set("k2", "val2");
+    TreeOperations.writeNodeFile(storage, "node.ipc", treeNode);
+
+    ArrowTreeNode node = TreeOperations.openNodeFile(storage, "node.ipc");
+    node.set("k3", "val3");
+    node.remove("k1");
+    assertThat(node.numKeys()).isEqualTo(2);
+    assertThat(node.search("k2").value()).hasValue("val2");
+    assertThat(node.search("k3").value()).hasValue("val3");
+    assertThat(node.search("k1").value()).isEmpty();
+    node.close();
+    assertThat(node.keyAt(0)).isEqualTo("k2");
+  }
+
+  @Test
+  public void testReadAfterClose() {
+    TreeNode treeNode = new BasicTreeNode();
+    treeNode.set("k1", "val1");
+    TreeOperations.writeNodeFile(storage, "node.ipc", treeNode);
+
+    ArrowTreeNode node = TreeOperations.openNodeFile(storage, "node.ipc");
+    node.close();
+    node.close();
+    assertThatThrownBy(() -> node.search("k1")).isInstanceOf(InvalidStateException.class);
+  }
+
+  @Test
+  public void testArrowMemoryReleased() {
+    TreeRoot treeRoot = new BasicTreeRoot();
+    treeRoot.setLakehouseDefFilePath("some/path/to/lakehouse/def");
+    for (int i = 0; i < 100; i++) {
+      treeRoot.set("k" + i, "val" + i);
+    }
+    TreeOperations.writeRootNodeFile(storage, "root.ipc", treeRoot);
+    TreeOperations.readRootNodeFile(storage, "root.ipc");
+    assertThat(TreeOperations.searchValue(storage, treeRoot, "k1")).hasValue("val1");
+    assertThat(storage.arrowMemoryMetrics().allocatedBytes()).isEqualTo(0);
+    assertThat(storage.arrowMemoryMetrics().peakAllocatedBytes()).isPositive();
+
+    ArrowTreeRoot root = TreeOperations.openRootNodeFile(storage, "root.ipc");
+    assertThat(storage.arrowMemoryMetrics().allocatedBytes()).isPositive();
+    root.close();
+    assertThat(storage.arrowMemoryMetrics().allocatedBytes()).isEqualTo(0);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.trinitylake.exception.InvalidArgumentException;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class TestBasicTreeNode {
+
+  @Test
+  public void testNodeKeyTableIsSorted() {
+    TreeNode node = new BasicTreeNode();
+    for (int i = 0; i < 100; i++) {
+      String key = String.format("k%03d", (i * 37) % 100);
+      node.set(key, "val-" + key);
+    }
+
+    assertThat(node.numKeys()).isEqualTo(100);
+    for (int i = 0; i < 100; i++) {
+      assertThat(node.keyAt(i)).isEqualTo(String.format("k%03d", i));
+      assertThat(node.valueAt(i)).isEqualTo(String.format("val-k%03d", i));
+    }
+    assertThat(node.nodeKeyTable().stream().map(NodeKeyTableRow::key).collect(Collectors.toList()))
+        .isSorted();
+
+    node.set("k042", "new-val");
+    assertThat(node.numKeys()).isEqualTo(100);
+    assertThat(node.search("k042").value()).hasValue("new-val");
+
+    node.remove("k000");
+    node.remove("k099");
+    node.remove("k050");
+    node.remove("not-exist");
+    assertThat(node.numKeys()).isEqualTo(97);
+    assertThat(node.keyAt(0)).isEqualTo("k001");
+    assertThat(node.keyAt(96)).isEqualTo("k098");
+    assertThat(node.search("k050").value().isPresent()).isFalse();
+  }
+
+  @Test
+  public void testSearchNodePointer() {
+    TreeNode node = new BasicTreeNode();
+    node.setLeftmostNodePointer("p0");
+    node.set("k2", "v2");
+    node.set("k4", "v4");
+    node.setNodePointer("k2", "p2");
+    node.setNodePointer("k4", "p4");
+
+    assertThat(node.search("k1").nodePointer()).hasValue("p0");
+    assertThat(node.search("k2").value()).hasValue("v2");
+    assertThat(node.search("k3").nodePointer()).hasValue("p2");
+    assertThat(node.search("k5").nodePointer()).hasValue("p4");
+    assertThat(node.nodePointerAt(1)).hasValue("p4");
+
+    assertThat(node.lowerKey("k1").isPresent()).isFalse();
+    assertThat(node.lowerKey("k2").isPresent()).isFalse();
+    assertThat(node.lowerKey("k3")).hasValue("k2");
+    assertThat(node.lowerKey("k4")).hasValue("k2");
+    assertThat(node.lowerKey("k5")).hasValue("k4");
+
+    node.remove("k2");
+    assertThat(node.search("k3").nodePointer()).hasValue("p0");
+
+    assertThatThrownBy(() -> node.setNodePointer("k3", "p3"))
+        .isInstanceOf(InvalidArgumentException.class)
+        .hasMessageContaining("not in the node key table");
+    assertThatThrownBy(() -> node.keyAt(1))
+        .isInstanceOf(InvalidArgumentException.class)
+        .hasMessageContaining("out of bound");
+
+    node.clearNodeKeyTable();
+    assertThat(node.numKeys()).isEqualTo(0);
+    assertThat(node.search("k4").nodePointer()).hasValue("p0");
+  }
+
+  @Test
+  public void testCloneSharesStateUntilChanged() {
+    TreeRoot root = new BasicTreeRoot();
+    root.setLakehouseDefFilePath("some/path/to/lakehouse/def");
+    root.set("k1", "v1");
+    root.set("k2", "v2");
+    root.appendMessage(
+        ImmutableWriteBufferMessage.builder().key("k3").value("v3").transactionId("t1").build());
+
+    TreeRoot clone = TreeOperations.cloneTreeRoot(root);
+    clone.set("k1", "v1-new");
+    clone.remove("k2");
+    clone.appendMessage(
+        ImmutableWriteBufferMessage.builder().key("k3").transactionId("t2").build());
+    assertThat(root.search("k1").value()).hasValue("v1");
+    assertThat(root.numKeys()).isEqualTo(2);
+    assertThat(root.writeBuffer()).hasSize(1);
+    assertThat(clone.search("k1").value()).hasValue("v1-new");
+    assertThat(clone.numKeys()).isEqualTo(1);
+    assertThat(clone.writeBuffer()).hasSize(2);
+    assertThat(clone.numMessages()).isEqualTo(2);
+    assertThat(clone.messageAt(1).transactionId()).isEqualTo("t2");
+
+    TreeRoot secondClone = TreeOperations.cloneTreeRoot(root);
+    root.set("k4", "v4");
+    root.clearWriteBuffer();
+    assertThat(secondClone.numKeys()).isEqualTo(2);
+    assertThat(secondClone.search("k4").value().isPresent()).isFalse();
+    assertThat(secondClone.writeBuffer()).hasSize(1);
+    assertThat(secondClone.lakehouseDefFilePath()).isEqualTo("some/path/to/lakehouse/def");
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import static io.trinitylake.tree.LocalLakehouseStorages.namespaceDef;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.trinitylake.FileLocations;
+import io.trinitylake.ObjectDefinitions;
+import io.trinitylake.ObjectKeys;
+import io.trinitylake.RunningTransaction;
+import io.trinitylake.TrinityLake;
+import io.trinitylake.exception.InvalidArgumentException;
+import io.trinitylake.models.LakehouseDef;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.storage.LakehouseStorage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.ToLongFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestGarbageCollection {
+
+  private static final LakehouseDef LAKEHOUSE_DEF =
+      LakehouseDef.newBuilder()
+          .setOrder(4)
+          .setNamespaceNameMaxSizeBytes(8)
+          .setMaximumVersionAgeMillis(0)
+          .setMinimumVersionsToKeep(1)
+          .build();
+  private static final int NUM_NAMESPACES = 10;
+
+  @TempDir private Path tempDir;
+
+  private final LocalLakehouseStorages storages = new LocalLakehouseStorages();
+  private LakehouseStorage storage;
+
+  @BeforeEach
+  public void beforeEach() {
+    this.storage = storages.open(tempDir);
+    TrinityLake.createLakehouse(storage, LAKEHOUSE_DEF);
+    RunningTransaction transaction = TrinityLake.beginTransaction(storage);
+    for (int i = 0; i < NUM_NAMESPACES; i++) {
+      transaction =
+          TrinityLake.createNamespace(storage, transaction, "ns" + i, namespaceDef("v" + i));
+    }
+    TrinityLake.commitTransaction(storage, transaction);
+  }
+
+  @AfterEach
+  public void afterEach() throws IOException {
+    storages.close();
+  }
+
+  @Test
+  public void testCollectUnreachableFiles() {
+    String orphanNodeFilePath = FileLocations.newNodeFilePath();
+    TreeOperations.writeNodeFile(storage, orphanNodeFilePath, new BasicTreeNode());
+    String orphanNamespaceDefFilePath = FileLocations.newNamespaceDefFilePath("orphan");
+    ObjectDefinitions.writeNamespaceDef(
+        storage, orphanNamespaceDefFilePath, "orphan", namespaceDef("orphan"));
+
+    GarbageCollectionResult result = collectAfterGracePeriod();
+    assertThat(result.numDeletedFiles()).isEqualTo(2);
+    assertThat(result.numListedFiles()).isGreaterThan(NUM_NAMESPACES);
+    assertThat(result.numReachableFiles()).isGreaterThan(NUM_NAMESPACES);
+    assertThat(storage.exists(orphanNodeFilePath)).isFalse();
+    assertThat(storage.exists(orphanNamespaceDefFilePath)).isFalse();
+
+    LakehouseStorage newStorage = storages.open(tempDir);
+    TreeRoot latest = TreeOperations.findLatestRoot(newStorage);
+    assertThat(newStorage.exists(latest.lakehouseDefFilePath())).isTrue();
+    assertThat(newStorage.exists(FileLocations.LATEST_VERSION_HINT_FILE_PATH)).isTrue();
+    RunningTransaction transaction = TrinityLake.beginTransaction(newStorage);
+    for (int i = 0; i < NUM_NAMESPACES; i++) {
+      assertThat(TrinityLake.describeNamespace(newStorage, transaction, "ns" + i))
+          .isEqualTo(namespaceDef("v" + i));
+    }
+
+    assertThat(collectAfterGracePeriod().numDeletedFiles()).isEqualTo(0);
+  }
+
+  @Test
+  public void testKeepSubtreesOfCollidingNodePaths() {
+    // every node file path gets the same hash, so that child node pointers collide
+    ToLongFunction<String> pathHash =
+        path -> path.endsWith(".ipc") ? 1L : ReachableFileSet.MURMUR3_PATH_HASH.applyAsLong(path);
+    GarbageCollectionResult result = collectAfterGracePeriod(pathHash);
+    assertThat(result.numDeletedFiles()).isEqualTo(0);
+
+    LakehouseStorage newStorage = storages.open(tempDir);
+    RunningTransaction transaction = TrinityLake.beginTransaction(newStorage);
+    for (int i = 0; i < NUM_NAMESPACES; i++) {
+      assertThat(TrinityLake.describeNamespace(newStorage, transaction, "ns" + i))
+          .isEqualTo(namespaceDef("v" + i));
+    }
+  }
+
+  @Test
+  public void testKeepUnreachableFilesWithinGracePeriod() {
+    String orphanNodeFilePath = FileLocations.newNodeFilePath();
+    TreeOperations.writeNodeFile(storage, orphanNodeFilePath, new BasicTreeNode());
+
+    GarbageCollectionResult result =
+        GarbageCollection.collect(storage, new GarbageCollectionOptions());
+    assertThat(result.numDeletedFiles()).isEqualTo(0);
+    assertThat(storage.exists(orphanNodeFilePath)).isTrue();
+  }
+
+  @Test
+  public void testCollectFilesOfExpiredVersions() {
+    TreeRoot latest = TreeOperations.findLatestRoot(storage);
+    String namespaceKey = ObjectKeys.namespaceKey("ns0", LAKEHOUSE_DEF);
+    String namespaceDefFilePath = TreeOperations.searchValue(storage, latest, namespaceKey).get();
+
+    // commit an empty tree, so that all the namespaces are only reachable from previous versions
+    TreeRoot emptyRoot = new BasicTreeRoot();
+    emptyRoot.setLakehouseDefFilePath(latest.lakehouseDefFilePath());
+    emptyRoot.setPreviousRootNodeFilePath(latest.path().get());
+    long nextVersion = TreeOperations.findVersionFromRootNode(latest) + 1;
+    TreeOperations.writeRootNodeFile(
+        storage, FileLocations.rootNodeFilePath(nextVersion), emptyRoot);
+
+    assertThat(collectAfterGracePeriod().numDeletedFiles()).isEqualTo(0);
+    assertThat(storage.exists(namespaceDefFilePath)).isTrue();
+
+    VersionExpirationResult expirationResult =
+        VersionExpiration.expire(
+            storage, new VersionExpirationOptions(), System.currentTimeMillis() + 1000);
+    assertThat(expirationResult.minimumVersion()).isEqualTo(nextVersion);
+    GarbageCollectionResult result = collectAfterGracePeriod();
+    assertThat(result.numDeletedFiles()).isEqualTo(result.numListedFiles());
+    assertThat(result.numDeletedFiles()).isGreaterThanOrEqualTo(NUM_NAMESPACES);
+    assertThat(storage.exists(namespaceDefFilePath)).isFalse();
+    assertThat(TreeOperations.findLatestRoot(storages.open(tempDir)).path())
+        .hasValue(FileLocations.rootNodeFilePath(nextVersion));
+  }
+
+  @Test
+  public void testInvalidOptions() {
+    assertThatThrownBy(
+            () ->
+                new GarbageCollectionOptions(
+                    ImmutableMap.of(GarbageCollectionOptions.GRACE_PERIOD_MILLIS, "-1")))
+        .isInstanceOf(InvalidArgumentException.class);
+  }
+
+  private GarbageCollectionResult collectAfterGracePeriod() {
+    return collectAfterGracePeriod(ReachableFileSet.MURMUR3_PATH_HASH);
+  }
+
+  private GarbageCollectionResult collectAfterGracePeriod(ToLongFunction<String> pathHash) {
+    return GarbageCollection.collect(
+        storage,
+        new GarbageCollectionOptions(),
+        System.currentTimeMillis() + GarbageCollectionOptions.GRACE_PERIOD_MILLIS_DEFAULT + 1000,
+        pathHash);
+  }
+}
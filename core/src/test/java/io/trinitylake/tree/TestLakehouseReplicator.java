@@ -0,0 +1,180 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import static io.trinitylake.tree.LocalLakehouseStorages.namespaceDef;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.trinitylake.RunningTransaction;
+import io.trinitylake.TrinityLake;
+import io.trinitylake.exception.InvalidArgumentException;
+import io.trinitylake.models.LakehouseDef;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.storage.LakehouseStorage;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestLakehouseReplicator {
+
+  private static final LakehouseDef LAKEHOUSE_DEF =
+      LakehouseDef.newBuilder().setOrder(4).setNamespaceNameMaxSizeBytes(8).build();
+  private static final int NUM_NAMESPACES = 40;
+  private static final ReplicationOptions NO_POLL_OPTIONS =
+      new ReplicationOptions(ImmutableMap.of(ReplicationOptions.POLL_INTERVAL_MILLIS, "0"));
+
+  @TempDir private Path tempDir;
+
+  private final LocalLakehouseStorages storages = new LocalLakehouseStorages();
+  private LakehouseStorage source;
+  private LakehouseStorage replica;
+
+  @BeforeEach
+  public void beforeEach() {
+    this.source = storages.open(tempDir.resolve("source"));
+    this.replica = storages.open(tempDir.resolve("replica"));
+    TrinityLake.createLakehouse(source, LAKEHOUSE_DEF);
+    RunningTransaction transaction = TrinityLake.beginTransaction(source);
+    for (int i = 0; i < NUM_NAMESPACES; i++) {
+      transaction =
+          TrinityLake.createNamespace(source, transaction, "ns" + i, namespaceDef("v" + i));
+    }
+    TrinityLake.commitTransaction(source, transaction);
+    TreeCompaction.compact(source, new TreeCompactionOptions());
+  }
+
+  @AfterEach
+  public void afterEach() throws IOException {
+    storages.close();
+  }
+
+  @Test
+  public void testReplicateNewVersions() {
+    try (LakehouseReplicator replicator =
+        new LakehouseReplicator(source, replica, NO_POLL_OPTIONS)) {
+      ReplicationResult fullResult = replicator.replicate();
+      assertThat(fullResult.replicatedVersion()).isEqualTo(latestVersion(source));
+      assertThat(fullResult.numReplicatedVersions()).isEqualTo(1);
+      assertThat(fullResult.numCopiedFiles()).isGreaterThan(NUM_NAMESPACES + 2);
+      assertThat(TreeOperations.findMinimumVersion(replica))
+          .isEqualTo(fullResult.replicatedVersion());
+      assertNamespaces(replica, NUM_NAMESPACES);
+
+      assertThat(replicator.replicate().numReplicatedVersions()).isEqualTo(0);
+
+      createNamespace(NUM_NAMESPACES);
+      createNamespace(NUM_NAMESPACES + 1);
+      ReplicationResult result = replicator.replicate();
+      assertThat(result.replicatedVersion()).isEqualTo(latestVersion(source));
+      assertThat(result.numReplicatedVersions()).isEqualTo(2);
+      // each version copies its root node, the new namespace definition and any flushed node
+      assertThat(result.numCopiedFiles())
+          .isGreaterThanOrEqualTo(4)
+          .isLessThan(fullResult.numCopiedFiles());
+      assertNamespaces(replica, NUM_NAMESPACES + 2);
+      assertThat(TreeOperations.findLatestRoot(replica).previousRootNodeFilePath())
+          .hasValue(TreeOperations.findLatestRoot(source).previousRootNodeFilePath().get());
+    }
+  }
+
+  @Test
+  public void testReplicateChangedNodesOnly() {
+    try (LakehouseReplicator replicator =
+        new LakehouseReplicator(source, replica, NO_POLL_OPTIONS)) {
+      long numFullCopiedFiles = replicator.replicate().numCopiedFiles();
+
+      createNamespace(NUM_NAMESPACES);
+      TreeCompactionResult compactionResult =
+          TreeCompaction.compact(source, new TreeCompactionOptions());
+      assertThat(compactionResult.committedRoot()).isPresent();
+      ReplicationResult result = replicator.replicate();
+      assertThat(result.numReplicatedVersions()).isEqualTo(2);
+      assertThat(result.numCopiedFiles())
+          .isGreaterThanOrEqualTo(3 + compactionResult.numWrittenNodes())
+          .isLessThan(numFullCopiedFiles);
+      assertNamespaces(replica, NUM_NAMESPACES + 1);
+    }
+  }
+
+  @Test
+  public void testResumeFromReplica() {
+    try (LakehouseReplicator replicator =
+        new LakehouseReplicator(source, replica, NO_POLL_OPTIONS)) {
+      replicator.replicate();
+    }
+
+    createNamespace(NUM_NAMESPACES);
+    LakehouseStorage resumedReplica = storages.open(tempDir.resolve("replica"));
+    try (LakehouseReplicator replicator =
+        new LakehouseReplicator(source, resumedReplica, NO_POLL_OPTIONS)) {
+      ReplicationResult result = replicator.replicate();
+      assertThat(result.numReplicatedVersions()).isEqualTo(1);
+      assertThat(result.numCopiedFiles()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  public void testBackgroundReplication() throws InterruptedException {
+    try (LakehouseReplicator replicator =
+        new LakehouseReplicator(
+            source,
+            replica,
+            new ReplicationOptions(
+                ImmutableMap.of(ReplicationOptions.POLL_INTERVAL_MILLIS, "10")))) {
+      createNamespace(NUM_NAMESPACES);
+      long latestVersion = latestVersion(source);
+      long deadline = System.currentTimeMillis() + 10_000;
+      while (replicator.replicatedVersion() < latestVersion
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+
+      assertThat(replicator.replicatedVersion()).isEqualTo(latestVersion);
+      assertNamespaces(replica, NUM_NAMESPACES + 1);
+    }
+  }
+
+  @Test
+  public void testInvalidOptions() {
+    assertThatThrownBy(
+            () ->
+                new ReplicationOptions(
+                    ImmutableMap.of(ReplicationOptions.POLL_INTERVAL_MILLIS, "-1")))
+        .isInstanceOf(InvalidArgumentException.class);
+  }
+
+  private void createNamespace(int index) {
+    RunningTransaction transaction = TrinityLake.beginTransaction(source);
+    transaction =
+        TrinityLake.createNamespace(source, transaction, "ns" + index, namespaceDef("v" + index));
+    TrinityLake.commitTransaction(source, transaction);
+  }
+
+  private static void assertNamespaces(LakehouseStorage storage, int numNamespaces) {
+    RunningTransaction transaction = TrinityLake.beginTransaction(storage);
+    assertThat(TrinityLake.showNamespaces(storage, transaction)).hasSize(numNamespaces);
+    for (int i = 0; i < numNamespaces; i++) {
+      assertThat(TrinityLake.describeNamespace(storage, transaction, "ns" + i))
+          .isEqualTo(namespaceDef("v" + i));
+    }
+  }
+
+  private static long latestVersion(LakehouseStorage storage) {
+    return TreeOperations.findVersionFromRootNode(TreeOperations.findLatestRoot(storage));
+  }
+}
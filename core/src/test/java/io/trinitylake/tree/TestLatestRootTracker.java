@@ -0,0 +1,147 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.trinitylake.FileLocations;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.storage.BasicLakehouseStorage;
+import io.trinitylake.storage.CommonStorageOpsProperties;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.storage.LiteralURI;
+import io.trinitylake.storage.local.LocalStorageOps;
+import io.trinitylake.storage.local.LocalStorageOpsProperties;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestLatestRootTracker {
+
+  @TempDir private Path tempDir;
+
+  private LakehouseStorage storage;
+  private LakehouseStorage otherStorage;
+
+  @BeforeEach
+  public void beforeEach() {
+    this.storage = newStorage(0);
+    this.otherStorage = newStorage(0);
+    writeRoot(storage, 0);
+    TreeOperations.tryWriteRootNodeVersionHintFile(storage, 0);
+  }
+
+  @AfterEach
+  public void afterEach() throws IOException {
+    storage.close();
+    otherStorage.close();
+  }
+
+  @Test
+  public void testAttachedToStorage() {
+    assertThat(LatestRootTracker.of(storage)).isSameAs(LatestRootTracker.of(storage));
+    assertThat(LatestRootTracker.of(new CountingLakehouseStorage(storage)))
+        .isSameAs(LatestRootTracker.of(storage));
+    assertThat(LatestRootTracker.of(otherStorage)).isNotSameAs(LatestRootTracker.of(storage));
+  }
+
+  @Test
+  public void testLatestKnownRootSendsNoRequest() {
+    CountingLakehouseStorage countingStorage = new CountingLakehouseStorage(storage);
+    LatestRootTracker tracker = new LatestRootTracker(countingStorage);
+    assertThat(tracker.verifiedLatestRoot().path()).hasValue(FileLocations.rootNodeFilePath(0));
+
+    writeRoot(otherStorage, 1);
+    int numRequests = countingStorage.numRequests();
+    TreeRoot root = tracker.latestKnownRoot();
+    assertThat(root.path()).hasValue(FileLocations.rootNodeFilePath(0));
+    assertThat(countingStorage.numRequests()).isEqualTo(numRequests);
+  }
+
+  @Test
+  public void testVerifiedLatestRootChecksNextVersion() {
+    CountingLakehouseStorage countingStorage = new CountingLakehouseStorage(storage);
+    LatestRootTracker tracker = new LatestRootTracker(countingStorage);
+    tracker.verifiedLatestRoot();
+
+    int numRequests = countingStorage.numRequests();
+    TreeRoot root = tracker.verifiedLatestRoot();
+    assertThat(root.path()).hasValue(FileLocations.rootNodeFilePath(0));
+    assertThat(countingStorage.numRequests()).isEqualTo(numRequests + 1);
+
+    writeRoot(otherStorage, 1);
+    writeRoot(otherStorage, 2);
+    root = tracker.verifiedLatestRoot();
+    assertThat(root.path()).hasValue(FileLocations.rootNodeFilePath(2));
+    assertThat(tracker.latestKnownRoot().path()).hasValue(FileLocations.rootNodeFilePath(2));
+  }
+
+  @Test
+  public void testUpdateWithCommittedRoot() {
+    LatestRootTracker tracker = LatestRootTracker.of(storage);
+    tracker.latestKnownRoot();
+
+    writeRoot(storage, 1);
+    TreeRoot committedRoot =
+        TreeOperations.readRootNodeFile(storage, FileLocations.rootNodeFilePath(1));
+    tracker.update(committedRoot);
+    assertThat(tracker.latestKnownRoot().path()).hasValue(FileLocations.rootNodeFilePath(1));
+
+    // an older root does not replace the latest known root
+    tracker.update(TreeOperations.readRootNodeFile(storage, FileLocations.rootNodeFilePath(0)));
+    assertThat(tracker.latestKnownRoot().path()).hasValue(FileLocations.rootNodeFilePath(1));
+
+    // changing the returned root does not change the latest known root
+    TreeRoot root = tracker.latestKnownRoot();
+    root.setLakehouseDefFilePath("changed/lakehouse/def");
+    assertThat(tracker.latestKnownRoot().lakehouseDefFilePath())
+        .isEqualTo(committedRoot.lakehouseDefFilePath());
+  }
+
+  @Test
+  public void testRefreshInBackground() throws Exception {
+    LakehouseStorage refreshedStorage = newStorage(10);
+    LatestRootTracker tracker = LatestRootTracker.of(refreshedStorage);
+    assertThat(tracker.latestKnownRoot().path()).hasValue(FileLocations.rootNodeFilePath(0));
+
+    writeRoot(otherStorage, 1);
+    long deadlineMillis = System.currentTimeMillis() + 10_000;
+    while (!tracker.latestKnownRoot().path().get().equals(FileLocations.rootNodeFilePath(1))
+        && System.currentTimeMillis() < deadlineMillis) {
+      Thread.sleep(10);
+    }
+    assertThat(tracker.latestKnownRoot().path()).hasValue(FileLocations.rootNodeFilePath(1));
+    refreshedStorage.close();
+  }
+
+  private void writeRoot(LakehouseStorage targetStorage, long version) {
+    TreeRoot root = new BasicTreeRoot();
+    root.setLakehouseDefFilePath("some/path/to/lakehouse/def");
+    TreeOperations.writeRootNodeFile(targetStorage, FileLocations.rootNodeFilePath(version), root);
+  }
+
+  private LakehouseStorage newStorage(long refreshIntervalMillis) {
+    CommonStorageOpsProperties props =
+        new CommonStorageOpsProperties(
+            ImmutableMap.of(
+                CommonStorageOpsProperties.LATEST_ROOT_REFRESH_INTERVAL_MILLIS,
+                String.valueOf(refreshIntervalMillis)));
+    return new BasicLakehouseStorage(
+        new LiteralURI("file://" + tempDir),
+        new LocalStorageOps(props, LocalStorageOpsProperties.instance()));
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import static io.trinitylake.tree.LocalLakehouseStorages.namespaceDef;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.trinitylake.FileLocations;
+import io.trinitylake.ObjectDefinitions;
+import io.trinitylake.ObjectKeys;
+import io.trinitylake.RunningTransaction;
+import io.trinitylake.TrinityLake;
+import io.trinitylake.exception.InvalidArgumentException;
+import io.trinitylake.models.LakehouseDef;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.storage.LakehouseStorage;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestSnapshotExport {
+
+  private static final LakehouseDef LAKEHOUSE_DEF =
+      LakehouseDef.newBuilder()
+          .setOrder(4)
+          .setNamespaceNameMaxSizeBytes(8)
+          .setMaximumVersionAgeMillis(0)
+          .setMinimumVersionsToKeep(1)
+          .build();
+  private static final int NUM_NAMESPACES = 40;
+
+  @TempDir private Path tempDir;
+
+  private final LocalLakehouseStorages storages = new LocalLakehouseStorages();
+  private LakehouseStorage source;
+  private LakehouseStorage target;
+  private long version;
+
+  @BeforeEach
+  public void beforeEach() {
+    this.source = storages.open(tempDir.resolve("source"));
+    this.target = storages.open(tempDir.resolve("target"));
+    TrinityLake.createLakehouse(source, LAKEHOUSE_DEF);
+    RunningTransaction transaction = TrinityLake.beginTransaction(source);
+    for (int i = 0; i < NUM_NAMESPACES; i++) {
+      transaction =
+          TrinityLake.createNamespace(source, transaction, "ns" + i, namespaceDef("v" + i));
+    }
+    TrinityLake.commitTransaction(source, transaction);
+
+    // the last transaction is kept in the write buffer, so that the others are flushed to nodes
+    transaction = TrinityLake.beginTransaction(source);
+    transaction =
+        TrinityLake.createNamespace(
+            source, transaction, "ns" + NUM_NAMESPACES, namespaceDef("v" + NUM_NAMESPACES));
+    TrinityLake.commitTransaction(source, transaction);
+    TreeCompactionResult result = TreeCompaction.compact(source, new TreeCompactionOptions());
+    this.version = TreeOperations.findVersionFromRootNode(result.committedRoot().get());
+  }
+
+  @AfterEach
+  public void afterEach() throws IOException {
+    storages.close();
+  }
+
+  @Test
+  public void testFullExport() {
+    SnapshotExportResult result =
+        SnapshotExport.export(source, target, "full", version, new SnapshotExportOptions());
+    assertThat(result.numCopiedFiles()).isGreaterThan(NUM_NAMESPACES + 2);
+    assertThat(result.numCopiedBytes()).isGreaterThan(0);
+    assertThat(result.numSkippedFiles()).isEqualTo(0);
+
+    String rootNodeFilePath = FileLocations.rootNodeFilePath(version);
+    assertThat(result.rootNodeFileLocation())
+        .isEqualTo(target.root().extendPath(rootNodeFilePath).toString());
+
+    // the export is readable from the target storage alone
+    TreeRoot exportedRoot = TreeOperations.readRootNodeFile(target, rootNodeFilePath);
+    for (int i = 0; i <= NUM_NAMESPACES; i++) {
+      String namespaceKey = ObjectKeys.namespaceKey("ns" + i, LAKEHOUSE_DEF);
+      String namespaceDefFilePath =
+          TreeOperations.searchValue(target, exportedRoot, namespaceKey).get();
+      assertThat(ObjectDefinitions.readNamespaceDef(target, namespaceDefFilePath))
+          .isEqualTo(namespaceDef("v" + i));
+    }
+
+    LakehouseDef lakehouseDef =
+        TreeOperations.findLakehouseDef(source, TreeOperations.findLatestRoot(source));
+    assertThat(lakehouseDef.getExportedSnapshotsMap())
+        .containsEntry("full", result.rootNodeFileLocation());
+    assertThat(lakehouseDef.getMaximumVersionAgeMillisOverridesMap()).isEmpty();
+    assertThat(result.committedRoot().path())
+        .hasValue(FileLocations.rootNodeFilePath(version + 1));
+  }
+
+  @Test
+  public void testExportSkipsExistingFiles() {
+    SnapshotExportResult firstResult =
+        SnapshotExport.export(source, target, "first", version, new SnapshotExportOptions());
+    SnapshotExportResult secondResult =
+        SnapshotExport.export(source, target, "second", version, new SnapshotExportOptions());
+    assertThat(secondResult.numCopiedFiles()).isEqualTo(0);
+    assertThat(secondResult.numSkippedFiles()).isEqualTo(firstResult.numCopiedFiles());
+
+    assertThatThrownBy(
+            () ->
+                SnapshotExport.export(
+                    source, target, "first", version, new SnapshotExportOptions()))
+        .isInstanceOf(InvalidArgumentException.class)
+        .hasMessageContaining("already exists");
+  }
+
+  @Test
+  public void testMinimalExportKeepsSourceVersion() {
+    SnapshotExportResult result =
+        SnapshotExport.export(
+            source,
+            target,
+            "minimal",
+            version,
+            new SnapshotExportOptions(ImmutableMap.of(SnapshotExportOptions.MODE, "minimal")));
+    assertThat(result.numCopiedFiles()).isEqualTo(1);
+    assertThat(target.exists(FileLocations.rootNodeFilePath(version))).isTrue();
+
+    LakehouseDef lakehouseDef =
+        TreeOperations.findLakehouseDef(source, TreeOperations.findLatestRoot(source));
+    assertThat(lakehouseDef.getMaximumVersionAgeMillisOverridesMap())
+        .containsKey(version)
+        .hasSize(1);
+    assertThat(lakehouseDef.getMaximumVersionAgeMillisOverridesMap().get(version))
+        .isGreaterThanOrEqualTo(SnapshotExportOptions.SOURCE_RETENTION_MILLIS_DEFAULT);
+
+    VersionExpirationResult expirationResult =
+        VersionExpiration.expire(
+            source, new VersionExpirationOptions(), System.currentTimeMillis() + 1000);
+    assertThat(expirationResult.minimumVersion()).isEqualTo(version);
+    assertThat(TreeOperations.findRootForVersion(source, version)).isPresent();
+  }
+
+  @Test
+  public void testPartialExport() {
+    SnapshotExportResult fullResult =
+        SnapshotExport.export(
+            source, storages.open(tempDir.resolve("full")), "full", version, options("full"));
+    SnapshotExportResult minimalResult =
+        SnapshotExport.export(
+            source,
+            storages.open(tempDir.resolve("minimal")),
+            "minimal",
+            version,
+            options("minimal"));
+    SnapshotExportResult partialResult =
+        SnapshotExport.export(source, target, "partial", version, options("partial"));
+    assertThat(partialResult.numCopiedFiles())
+        .isGreaterThan(minimalResult.numCopiedFiles())
+        .isLessThan(fullResult.numCopiedFiles());
+    String lakehouseDefFilePath =
+        TreeOperations.readRootNodeFile(source, FileLocations.rootNodeFilePath(version))
+            .lakehouseDefFilePath();
+    assertThat(target.exists(lakehouseDefFilePath)).isTrue();
+  }
+
+  @Test
+  public void testExportMissingVersion() {
+    assertThatThrownBy(
+            () ->
+                SnapshotExport.export(
+                    source, target, "missing", version + 10, new SnapshotExportOptions()))
+        .isInstanceOf(InvalidArgumentException.class);
+  }
+
+  @Test
+  public void testInvalidOptions() {
+    assertThatThrownBy(
+            () ->
+                new SnapshotExportOptions(
+                    ImmutableMap.of(SnapshotExportOptions.PARTIAL_MAX_DEPTH, "0")))
+        .isInstanceOf(InvalidArgumentException.class);
+    assertThatThrownBy(
+            () ->
+                new SnapshotExportOptions(
+                    ImmutableMap.of(SnapshotExportOptions.SOURCE_RETENTION_MILLIS, "-1")))
+        .isInstanceOf(InvalidArgumentException.class);
+    assertThatThrownBy(
+            () ->
+                new SnapshotExportOptions(
+                    ImmutableMap.of(SnapshotExportOptions.COMMIT_RETRY_MAX_WAIT_MILLIS, "10")))
+        .isInstanceOf(InvalidArgumentException.class);
+  }
+
+  private static SnapshotExportOptions options(String mode) {
+    return new SnapshotExportOptions(ImmutableMap.of(SnapshotExportOptions.MODE, mode));
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.trinitylake.FileLocations;
+import io.trinitylake.relocated.com.google.common.collect.Lists;
+import io.trinitylake.storage.BasicLakehouseStorage;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.storage.LiteralURI;
+import io.trinitylake.storage.local.LocalStorageOps;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestTimestampIndex {
+
+  private static final int NUM_VERSIONS = TimestampIndex.SEGMENT_SIZE + 4;
+
+  @TempDir private Path tempDir;
+
+  private LakehouseStorage storage;
+  private List<Long> createdAtMillis;
+
+  @BeforeEach
+  public void beforeEach() throws InterruptedException {
+    this.storage = newStorage();
+    this.createdAtMillis = Lists.newArrayList();
+    for (int i = 0; i < NUM_VERSIONS; i++) {
+      TreeRoot treeRoot = new BasicTreeRoot();
+      treeRoot.setLakehouseDefFilePath("some/path/to/lakehouse/def");
+      String rootPath = FileLocations.rootNodeFilePath(i);
+      TreeOperations.writeRootNodeFile(storage, rootPath, treeRoot);
+      TimestampIndex.tryWriteSegmentFile(storage, i);
+      TreeRoot root = TreeOperations.readRootNodeFile(storage, rootPath);
+      createdAtMillis.add(root.createdAtMillis().get());
+      Thread.sleep(1);
+    }
+    TreeOperations.tryWriteRootNodeVersionHintFile(storage, NUM_VERSIONS - 1);
+  }
+
+  @Test
+  public void testWriteSegmentFile() {
+    assertThat(storage.exists(FileLocations.timestampIndexFilePath(0))).isTrue();
+    assertThat(storage.exists(FileLocations.timestampIndexFilePath(1))).isFalse();
+  }
+
+  @Test
+  public void testSkipSegmentFileOfExpiredVersions() {
+    String segmentFilePath = FileLocations.timestampIndexFilePath(0);
+    storage.delete(Lists.newArrayList(segmentFilePath, FileLocations.rootNodeFilePath(0)));
+    VersionExpiration.writeMinimumVersionFile(storage, 1);
+
+    TimestampIndex.tryWriteSegmentFile(storage, TimestampIndex.SEGMENT_SIZE - 1);
+    assertThat(storage.exists(segmentFilePath)).isFalse();
+  }
+
+  @Test
+  public void testFindRootBeforeTimestamp() {
+    for (int version : new int[] {0, 1, 100, TimestampIndex.SEGMENT_SIZE - 1, NUM_VERSIONS - 2}) {
+      long timestampMillis = createdAtMillis.get(version) + 1;
+      TreeRoot root = TreeOperations.findRootBeforeTimestamp(storage, timestampMillis);
+      assertThat(root.path())
+          .hasValue(FileLocations.rootNodeFilePath(expectedVersion(timestampMillis)));
+    }
+
+    TreeRoot root = TreeOperations.findRootBeforeTimestamp(storage, createdAtMillis.get(0));
+    assertThat(root.path()).hasValue(FileLocations.rootNodeFilePath(0));
+  }
+
+  @Test
+  public void testFindRootBeforeTimestampReadsIndex() {
+    CountingLakehouseStorage countingStorage = new CountingLakehouseStorage(newStorage());
+    long timestampMillis = createdAtMillis.get(100) + 1;
+    TreeRoot root = TreeOperations.findRootBeforeTimestamp(countingStorage, timestampMillis);
+    assertThat(root.path())
+        .hasValue(FileLocations.rootNodeFilePath(expectedVersion(timestampMillis)));
+    // reads of the hint, the latest root, the index file, the boundary roots and the found root
+    assertThat(countingStorage.numRequests()).isLessThan(20);
+  }
+
+  @Test
+  public void testFindRootBeforeTimestampWithoutIndex() {
+    storage.delete(Lists.newArrayList(FileLocations.timestampIndexFilePath(0)));
+    LakehouseStorage newStorage = newStorage();
+    long timestampMillis = createdAtMillis.get(42) + 1;
+    TreeRoot root = TreeOperations.findRootBeforeTimestamp(newStorage, timestampMillis);
+    assertThat(root.path())
+        .hasValue(FileLocations.rootNodeFilePath(expectedVersion(timestampMillis)));
+  }
+
+  private int expectedVersion(long timestampMillis) {
+    int version = 0;
+    for (int i = 0; i < NUM_VERSIONS - 1; i++) {
+      if (createdAtMillis.get(i) < timestampMillis) {
+        version = i;
+      }
+    }
+    return version;
+  }
+
+  private LakehouseStorage newStorage() {
+    return new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), new LocalStorageOps());
+  }
+}
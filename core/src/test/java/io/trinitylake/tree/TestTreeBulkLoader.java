@@ -0,0 +1,160 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.trinitylake.FileLocations;
+import io.trinitylake.TrinityLake;
+import io.trinitylake.exception.InvalidArgumentException;
+import io.trinitylake.models.LakehouseDef;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableList;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.storage.BasicLakehouseStorage;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.storage.LiteralURI;
+import io.trinitylake.storage.local.LocalStorageOps;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestTreeBulkLoader {
+
+  private static final LakehouseDef LAKEHOUSE_DEF = LakehouseDef.newBuilder().setOrder(4).build();
+
+  @TempDir private Path tempDir;
+
+  private LakehouseStorage storage;
+
+  @BeforeEach
+  public void beforeEach() {
+    this.storage =
+        new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), new LocalStorageOps());
+    TrinityLake.createLakehouse(storage, LAKEHOUSE_DEF);
+  }
+
+  @Test
+  public void testLoad() {
+    TreeRoot root = TreeBulkLoader.load(storage, rows(0, 1000));
+
+    assertThat(root.path()).hasValue(FileLocations.rootNodeFilePath(1));
+    assertThat(root.previousRootNodeFilePath()).hasValue(FileLocations.rootNodeFilePath(0));
+    assertThat(root.numKeys()).isLessThan(4);
+
+    TreeRoot latest = TreeOperations.findLatestRoot(storage);
+    assertThat(latest.path()).hasValue(FileLocations.rootNodeFilePath(1));
+    for (int i = 0; i < 1000; i++) {
+      assertThat(TreeOperations.searchValue(storage, latest, key(i))).hasValue("val" + i);
+    }
+
+    List<String> keys =
+        TreeOperations.listRows(storage, latest).stream()
+            .map(NodeKeyTableRow::key)
+            .collect(Collectors.toList());
+    assertThat(keys).hasSize(1000).isSorted();
+  }
+
+  @Test
+  public void testLoadMergesExistingRows() {
+    TreeBulkLoader.load(storage, rows(0, 100));
+    TreeRoot root =
+        TreeBulkLoader.load(
+            storage,
+            ImmutableList.of(row("k0050", "new-val50"), row("k1000", "val1000")).iterator());
+
+    assertThat(root.path()).hasValue(FileLocations.rootNodeFilePath(2));
+    assertThat(TreeOperations.searchValue(storage, root, "k0049")).hasValue("val49");
+    assertThat(TreeOperations.searchValue(storage, root, "k0050")).hasValue("new-val50");
+    assertThat(TreeOperations.searchValue(storage, root, "k1000")).hasValue("val1000");
+    assertThat(TreeOperations.listRows(storage, root)).hasSize(101);
+  }
+
+  @Test
+  public void testLoadKeepsLatestCommittedTransactionMessages() {
+    TreeBulkLoader.load(storage, rows(0, 100));
+    TreeRoot latest = TreeOperations.findLatestRoot(storage);
+    TreeRoot root = TreeOperations.cloneTreeRoot(latest);
+    // the write buffer of an order 4 lakehouse holds up to 2 messages
+    TreeOperations.setValue(storage, LAKEHOUSE_DEF, root, "txn", "k0010", "new-val10");
+    TreeOperations.removeKey(storage, LAKEHOUSE_DEF, root, "txn", "k0020");
+    root.setPreviousRootNodeFilePath(latest.path().get());
+    TreeOperations.writeRootNodeFile(storage, FileLocations.rootNodeFilePath(2), root);
+
+    TreeRoot loadedRoot =
+        TreeBulkLoader.load(storage, ImmutableList.of(row("k0020", "loaded-val20")).iterator());
+
+    assertThat(loadedRoot.writeBuffer().stream().map(WriteBufferMessage::key))
+        .containsExactly("k0010");
+    assertThat(TreeOperations.searchValue(storage, loadedRoot, "k0010")).hasValue("new-val10");
+    assertThat(TreeOperations.searchValue(storage, loadedRoot, "k0020")).hasValue("loaded-val20");
+    assertThat(TreeOperations.listRows(storage, loadedRoot)).hasSize(100);
+  }
+
+  @Test
+  public void testLoadedTreeAcceptsChanges() {
+    TreeRoot root =
+        TreeOperations.cloneTreeRoot(
+            TreeBulkLoader.load(
+                storage,
+                rows(0, 200),
+                new TreeBulkLoadOptions(ImmutableMap.of(TreeBulkLoadOptions.FILL_FACTOR, "1"))));
+
+    for (int i = 200; i < 300; i++) {
+      TreeOperations.setValue(storage, LAKEHOUSE_DEF, root, "txn", key(i), "val" + i);
+    }
+    for (int i = 0; i < 100; i++) {
+      TreeOperations.removeKey(storage, LAKEHOUSE_DEF, root, "txn", key(i));
+    }
+
+    assertThat(TreeOperations.listRows(storage, root)).hasSize(200);
+    assertThat(TreeOperations.searchValue(storage, root, key(150))).hasValue("val150");
+    assertThat(TreeOperations.searchValue(storage, root, key(50))).isEmpty();
+  }
+
+  @Test
+  public void testLoadUnsortedRows() {
+    Iterator<NodeKeyTableRow> rows =
+        ImmutableList.of(row("k2", "val2"), row("k1", "val1")).iterator();
+    assertThatThrownBy(() -> TreeBulkLoader.load(storage, rows))
+        .isInstanceOf(InvalidArgumentException.class)
+        .hasMessageContaining("must be sorted");
+    assertThat(storage.exists(FileLocations.rootNodeFilePath(1))).isFalse();
+  }
+
+  @Test
+  public void testInvalidOptions() {
+    assertThatThrownBy(
+            () -> new TreeBulkLoadOptions(ImmutableMap.of(TreeBulkLoadOptions.FILL_FACTOR, "0")))
+        .isInstanceOf(InvalidArgumentException.class)
+        .hasMessageContaining("must be in range");
+  }
+
+  private static Iterator<NodeKeyTableRow> rows(int from, int to) {
+    return IntStream.range(from, to).mapToObj(i -> row(key(i), "val" + i)).iterator();
+  }
+
+  private static String key(int i) {
+    return String.format("k%04d", i);
+  }
+
+  private static NodeKeyTableRow row(String key, String value) {
+    return ImmutableNodeKeyTableRow.builder().key(key).value(value).build();
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.trinitylake.FileLocations;
+import io.trinitylake.ObjectDefinitions;
+import io.trinitylake.exception.InvalidArgumentException;
+import io.trinitylake.models.LakehouseDef;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.storage.BasicLakehouseStorage;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.storage.LiteralURI;
+import io.trinitylake.storage.local.LocalStorageOps;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestTreeCompaction {
+
+  private static final LakehouseDef LAKEHOUSE_DEF = LakehouseDef.newBuilder().setOrder(4).build();
+
+  @TempDir private Path tempDir;
+
+  private LakehouseStorage storage;
+
+  @BeforeEach
+  public void beforeEach() {
+    this.storage =
+        new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), new LocalStorageOps());
+    String lakehouseDefFilePath = FileLocations.newLakehouseDefFilePath();
+    ObjectDefinitions.writeLakehouseDef(storage, lakehouseDefFilePath, LAKEHOUSE_DEF);
+
+    TreeRoot root = new BasicTreeRoot();
+    root.setLakehouseDefFilePath(lakehouseDefFilePath);
+    for (int i = 0; i < 10; i++) {
+      root.appendMessage(message("txn1", "k" + i, "val" + i));
+    }
+    root.appendMessage(message("txn2", "k0", "val0-2"));
+    root.appendMessage(message("txn2", "k10", "val10"));
+    TreeOperations.writeRootNodeFile(storage, FileLocations.rootNodeFilePath(0), root);
+  }
+
+  @Test
+  public void testCompactKeepsLatestCommittedTransaction() {
+    TreeCompactionResult result = TreeCompaction.compact(storage, new TreeCompactionOptions());
+
+    assertThat(result.numFlushedMessages()).isEqualTo(9);
+    assertThat(result.numWrittenNodes()).isGreaterThan(0);
+    assertThat(result.committedRoot().isPresent()).isTrue();
+
+    TreeRoot latest = TreeOperations.findLatestRoot(storage);
+    assertThat(latest.path()).hasValue(FileLocations.rootNodeFilePath(1));
+    assertThat(latest.previousRootNodeFilePath()).hasValue(FileLocations.rootNodeFilePath(0));
+    assertThat(latest.writeBuffer().stream().map(WriteBufferMessage::key))
+        .containsExactly("k0", "k0", "k10");
+    assertThat(TreeOperations.searchValue(storage, latest, "k0")).hasValue("val0-2");
+    for (int i = 1; i < 11; i++) {
+      assertThat(TreeOperations.searchValue(storage, latest, "k" + i)).hasValue("val" + i);
+    }
+
+    TreeCompactionResult secondResult =
+        TreeCompaction.compact(storage, new TreeCompactionOptions());
+    assertThat(secondResult.numFlushedMessages()).isEqualTo(0);
+    assertThat(secondResult.committedRoot().isPresent()).isFalse();
+  }
+
+  @Test
+  public void testCompactWithinNodeBudget() {
+    TreeCompactionOptions options =
+        new TreeCompactionOptions(ImmutableMap.of(TreeCompactionOptions.MAX_NODES_PER_RUN, "1"));
+    TreeCompactionResult result = TreeCompaction.compact(storage, options);
+
+    assertThat(result.numFlushedMessages()).isLessThan(9);
+    assertThat(result.committedRoot().isPresent()).isTrue();
+
+    TreeRoot latest = TreeOperations.findLatestRoot(storage);
+    assertThat(latest.writeBuffer()).hasSize(12 - result.numFlushedMessages());
+    assertThat(TreeOperations.searchValue(storage, latest, "k0")).hasValue("val0-2");
+    for (int i = 1; i < 11; i++) {
+      assertThat(TreeOperations.searchValue(storage, latest, "k" + i)).hasValue("val" + i);
+    }
+  }
+
+  @Test
+  public void testCompactionServiceRunsInBackground() throws InterruptedException {
+    TreeCompactionOptions options =
+        new TreeCompactionOptions(ImmutableMap.of(TreeCompactionOptions.INTERVAL_MILLIS, "10"));
+    try (TreeCompactionService service = new TreeCompactionService(storage, options)) {
+      service.start();
+      for (int i = 0; i < 500 && !storage.exists(FileLocations.rootNodeFilePath(1)); i++) {
+        Thread.sleep(10);
+      }
+    }
+
+    assertThat(storage.exists(FileLocations.rootNodeFilePath(1))).isTrue();
+  }
+
+  @Test
+  public void testInvalidOptions() {
+    assertThatThrownBy(
+            () ->
+                new TreeCompactionOptions(
+                    ImmutableMap.of(TreeCompactionOptions.MAX_IO_REQUESTS_PER_RUN, "0")))
+        .isInstanceOf(InvalidArgumentException.class)
+        .hasMessageContaining("must be positive");
+  }
+
+  private static WriteBufferMessage message(String transactionId, String key, String value) {
+    return ImmutableWriteBufferMessage.builder()
+        .key(key)
+        .value(value)
+        .transactionId(transactionId)
+        .build();
+  }
+}
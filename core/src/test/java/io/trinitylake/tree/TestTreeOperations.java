@@ -14,15 +14,30 @@
 package io.trinitylake.tree;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import io.trinitylake.FileLocations;
+import io.trinitylake.TrinityLake;
+import io.trinitylake.exception.InvalidArgumentException;
+import io.trinitylake.models.LakehouseDef;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableList;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.relocated.com.google.common.collect.Lists;
 import io.trinitylake.storage.BasicLakehouseStorage;
+import io.trinitylake.storage.CommonStorageOpsProperties;
 import io.trinitylake.storage.LakehouseStorage;
 import io.trinitylake.storage.LiteralURI;
 import io.trinitylake.storage.local.LocalStorageOps;
+import io.trinitylake.storage.local.LocalStorageOpsProperties;
+import io.trinitylake.util.CloseableIterable;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -82,6 +97,58 @@ public class TestTreeOperations {
     assertThat(root.path().get()).isEqualTo(v2Path);
   }
 
+  @Test
+  public void testFindLatestVersionWithStaleHint(@TempDir Path tempDir) {
+    LocalStorageOps ops = new LocalStorageOps();
+    LakehouseStorage storage = new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), ops);
+    for (int i = 0; i < 100; i++) {
+      TreeRoot treeRoot = new BasicTreeRoot();
+      treeRoot.setLakehouseDefFilePath("some/path/to/lakehouse/def");
+      TreeOperations.writeRootNodeFile(storage, FileLocations.rootNodeFilePath(i), treeRoot);
+    }
+    TreeOperations.tryWriteRootNodeVersionHintFile(storage, 3);
+
+    CountingLakehouseStorage countingStorage = new CountingLakehouseStorage(storage);
+    TreeRoot root = TreeOperations.findLatestRoot(countingStorage);
+    assertThat(root.path()).hasValue(FileLocations.rootNodeFilePath(99));
+    // 1 probe of the hinted version, 8 probes galloping to 131 and 6 probes bisecting from 67
+    assertThat(countingStorage.numExistenceChecks()).isLessThanOrEqualTo(15);
+
+    TreeOperations.tryWriteRootNodeVersionHintFile(storage, 200);
+    assertThat(TreeOperations.findLatestRoot(storage).path())
+        .hasValue(FileLocations.rootNodeFilePath(99));
+  }
+
+  @Test
+  public void testFindRootForVersion(@TempDir Path tempDir) throws IOException {
+    LocalStorageOps ops = new LocalStorageOps();
+    LakehouseStorage storage = new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), ops);
+    for (int i = 0; i < 5; i++) {
+      TreeRoot treeRoot = new BasicTreeRoot();
+      treeRoot.setLakehouseDefFilePath("some/path/to/lakehouse/def");
+      treeRoot.set("k", "val" + i);
+      TreeOperations.writeRootNodeFile(storage, FileLocations.rootNodeFilePath(i), treeRoot);
+    }
+
+    CountingLakehouseStorage countingStorage = new CountingLakehouseStorage(storage);
+    Optional<TreeRoot> root = TreeOperations.findRootForVersion(countingStorage, 2);
+    assertThat(root.get().path()).hasValue(FileLocations.rootNodeFilePath(2));
+    assertThat(TreeOperations.searchValue(storage, root.get(), "k")).hasValue("val2");
+    assertThat(countingStorage.numRequests()).isLessThanOrEqualTo(3);
+    assertThat(TreeOperations.findRootForVersion(storage, 5)).isEmpty();
+
+    try (OutputStream stream = storage.startOverwrite(FileLocations.MINIMUM_VERSION_FILE_PATH)) {
+      stream.write("3".getBytes(StandardCharsets.UTF_8));
+    }
+    assertThat(TreeOperations.findMinimumVersion(storage)).isEqualTo(3);
+    assertThat(TreeOperations.findRootForVersion(storage, 2)).isEmpty();
+    assertThat(TreeOperations.findRootForVersion(storage, 3)).isPresent();
+
+    storage.delete(ImmutableList.of(FileLocations.rootNodeFilePath(0)));
+    assertThat(TreeOperations.findLatestRoot(storage).path())
+        .hasValue(FileLocations.rootNodeFilePath(4));
+  }
+
   @Test
   public void testTreeRootIterable(@TempDir Path tempDir) {
     LocalStorageOps ops = new LocalStorageOps();
@@ -123,4 +190,494 @@ public class TestTreeOperations {
 
     assertThat(roots.hasNext()).isFalse();
   }
+
+  @Test
+  public void testTreeRootIterableWithReadAhead(@TempDir Path tempDir) {
+    LocalStorageOps ops = new LocalStorageOps();
+    LakehouseStorage storage = new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), ops);
+    int numVersions = 10;
+    for (int version = 0; version < numVersions; version++) {
+      TreeRoot treeRoot = new BasicTreeRoot();
+      treeRoot.setLakehouseDefFilePath("some/path/to/lakehouse/def");
+      if (version > 0) {
+        treeRoot.setPreviousRootNodeFilePath(FileLocations.rootNodeFilePath(version - 1));
+      }
+      TreeOperations.writeRootNodeFile(storage, FileLocations.rootNodeFilePath(version), treeRoot);
+    }
+    TreeOperations.tryWriteRootNodeVersionHintFile(storage, numVersions - 1);
+
+    for (int readAheadVersions : new int[] {1, 3, numVersions * 2}) {
+      Iterator<TreeRoot> roots = TreeOperations.listRoots(storage, readAheadVersions).iterator();
+      for (int version = numVersions - 1; version >= 0; version--) {
+        assertThat(roots.hasNext()).isTrue();
+        assertThat(roots.next().path()).hasValue(FileLocations.rootNodeFilePath(version));
+      }
+      assertThat(roots.hasNext()).isFalse();
+    }
+
+    assertThatThrownBy(() -> TreeOperations.listRoots(storage, -1))
+        .isInstanceOf(InvalidArgumentException.class);
+  }
+
+  @Test
+  public void testRetainedKeysWithoutRunningTransaction() {
+    List<WriteBufferMessage> messages =
+        ImmutableList.of(message("a", "t1"), message("b", "t2"), message("c", "t2"));
+
+    assertThat(TreeOperations.retainedKeys(messages)).containsExactlyInAnyOrder("b", "c");
+    assertThat(TreeOperations.retainedKeys(messages, "t2")).containsExactly("a");
+    assertThat(TreeOperations.retainedKeys(ImmutableList.of())).isEmpty();
+  }
+
+  @Test
+  public void testDeleteFilesCountsFailedFiles(@TempDir Path tempDir) throws IOException {
+    LocalStorageOps ops = new LocalStorageOps();
+    LakehouseStorage storage = new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), ops);
+    List<String> paths = ImmutableList.of("a.txt", "b.txt", "c");
+    for (String path : paths.subList(0, 2)) {
+      try (OutputStream stream = storage.startCommit(path)) {
+        stream.write(1);
+      }
+    }
+    // a directory that is not empty fails to be deleted
+    assertThat(tempDir.resolve("c").resolve("d").toFile().mkdirs()).isTrue();
+
+    assertThat(TreeOperations.deleteFiles(storage, paths)).isEqualTo(2);
+    assertThat(storage.exists("a.txt")).isFalse();
+    assertThat(storage.exists("c")).isTrue();
+  }
+
+  @Test
+  public void testTreeRootIterableSkipsDecodedFileCache(@TempDir Path tempDir) {
+    LocalStorageOps ops = new LocalStorageOps();
+    LakehouseStorage storage = new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), ops);
+    int numVersions = 5;
+    for (int version = 0; version < numVersions; version++) {
+      TreeRoot treeRoot = new BasicTreeRoot();
+      treeRoot.setLakehouseDefFilePath("some/path/to/lakehouse/def");
+      if (version > 0) {
+        treeRoot.setPreviousRootNodeFilePath(FileLocations.rootNodeFilePath(version - 1));
+      }
+      TreeOperations.writeRootNodeFile(storage, FileLocations.rootNodeFilePath(version), treeRoot);
+    }
+    TreeOperations.tryWriteRootNodeVersionHintFile(storage, numVersions - 1);
+    Lists.newArrayList(TreeOperations.listRoots(storage, 2));
+
+    // roots of previous versions are read again, as listing them does not fill the cache
+    CountingLakehouseStorage countingStorage = new CountingLakehouseStorage(storage);
+    try (CloseableIterable<TreeRoot> roots = TreeOperations.listRoots(countingStorage, 2)) {
+      assertThat(Lists.newArrayList(roots)).hasSize(numVersions);
+    }
+    assertThat(countingStorage.numReads()).isGreaterThanOrEqualTo(numVersions - 1);
+
+    // closing an iterable that is not fully iterated cancels the roots being read ahead
+    try (CloseableIterable<TreeRoot> roots = TreeOperations.listRoots(storage, 2)) {
+      assertThat(roots.iterator().next().path())
+          .hasValue(FileLocations.rootNodeFilePath(numVersions - 1));
+    }
+  }
+
+  @Test
+  public void testSetValueSplitsNodes(@TempDir Path tempDir) {
+    LocalStorageOps ops = new LocalStorageOps();
+    LakehouseStorage storage = new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), ops);
+    LakehouseDef lakehouseDef = LakehouseDef.newBuilder().setOrder(4).build();
+
+    TreeRoot treeRoot = new BasicTreeRoot();
+    treeRoot.setLakehouseDefFilePath("some/path/to/lakehouse/def");
+    for (int i = 0; i < 100; i++) {
+      TreeOperations.setValue(
+          storage,
+          lakehouseDef,
+          treeRoot,
+          "txn" + i,
+          String.format("k%03d", (i * 37) % 100),
+          "val" + i);
+    }
+
+    assertThat(treeRoot.numKeys()).isLessThan(4);
+    assertThat(treeRoot.leftmostNodePointer().isPresent()).isTrue();
+    TreeNode child = treeRoot.dirtyNodes().get(treeRoot.leftmostNodePointer().get());
+    assertThat(child.numKeys()).isLessThan(4);
+
+    for (int i = 0; i < 100; i++) {
+      assertThat(
+              TreeOperations.searchValue(storage, treeRoot, String.format("k%03d", (i * 37) % 100)))
+          .hasValue("val" + i);
+    }
+    assertThat(TreeOperations.searchValue(storage, treeRoot, "k100")).isEmpty();
+
+    List<String> keys =
+        TreeOperations.listRows(storage, treeRoot).stream()
+            .map(NodeKeyTableRow::key)
+            .collect(Collectors.toList());
+    assertThat(keys).hasSize(100);
+    assertThat(keys).isSorted();
+
+    String rootPath = FileLocations.rootNodeFilePath(0);
+    TreeOperations.writeRootNodeFile(storage, rootPath, treeRoot);
+    TreeRoot root = TreeOperations.readRootNodeFile(storage, rootPath);
+    assertThat(root.leftmostNodePointer()).isEqualTo(treeRoot.leftmostNodePointer());
+    assertThat(TreeOperations.searchValue(storage, root, "k042")).hasValue("val66");
+  }
+
+  @Test
+  public void testWriteRootNodeFileWritesOnlyDirtyNodes(@TempDir Path tempDir) {
+    LocalStorageOps ops = new LocalStorageOps();
+    LakehouseStorage storage = new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), ops);
+    LakehouseDef lakehouseDef = LakehouseDef.newBuilder().setOrder(4).build();
+
+    TreeRoot treeRoot = new BasicTreeRoot();
+    treeRoot.setLakehouseDefFilePath("some/path/to/lakehouse/def");
+    for (int i = 0; i < 100; i++) {
+      TreeOperations.setValue(
+          storage, lakehouseDef, treeRoot, "txn" + i, String.format("k%03d", i), "val" + i);
+    }
+
+    int numDirtyNodes = treeRoot.dirtyNodes().size();
+    assertThat(numDirtyNodes).isGreaterThan(1);
+    for (String path : treeRoot.dirtyNodes().keySet()) {
+      assertThat(storage.exists(path)).isFalse();
+    }
+
+    assertThat(TreeOperations.searchValue(storage, treeRoot, "k042")).hasValue("val42");
+    assertThat(Lists.newArrayList(TreeOperations.scanPrefix(storage, treeRoot, "k0"))).hasSize(100);
+
+    CountingLakehouseStorage countingStorage = new CountingLakehouseStorage(storage);
+    List<String> dirtyPaths = Lists.newArrayList(treeRoot.dirtyNodes().keySet());
+    TreeOperations.writeRootNodeFile(countingStorage, FileLocations.rootNodeFilePath(0), treeRoot);
+    assertThat(countingStorage.numCommits()).isEqualTo(numDirtyNodes + 1);
+    assertThat(treeRoot.dirtyNodes()).isEmpty();
+    for (String path : dirtyPaths) {
+      assertThat(storage.exists(path)).isTrue();
+    }
+
+    TreeRoot nextRoot =
+        TreeOperations.cloneTreeRoot(
+            TreeOperations.readRootNodeFile(storage, FileLocations.rootNodeFilePath(0)));
+    for (int i = 0; i < 4; i++) {
+      TreeOperations.setValue(storage, lakehouseDef, nextRoot, "txn-next", "k042", "val" + i);
+    }
+
+    // only the nodes on the path to the changed key are written again
+    assertThat(nextRoot.dirtyNodes().size()).isLessThan(numDirtyNodes);
+    countingStorage = new CountingLakehouseStorage(storage);
+    TreeOperations.writeRootNodeFile(countingStorage, FileLocations.rootNodeFilePath(1), nextRoot);
+    assertThat(countingStorage.numCommits()).isLessThan(numDirtyNodes);
+
+    TreeRoot root = TreeOperations.readRootNodeFile(storage, FileLocations.rootNodeFilePath(1));
+    assertThat(TreeOperations.searchValue(storage, root, "k042")).hasValue("val3");
+    assertThat(TreeOperations.listRows(storage, root)).hasSize(100);
+  }
+
+  @Test
+  public void testRemoveKeyCollapsesNodes(@TempDir Path tempDir) {
+    LocalStorageOps ops = new LocalStorageOps();
+    LakehouseStorage storage = new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), ops);
+    LakehouseDef lakehouseDef = LakehouseDef.newBuilder().setOrder(4).build();
+
+    TreeRoot treeRoot = new BasicTreeRoot();
+    treeRoot.setLakehouseDefFilePath("some/path/to/lakehouse/def");
+    for (int i = 0; i < 50; i++) {
+      TreeOperations.setValue(
+          storage, lakehouseDef, treeRoot, "txn" + i, String.format("k%02d", i), "val" + i);
+    }
+
+    for (int i = 0; i < 50; i += 2) {
+      TreeOperations.removeKey(
+          storage, lakehouseDef, treeRoot, "txn-remove" + i, String.format("k%02d", i));
+    }
+
+    for (int i = 0; i < 50; i++) {
+      if (i % 2 == 0) {
+        assertThat(TreeOperations.searchValue(storage, treeRoot, String.format("k%02d", i)))
+            .isEmpty();
+      } else {
+        assertThat(TreeOperations.searchValue(storage, treeRoot, String.format("k%02d", i)))
+            .hasValue("val" + i);
+      }
+    }
+    assertThat(TreeOperations.listRows(storage, treeRoot)).hasSize(25);
+
+    for (int i = 1; i < 50; i += 2) {
+      TreeOperations.removeKey(
+          storage, lakehouseDef, treeRoot, "txn-remove" + i, String.format("k%02d", i));
+    }
+
+    assertThat(treeRoot.numKeys()).isLessThan(4);
+    assertThat(TreeOperations.listRows(storage, treeRoot)).isEmpty();
+  }
+
+  @Test
+  public void testNodeKeyTableSizeCountsUtf8Bytes() {
+    TreeNode node = new BasicTreeNode();
+    node.set("ascii", "v");
+    node.set("\u00e9t\u00e9", "\u6570\u636e");
+    node.set("\ud83d\ude00", "v");
+
+    long expectedSizeBytes = 0;
+    for (int i = 0; i < node.numKeys(); i++) {
+      expectedSizeBytes += node.keyAt(i).getBytes(StandardCharsets.UTF_8).length;
+      expectedSizeBytes += node.valueAt(i).getBytes(StandardCharsets.UTF_8).length;
+    }
+    assertThat(TreeOperations.estimateNodeKeyTableSizeBytes(node)).isEqualTo(expectedSizeBytes);
+  }
+
+  @Test
+  public void testWriteBufferMergeOnRead(@TempDir Path tempDir) {
+    LocalStorageOps ops = new LocalStorageOps();
+    LakehouseStorage storage = new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), ops);
+    LakehouseDef lakehouseDef = LakehouseDef.newBuilder().setOrder(8).build();
+
+    TreeRoot treeRoot = new BasicTreeRoot();
+    treeRoot.setLakehouseDefFilePath("some/path/to/lakehouse/def");
+    TreeOperations.setValue(storage, lakehouseDef, treeRoot, "txn1", "k1", "val1");
+    TreeOperations.setValue(storage, lakehouseDef, treeRoot, "txn1", "k2", "val2");
+    TreeOperations.removeKey(storage, lakehouseDef, treeRoot, "txn2", "k1");
+
+    assertThat(treeRoot.numKeys()).isEqualTo(0);
+    assertThat(treeRoot.writeBuffer()).hasSize(3);
+    assertThat(TreeOperations.searchValue(storage, treeRoot, "k1")).isEmpty();
+    assertThat(TreeOperations.searchValue(storage, treeRoot, "k2")).hasValue("val2");
+
+    String rootPath = FileLocations.rootNodeFilePath(0);
+    TreeOperations.writeRootNodeFile(storage, rootPath, treeRoot);
+    TreeRoot root = TreeOperations.readRootNodeFile(storage, rootPath);
+    assertThat(root.writeBuffer()).isEqualTo(treeRoot.writeBuffer());
+    assertThat(TreeOperations.searchValue(storage, root, "k1")).isEmpty();
+    assertThat(TreeOperations.listRows(storage, root).stream().map(NodeKeyTableRow::key))
+        .containsExactly("k2");
+  }
+
+  @Test
+  public void testSearchNodeFile(@TempDir Path tempDir) {
+    LocalStorageOps ops = new LocalStorageOps();
+    LakehouseStorage storage = new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), ops);
+
+    TreeNode node = new BasicTreeNode();
+    node.setLeftmostNodePointer("node-a");
+    for (int i = 1; i < 10; i += 2) {
+      node.set("k" + i, "val" + i);
+      node.setNodePointer("k" + i, "node-" + i);
+    }
+    node.appendMessage(
+        ImmutableWriteBufferMessage.builder()
+            .key("k3")
+            .value("val3-new")
+            .transactionId("t")
+            .build());
+    node.appendMessage(ImmutableWriteBufferMessage.builder().key("k5").transactionId("t").build());
+    TreeOperations.writeNodeFile(storage, "node.ipc", node);
+
+    assertThat(TreeOperations.searchNodeFile(storage, "node.ipc", "k1").value()).hasValue("val1");
+    assertThat(TreeOperations.searchNodeFile(storage, "node.ipc", "k9").value()).hasValue("val9");
+    assertThat(TreeOperations.searchNodeFile(storage, "node.ipc", "k3").value())
+        .hasValue("val3-new");
+    NodeSearchResult deleted = TreeOperations.searchNodeFile(storage, "node.ipc", "k5");
+    assertThat(deleted.value()).isEmpty();
+    assertThat(deleted.nodePointer()).isEmpty();
+    assertThat(TreeOperations.searchNodeFile(storage, "node.ipc", "k0").nodePointer())
+        .hasValue("node-a");
+    assertThat(TreeOperations.searchNodeFile(storage, "node.ipc", "k4").nodePointer())
+        .hasValue("node-3");
+    assertThat(TreeOperations.searchNodeFile(storage, "node.ipc", "k99").nodePointer())
+        .hasValue("node-9");
+  }
+
+  @Test
+  public void testReadNodeFileFromCache(@TempDir Path tempDir) {
+    LocalStorageOps ops = new LocalStorageOps();
+    CountingLakehouseStorage storage =
+        new CountingLakehouseStorage(
+            new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), ops));
+
+    TreeNode treeNode = new BasicTreeNode();
+    treeNode.set("k1", "val1");
+    TreeOperations.writeNodeFile(storage, "node.ipc", treeNode);
+
+    TreeNode node = TreeOperations.readNodeFile(storage, "node.ipc");
+    node.set("k2", "val2");
+    assertThat(TreeOperations.readNodeFile(storage, "node.ipc").numKeys()).isEqualTo(1);
+    assertThat(TreeOperations.searchNodeFile(storage, "node.ipc", "k1").value()).hasValue("val1");
+    assertThat(storage.numRequests()).isEqualTo(2);
+  }
+
+  @Test
+  public void testReadNodeFileWithCacheDisabled(@TempDir Path tempDir) {
+    LocalStorageOps ops =
+        new LocalStorageOps(
+            new CommonStorageOpsProperties(
+                ImmutableMap.of(CommonStorageOpsProperties.DECODED_FILE_CACHE_MAX_SIZE_BYTES, "0")),
+            LocalStorageOpsProperties.instance());
+    CountingLakehouseStorage storage =
+        new CountingLakehouseStorage(
+            new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), ops));
+
+    TreeNode treeNode = new BasicTreeNode();
+    treeNode.set("k1", "val1");
+    TreeOperations.writeNodeFile(storage, "node.ipc", treeNode);
+
+    TreeOperations.readNodeFile(storage, "node.ipc");
+    TreeOperations.readNodeFile(storage, "node.ipc");
+    assertThat(TreeOperations.searchNodeFile(storage, "node.ipc", "k1").value()).hasValue("val1");
+    assertThat(storage.numRequests()).isEqualTo(4);
+  }
+
+  @Test
+  public void testWriteBufferFlushKeepsLatestCommittedTransaction(@TempDir Path tempDir) {
+    LocalStorageOps ops = new LocalStorageOps();
+    LakehouseStorage storage = new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), ops);
+    LakehouseDef lakehouseDef = LakehouseDef.newBuilder().setOrder(8).build();
+
+    TreeRoot treeRoot = new BasicTreeRoot();
+    treeRoot.setLakehouseDefFilePath("some/path/to/lakehouse/def");
+    TreeOperations.setValue(storage, lakehouseDef, treeRoot, "txn1", "k1", "val1");
+    TreeOperations.setValue(storage, lakehouseDef, treeRoot, "txn1", "k2", "val2");
+    TreeOperations.setValue(storage, lakehouseDef, treeRoot, "txn2", "k3", "val3");
+    TreeOperations.setValue(storage, lakehouseDef, treeRoot, "txn2", "k4", "val4");
+    for (int i = 5; i < 8; i++) {
+      TreeOperations.setValue(storage, lakehouseDef, treeRoot, "txn3", "k" + i, "val" + i);
+    }
+
+    assertThat(treeRoot.writeBuffer().stream().map(WriteBufferMessage::transactionId))
+        .containsExactly("txn2", "txn2");
+    assertThat(treeRoot.nodeKeyTable().stream().map(NodeKeyTableRow::key))
+        .containsExactly("k1", "k2", "k5", "k6", "k7");
+    for (int i = 1; i < 8; i++) {
+      assertThat(TreeOperations.searchValue(storage, treeRoot, "k" + i)).hasValue("val" + i);
+    }
+  }
+
+  @Test
+  public void testScan(@TempDir Path tempDir) {
+    LocalStorageOps ops = new LocalStorageOps();
+    LakehouseStorage storage = new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), ops);
+    LakehouseDef lakehouseDef = LakehouseDef.newBuilder().setOrder(4).build();
+
+    TreeRoot treeRoot = new BasicTreeRoot();
+    treeRoot.setLakehouseDefFilePath("some/path/to/lakehouse/def");
+    for (int i = 0; i < 100; i++) {
+      TreeOperations.setValue(
+          storage,
+          lakehouseDef,
+          treeRoot,
+          "txn" + i,
+          String.format("k%03d", (i * 37) % 100),
+          String.format("val%03d", (i * 37) % 100));
+    }
+    TreeOperations.removeKey(storage, lakehouseDef, treeRoot, "txn-last", "k050");
+    TreeOperations.setValue(storage, lakehouseDef, treeRoot, "txn-last", "k051", "new-val");
+    assertThat(treeRoot.writeBuffer()).isNotEmpty();
+
+    List<NodeKeyTableRow> rows = Lists.newArrayList();
+    TreeOperations.scan(storage, treeRoot, "k045", "k055").forEachRemaining(rows::add);
+    assertThat(rows.stream().map(NodeKeyTableRow::key))
+        .containsExactly("k045", "k046", "k047", "k048", "k049", "k051", "k052", "k053", "k054");
+    assertThat(rows.get(5).value()).isEqualTo("new-val");
+    assertThat(rows.get(0).value()).isEqualTo("val045");
+
+    rows.clear();
+    TreeOperations.scanPrefix(storage, treeRoot, "k09").forEachRemaining(rows::add);
+    assertThat(rows).hasSize(10);
+
+    assertThat(TreeOperations.scan(storage, treeRoot, "k100", "k200").hasNext()).isFalse();
+    assertThat(TreeOperations.scan(storage, treeRoot, "a", "z").hasNext()).isTrue();
+    rows.clear();
+    TreeOperations.scan(storage, treeRoot, "a", "z").forEachRemaining(rows::add);
+    assertThat(rows).isEqualTo(TreeOperations.listRows(storage, treeRoot));
+  }
+
+  @Test
+  public void testDiff(@TempDir Path tempDir) {
+    LocalStorageOps ops = new LocalStorageOps();
+    LakehouseStorage storage = new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), ops);
+    LakehouseDef lakehouseDef = LakehouseDef.newBuilder().setOrder(4).build();
+
+    TreeRoot treeRoot = new BasicTreeRoot();
+    treeRoot.setLakehouseDefFilePath("some/path/to/lakehouse/def");
+    for (int i = 0; i < 100; i++) {
+      TreeOperations.setValue(
+          storage,
+          lakehouseDef,
+          treeRoot,
+          "txn" + i,
+          String.format("k%03d", (i * 37) % 100),
+          String.format("val%03d", (i * 37) % 100));
+    }
+    TreeOperations.writeRootNodeFile(storage, FileLocations.rootNodeFilePath(0), treeRoot);
+    TreeRoot rootA = TreeOperations.readRootNodeFile(storage, FileLocations.rootNodeFilePath(0));
+
+    TreeRoot rootB = TreeOperations.cloneTreeRoot(rootA);
+    TreeOperations.setValue(storage, lakehouseDef, rootB, "txn-b", "k010", "new-val");
+    TreeOperations.removeKey(storage, lakehouseDef, rootB, "txn-b", "k020");
+    TreeOperations.setValue(storage, lakehouseDef, rootB, "txn-b", "k100", "val100");
+    TreeOperations.setValue(storage, lakehouseDef, rootB, "txn-b", "k030", "val030");
+
+    List<KeyDiff> diffs = Lists.newArrayList(TreeOperations.diff(storage, rootA, rootB));
+    assertThat(diffs.stream().map(KeyDiff::key)).containsExactly("k010", "k020", "k100");
+    assertThat(diffs.stream().map(KeyDiff::type))
+        .containsExactly(KeyDiffType.MODIFIED, KeyDiffType.REMOVED, KeyDiffType.ADDED);
+    assertThat(diffs.get(0).beforeValue()).hasValue("val010");
+    assertThat(diffs.get(0).afterValue()).hasValue("new-val");
+
+    // the changed tree is diffed the same way after it is persisted
+    TreeOperations.writeRootNodeFile(storage, FileLocations.rootNodeFilePath(1), rootB);
+    TreeRoot persistedRootB =
+        TreeOperations.readRootNodeFile(storage, FileLocations.rootNodeFilePath(1));
+    assertThat(Lists.newArrayList(TreeOperations.diff(storage, rootA, persistedRootB)))
+        .isEqualTo(diffs);
+    assertThat(
+            Lists.newArrayList(TreeOperations.diff(storage, persistedRootB, rootA)).stream()
+                .map(KeyDiff::type))
+        .containsExactly(KeyDiffType.MODIFIED, KeyDiffType.ADDED, KeyDiffType.REMOVED);
+    assertThat(TreeOperations.diff(storage, rootA, rootA).hasNext()).isFalse();
+  }
+
+  @Test
+  public void testDiffSkipsSharedNodes(@TempDir Path tempDir) {
+    LakehouseStorage storage =
+        new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), new LocalStorageOps());
+    TrinityLake.createLakehouse(storage, LakehouseDef.newBuilder().setOrder(4).build());
+    List<NodeKeyTableRow> rows = Lists.newArrayList();
+    for (int i = 0; i < 1000; i++) {
+      rows.add(
+          ImmutableNodeKeyTableRow.builder()
+              .key(String.format("k%04d", i))
+              .value("val" + i)
+              .build());
+    }
+    TreeRoot loadedRoot = TreeBulkLoader.load(storage, rows.iterator());
+
+    // the first change is flushed from the root to a leaf by the compaction
+    commitValue(storage, "k0500", "new-val500");
+    commitValue(storage, "k0600", "new-val600");
+    TreeRoot compactedRoot =
+        TreeCompaction.compact(storage, new TreeCompactionOptions()).committedRoot().get();
+    assertThat(compactedRoot.writeBuffer()).hasSize(1);
+
+    CountingLakehouseStorage countingStorage =
+        new CountingLakehouseStorage(
+            new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), new LocalStorageOps()));
+    List<KeyDiff> diffs =
+        Lists.newArrayList(TreeOperations.diff(countingStorage, loadedRoot, compactedRoot));
+    assertThat(diffs.stream().map(KeyDiff::key)).containsExactly("k0500", "k0600");
+    assertThat(diffs.stream().map(KeyDiff::afterValue))
+        .containsExactly(Optional.of("new-val500"), Optional.of("new-val600"));
+    assertThat(countingStorage.numRequests()).isLessThan(30);
+  }
+
+  private static void commitValue(LakehouseStorage storage, String key, String value) {
+    TreeRoot latest = TreeOperations.findLatestRoot(storage);
+    TreeRoot root = TreeOperations.cloneTreeRoot(latest);
+    LakehouseDef lakehouseDef = TreeOperations.findLakehouseDef(storage, root);
+    TreeOperations.setValue(storage, lakehouseDef, root, "txn-" + key, key, value);
+    root.setPreviousRootNodeFilePath(latest.path().get());
+    long nextVersion = TreeOperations.findVersionFromRootNode(latest) + 1;
+    TreeOperations.writeRootNodeFile(storage, FileLocations.rootNodeFilePath(nextVersion), root);
+    TreeOperations.tryWriteRootNodeVersionHintFile(storage, nextVersion);
+  }
+
+  private static WriteBufferMessage message(String key, String transactionId) {
+    return ImmutableWriteBufferMessage.builder().key(key).transactionId(transactionId).build();
+  }
 }
@@ -0,0 +1,205 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.trinitylake.tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.trinitylake.FileLocations;
+import io.trinitylake.ObjectDefinitions;
+import io.trinitylake.exception.InvalidArgumentException;
+import io.trinitylake.models.LakehouseDef;
+import io.trinitylake.relocated.com.google.common.collect.ImmutableMap;
+import io.trinitylake.relocated.com.google.common.collect.Lists;
+import io.trinitylake.storage.BasicLakehouseStorage;
+import io.trinitylake.storage.LakehouseStorage;
+import io.trinitylake.storage.LiteralURI;
+import io.trinitylake.storage.local.LocalStorageOps;
+import io.trinitylake.util.FileUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestVersionExpiration {
+
+  private static final int NUM_VERSIONS = 10;
+  private static final long MAXIMUM_VERSION_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  @TempDir private Path tempDir;
+
+  private LakehouseStorage storage;
+  private List<Long> createdAtMillis;
+
+  @Test
+  public void testExpireVersionsToKeepMinimumVersions() throws InterruptedException {
+    writeVersions(
+        LakehouseDef.newBuilder()
+            .setMaximumVersionAgeMillis(MAXIMUM_VERSION_AGE_MILLIS)
+            .setMinimumVersionsToKeep(3)
+            .build());
+
+    VersionExpirationResult result = expireAfterAge(NUM_VERSIONS - 1);
+    assertThat(result.previousMinimumVersion()).isEqualTo(0);
+    assertThat(result.minimumVersion()).isEqualTo(7);
+    assertThat(result.numExpiredVersions()).isEqualTo(7);
+    assertThat(result.numDeletedFiles()).isEqualTo(7);
+
+    assertThat(TreeOperations.findMinimumVersion(storage)).isEqualTo(7);
+    for (int version = 0; version < NUM_VERSIONS; version++) {
+      assertThat(storage.exists(FileLocations.rootNodeFilePath(version))).isEqualTo(version >= 7);
+    }
+    assertThat(storage.exists(FileLocations.VERSION_EXPIRATION_LOCK_FILE_PATH)).isFalse();
+    assertThat(TreeOperations.findRootForVersion(storage, 6)).isEmpty();
+    assertThat(TreeOperations.findLatestRoot(storage).path())
+        .hasValue(FileLocations.rootNodeFilePath(NUM_VERSIONS - 1));
+
+    List<String> rootPaths =
+        Lists.newArrayList(TreeOperations.listRoots(storage, 2)).stream()
+            .map(root -> root.path().get())
+            .collect(Collectors.toList());
+    assertThat(rootPaths)
+        .containsExactly(
+            FileLocations.rootNodeFilePath(9),
+            FileLocations.rootNodeFilePath(8),
+            FileLocations.rootNodeFilePath(7));
+
+    VersionExpirationResult secondResult = expireAfterAge(NUM_VERSIONS - 1);
+    assertThat(secondResult.numExpiredVersions()).isEqualTo(0);
+    assertThat(secondResult.numDeletedFiles()).isEqualTo(0);
+  }
+
+  @Test
+  public void testExpireVersionsOlderThanMaximumAge() throws InterruptedException {
+    writeVersions(
+        LakehouseDef.newBuilder().setMaximumVersionAgeMillis(MAXIMUM_VERSION_AGE_MILLIS).build());
+
+    VersionExpirationResult result = expireAfterAge(4);
+    assertThat(result.minimumVersion()).isEqualTo(5);
+    assertThat(storage.exists(FileLocations.rootNodeFilePath(4))).isFalse();
+    assertThat(storage.exists(FileLocations.rootNodeFilePath(5))).isTrue();
+
+    result =
+        VersionExpiration.expire(
+            storage, new VersionExpirationOptions(), createdAtMillis.get(NUM_VERSIONS - 1));
+    assertThat(result.numExpiredVersions()).isEqualTo(0);
+  }
+
+  @Test
+  public void testExpireWithMaximumAgeOverrides() throws InterruptedException {
+    writeVersions(
+        LakehouseDef.newBuilder()
+            .setMaximumVersionAgeMillis(MAXIMUM_VERSION_AGE_MILLIS)
+            .setMinimumVersionsToKeep(1)
+            .putMaximumVersionAgeMillisOverrides(5, 0)
+            .putMaximumVersionAgeMillisOverrides(8, MAXIMUM_VERSION_AGE_MILLIS * 2)
+            .build());
+
+    // version 5 is expired before the maximum age
+    VersionExpirationResult result = expireAfterAge(4);
+    assertThat(result.minimumVersion()).isEqualTo(6);
+
+    // version 8 is kept longer than the maximum age
+    result = expireAfterAge(NUM_VERSIONS - 1);
+    assertThat(result.minimumVersion()).isEqualTo(8);
+    assertThat(storage.exists(FileLocations.rootNodeFilePath(8))).isTrue();
+  }
+
+  @Test
+  public void testSkipExpirationWhenLocked() throws InterruptedException, IOException {
+    writeVersions(
+        LakehouseDef.newBuilder()
+            .setMaximumVersionAgeMillis(MAXIMUM_VERSION_AGE_MILLIS)
+            .setMinimumVersionsToKeep(1)
+            .build());
+    long nowMillis = createdAtMillis.get(NUM_VERSIONS - 1) + MAXIMUM_VERSION_AGE_MILLIS * 2;
+    String lockContent = nowMillis + "\nother-owner";
+    try (OutputStream stream =
+        storage.startCommit(FileLocations.VERSION_EXPIRATION_LOCK_FILE_PATH)) {
+      stream.write(lockContent.getBytes(StandardCharsets.UTF_8));
+    }
+
+    VersionExpirationOptions options = new VersionExpirationOptions();
+    VersionExpirationResult result = VersionExpiration.expire(storage, options, nowMillis);
+    assertThat(result.numExpiredVersions()).isEqualTo(0);
+    assertThat(storage.exists(FileLocations.rootNodeFilePath(0))).isTrue();
+    // the lock of the other expiration is kept
+    try (InputStream stream = storage.startRead(FileLocations.VERSION_EXPIRATION_LOCK_FILE_PATH)) {
+      assertThat(FileUtil.readToString(stream)).isEqualTo(lockContent);
+    }
+
+    // an abandoned lock is taken over after the lock timeout
+    result =
+        VersionExpiration.expire(
+            storage, options, nowMillis + VersionExpirationOptions.LOCK_TIMEOUT_MILLIS_DEFAULT);
+    assertThat(result.minimumVersion()).isEqualTo(NUM_VERSIONS - 1);
+    assertThat(storage.exists(FileLocations.VERSION_EXPIRATION_LOCK_FILE_PATH)).isFalse();
+  }
+
+  @Test
+  public void testMinimumVersionNeverMovesBackward() {
+    this.storage =
+        new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), new LocalStorageOps());
+    VersionExpiration.writeMinimumVersionFile(storage, 5);
+    VersionExpiration.writeMinimumVersionFile(storage, 3);
+    assertThat(TreeOperations.findMinimumVersion(storage)).isEqualTo(5);
+
+    VersionExpiration.writeMinimumVersionFile(storage, 6);
+    assertThat(TreeOperations.findMinimumVersion(storage)).isEqualTo(6);
+  }
+
+  @Test
+  public void testInvalidOptions() {
+    assertThatThrownBy(
+            () ->
+                new VersionExpirationOptions(
+                    ImmutableMap.of(VersionExpirationOptions.LOCK_TIMEOUT_MILLIS, "0")))
+        .isInstanceOf(InvalidArgumentException.class);
+  }
+
+  private VersionExpirationResult expireAfterAge(int version) {
+    return VersionExpiration.expire(
+        storage,
+        new VersionExpirationOptions(),
+        createdAtMillis.get(version) + MAXIMUM_VERSION_AGE_MILLIS + 1);
+  }
+
+  private void writeVersions(LakehouseDef lakehouseDef) throws InterruptedException {
+    this.storage =
+        new BasicLakehouseStorage(new LiteralURI("file://" + tempDir), new LocalStorageOps());
+    String lakehouseDefFilePath = FileLocations.newLakehouseDefFilePath();
+    ObjectDefinitions.writeLakehouseDef(storage, lakehouseDefFilePath, lakehouseDef);
+
+    this.createdAtMillis = Lists.newArrayList();
+    for (int version = 0; version < NUM_VERSIONS; version++) {
+      TreeRoot root = new BasicTreeRoot();
+      root.setLakehouseDefFilePath(lakehouseDefFilePath);
+      if (version > 0) {
+        root.setPreviousRootNodeFilePath(FileLocations.rootNodeFilePath(version - 1));
+      }
+      String rootPath = FileLocations.rootNodeFilePath(version);
+      TreeOperations.writeRootNodeFile(storage, rootPath, root);
+      createdAtMillis.add(
+          TreeOperations.readRootNodeFile(storage, rootPath).createdAtMillis().get());
+      Thread.sleep(1);
+    }
+    TreeOperations.tryWriteRootNodeVersionHintFile(storage, NUM_VERSIONS - 1);
+  }
+}